@@ -0,0 +1,8 @@
+package com.project.back_end.DTO;
+
+import java.time.LocalDateTime;
+
+// One line of the admin daily appointment report, ordered by doctor name then time.
+public record DailyReportRow(String doctorName, LocalDateTime appointmentTime, int status,
+        String patientName, String patientPhone) {
+}
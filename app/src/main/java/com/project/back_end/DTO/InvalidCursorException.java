@@ -0,0 +1,8 @@
+package com.project.back_end.DTO;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException() {
+        super("Invalid page cursor");
+    }
+}
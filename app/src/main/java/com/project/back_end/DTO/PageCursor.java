@@ -0,0 +1,37 @@
+package com.project.back_end.DTO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Keyset position in a list ordered by (appointment_time, id): the last row already returned.
+// Sent to clients as an opaque string in `nextCursor` and read back from `after`.
+public record PageCursor(LocalDateTime time, long id) {
+
+    // Before every row
+    public static final PageCursor START = new PageCursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0);
+
+    // Before every row later than the given time
+    public static PageCursor after(LocalDateTime time) {
+        return new PageCursor(time, Long.MAX_VALUE);
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((time + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Null for a missing cursor; InvalidCursorException for one this class did not produce.
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int bar = raw.indexOf('|');
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, bar)), Long.parseLong(raw.substring(bar + 1)));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException();
+        }
+    }
+}
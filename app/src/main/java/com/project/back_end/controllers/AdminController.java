@@ -2,12 +2,33 @@
 package com.project.back_end.controllers;
 
 import com.project.back_end.models.Admin;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.CurrentPrincipal;
+import com.project.back_end.services.AppointmentAnalytics;
+import com.project.back_end.services.ReportJobs;
+import com.project.back_end.services.ReportService;
 import com.project.back_end.services.Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("${api.path}admin")
@@ -25,9 +46,16 @@ public class AdminController {
 //    - This promotes cleaner code and separation of concerns between the controller and business logic layer.
 
 private final Service service;
+private final ReportService reportService;
+private final AppointmentAnalytics appointmentAnalytics;
+private final ReportJobs reportJobs;
     @Autowired
-    public AdminController(Service service) {
+    public AdminController(Service service, ReportService reportService, AppointmentAnalytics appointmentAnalytics,
+            ReportJobs reportJobs) {
         this.service = service;
+        this.reportService = reportService;
+        this.appointmentAnalytics = appointmentAnalytics;
+        this.reportJobs = reportJobs;
     }
 
 // 3. Define the `adminLogin` Method:
@@ -41,6 +69,233 @@ public ResponseEntity<Map<String, String>> adminLogin(@RequestBody Admin admin)
         return service.validateAdmin(admin);
     }
 
+// 4. Define the `revokeTokens` Method:
+//    - Handles HTTP POST requests to revoke every token issued so far to one account.
+//    - Takes the account role (`admin`, `doctor` or `patient`), its id and an `"admin"` token as path variables.
+//    - Tokens are validated from their signed claims, so this is how a session is cut short before it expires.
+    @PostMapping({"/revoke/{role}/{userId}/{token}", "/revoke/{role}/{userId}"})
+public ResponseEntity<Map<String, String>> revokeTokens(@PathVariable String role, @PathVariable Long userId,
+            @CurrentPrincipal(role = "admin") AuthPrincipal admin) {
+        Map<String, String> response = new HashMap<>();
+        if (service.revokeTokens(role, userId) == 1) {
+            response.put("message", "Tokens revoked for " + role + " " + userId);
+            return ResponseEntity.ok(response);
+        }
+        response.put("message", "Unknown role: " + role);
+        return ResponseEntity.badRequest().body(response);
+    }
+
+// 5. Define the `getCacheStats` Method:
+//    - Handles HTTP GET requests for the in-memory cache metrics (size, hits, misses, evictions, hit rate).
+//    - Requires a valid `"admin"` token as a path variable.
+    @GetMapping({"/cache-stats/{token}", "/cache-stats"})
+public ResponseEntity<Map<String, Object>> getCacheStats(@CurrentPrincipal(role = "admin") AuthPrincipal admin) {
+        return ResponseEntity.ok(service.getCacheStats());
+    }
+
+// 6. Define the `getDailyReport` Method:
+//    - Handles HTTP GET requests for every appointment on one date (ISO), with doctor name, time, status, patient name and phone.
+//    - Requires a valid `"admin"` token as a path variable.
+//    - Rows are streamed as newline-delimited JSON (application/x-ndjson) in doctor name, then time order, as the database returns them.
+    @GetMapping({"/reports/daily/{date}/{token}", "/reports/daily/{date}"})
+public ResponseEntity<StreamingResponseBody> getDailyReport(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @CurrentPrincipal(role = "admin") AuthPrincipal admin) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"appointments-" + date + ".ndjson\"")
+                .body(out -> reportService.writeDailyReport(date, out));
+    }
+
+// 7. Define the `getDoctorWithMostPatients` Method:
+//    - Handles HTTP GET requests for the doctor with the most appointments in a year, or in one month of it with `?month=1..12`.
+//    - Requires a valid `"admin"` token as a path variable.
+//    - Returns `doctorId` (null if there were no appointments), `patientsSeen` and the `start`/`end` dates of the range.
+    @GetMapping({"/reports/top-doctor/{year}/{token}", "/reports/top-doctor/{year}"})
+public ResponseEntity<Map<String, Object>> getDoctorWithMostPatients(@PathVariable int year,
+            @RequestParam(required = false) Integer month,
+            @CurrentPrincipal(role = "admin") AuthPrincipal admin) {
+        if (month != null && (month < 1 || month > 12)) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "month must be between 1 and 12");
+            return ResponseEntity.badRequest().body(response);
+        }
+        return ResponseEntity.ok(reportService.getDoctorWithMostPatients(year, month));
+    }
+
+// 8. Define the `getLeaderboard` Method:
+//    - Handles HTTP GET requests for the doctors with the most appointments in a year, or in one month of it with `?month=1..12`.
+//    - Requires a valid `"admin"` token as a path variable.
+//    - `?limit=` (default 10, at most 200) caps the list; returns `doctors` (`doctorId`, `patientsSeen`, busiest first) and the `start`/`end` dates.
+    @GetMapping({"/reports/leaderboard/{year}/{token}", "/reports/leaderboard/{year}"})
+public ResponseEntity<Map<String, Object>> getLeaderboard(@PathVariable int year,
+            @RequestParam(required = false) Integer month,
+            @RequestParam(defaultValue = "10") int limit,
+            @CurrentPrincipal(role = "admin") AuthPrincipal admin) {
+        if (month != null && (month < 1 || month > 12)) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "month must be between 1 and 12");
+            return ResponseEntity.badRequest().body(response);
+        }
+        return ResponseEntity.ok(reportService.getLeaderboard(year, month, Math.max(1, Math.min(limit, 200))));
+    }
+
+// 9. Define the `getUtilization` Method:
+//    - Handles HTTP GET requests for booked and completed appointments per doctor between two dates (ISO, end exclusive).
+//    - Requires a valid `"admin"` token as a path variable.
+//    - Each doctor's `capacity` is their available time slots times the number of days; the range may span at most 366 days.
+    @GetMapping({"/reports/utilization/{start}/{end}/{token}", "/reports/utilization/{start}/{end}"})
+public ResponseEntity<Map<String, Object>> getUtilization(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+            @CurrentPrincipal(role = "admin") AuthPrincipal admin) {
+        if (!end.isAfter(start) || end.isAfter(start.plusDays(366))) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "end must be after start and at most 366 days later");
+            return ResponseEntity.badRequest().body(response);
+        }
+        return ResponseEntity.ok(reportService.getUtilization(start, end));
+    }
+
+// 10. Define the `getAnalytics` Method:
+//    - Handles HTTP GET requests for approximate analytics over a year, or one month of it with `?month=1..12`, answered from in-memory sketches.
+//    - Requires a valid `"admin"` token as a path variable.
+//    - `?limit=` (default 10, at most 64) caps each list. Returns `distinctPatients` (estimated distinct patients per doctor, about 2% error),
+//      `topDoctors` and `topSpecialties` (appointment counts, each at most `maxOvercount` too high), and `complete` (false if the range predates the retained months).
+    @GetMapping({"/analytics/{year}/{token}", "/analytics/{year}"})
+public ResponseEntity<Map<String, Object>> getAnalytics(@PathVariable int year,
+            @RequestParam(required = false) Integer month,
+            @RequestParam(defaultValue = "10") int limit,
+            @CurrentPrincipal(role = "admin") AuthPrincipal admin) {
+        if (month != null && (month < 1 || month > 12)) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "month must be between 1 and 12");
+            return ResponseEntity.badRequest().body(response);
+        }
+        return ResponseEntity.ok(appointmentAnalytics.getSummary(year, month,
+                Math.max(1, Math.min(limit, AppointmentAnalytics.TOP_K))));
+    }
+
+// 11. Define the `submitReportJob` Method:
+//    - Handles HTTP POST requests to run a report in the background: `daily` (`?date=`), `leaderboard` (`?year=&month=&limit=`) or `utilization` (`?start=&end=`).
+//    - Requires a valid `"admin"` token as a path variable. `?format=ndjson` (default) or `csv`; parameters are checked as in the synchronous reports above.
+//    - Returns 202 Accepted with the job right away. The same report already queued or running returns that job, as does a finished one whose range is entirely past; a full queue returns 503.
+    @PostMapping({"/reports/jobs/{type}/{token}", "/reports/jobs/{type}"})
+public ResponseEntity<Map<String, Object>> submitReportJob(@PathVariable String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer month,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @CurrentPrincipal(role = "admin") AuthPrincipal admin) {
+        Map<String, Object> response = new HashMap<>();
+        ReportJobs.Format reportFormat;
+        try {
+            reportFormat = ReportJobs.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            response.put("message", "format must be ndjson or csv");
+            return ResponseEntity.badRequest().body(response);
+        }
+        ReportJobs.Job job;
+        switch (type) {
+            case "daily":
+                if (date == null) {
+                    response.put("message", "date is required");
+                    return ResponseEntity.badRequest().body(response);
+                }
+                job = reportJobs.submitDailyReport(date, reportFormat);
+                break;
+            case "leaderboard":
+                if (year == null || (month != null && (month < 1 || month > 12))) {
+                    response.put("message", "year is required and month must be between 1 and 12");
+                    return ResponseEntity.badRequest().body(response);
+                }
+                job = reportJobs.submitLeaderboard(year, month, Math.max(1, Math.min(limit, 200)), reportFormat);
+                break;
+            case "utilization":
+                if (start == null || end == null || !end.isAfter(start) || end.isAfter(start.plusDays(366))) {
+                    response.put("message", "end must be after start and at most 366 days later");
+                    return ResponseEntity.badRequest().body(response);
+                }
+                job = reportJobs.submitUtilization(start, end, reportFormat);
+                break;
+            default:
+                response.put("message", "Unknown report: " + type);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        if (job == null) {
+            response.put("message", "Report queue is full, please try again later");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toMap());
+    }
+
+// 12. Define the `getReportJob` Method:
+//    - Handles HTTP GET requests to check a report job: QUEUED, RUNNING, DONE (with row count, size and expiry) or FAILED.
+//    - With `wait` (seconds, at most 30) the response is held until the job finishes, so clients need not poll.
+    @GetMapping({"/reports/jobs/{jobId}/{token}", "/reports/jobs/{jobId}"})
+public CompletableFuture<ResponseEntity<Map<String, Object>>> getReportJob(@PathVariable String jobId,
+            @RequestParam(defaultValue = "0") int wait,
+            @CurrentPrincipal(role = "admin") AuthPrincipal admin) {
+        ReportJobs.Job job = reportJobs.get(jobId);
+        if (job == null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "No report job found with id: " + jobId);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND).body(response));
+        }
+        if (wait <= 0 || job.getResult().isDone()) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok(job.toMap()));
+        }
+        return job.getResult().copy()
+                .completeOnTimeout(null, Math.min(wait, 30), TimeUnit.SECONDS)
+                .handle((file, error) -> ResponseEntity.ok(job.toMap()));
+    }
+
+// 13. Define the `downloadReportJob` Method:
+//    - Handles HTTP GET requests for a finished report job's output as an attachment.
+//    - The cached file is gzip-compressed; with `gzip=true` it is sent as is with `Content-Encoding: gzip`, otherwise it is decompressed on the way out.
+//    - Returns 404 if the job is unknown or expired and 409 if it has not finished (or failed).
+    @GetMapping({"/reports/jobs/{jobId}/download/{token}", "/reports/jobs/{jobId}/download"})
+public ResponseEntity<?> downloadReportJob(@PathVariable String jobId,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @CurrentPrincipal(role = "admin") AuthPrincipal admin) throws IOException {
+        Map<String, Object> response = new HashMap<>();
+        ReportJobs.Job job = reportJobs.get(jobId);
+        if (job == null) {
+            response.put("message", "No report job found with id: " + jobId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        if (job.getState() != ReportJobs.State.DONE) {
+            response.put("message", "Report job is " + job.getState().name());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        Path file = job.getResult().getNow(null);
+        // Opened here rather than in the body, so a file swept since the job was looked up is a
+        // 404; once open, it stays readable even if the sweep deletes it mid-download.
+        InputStream in;
+        try {
+            in = Files.newInputStream(file);
+        } catch (NoSuchFileException e) {
+            response.put("message", "No report job found with id: " + jobId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(job.getFormat().getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + job.getFileName() + "\"");
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body((StreamingResponseBody) out -> {
+            try (InputStream body = gzip ? in : new GZIPInputStream(in, 8192)) {
+                body.transferTo(out);
+            } finally {
+                in.close();
+            }
+        });
+    }
+
 
 
 }
@@ -1,17 +1,30 @@
 package com.project.back_end.controllers;
 
+import com.project.back_end.DTO.PageCursor;
 import com.project.back_end.models.Appointment;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.CurrentPrincipal;
 import com.project.back_end.services.AppointmentService;
+import com.project.back_end.services.BookingEngine;
 import com.project.back_end.services.Service;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/appointments")
@@ -28,6 +41,12 @@ public class AppointmentController {
 //    - Inject the general `Service` class, which provides shared functionality like token validation and appointment checks.
 private final AppointmentService appointmentService;
 private final Service service;
+// Longest range the calendar endpoint returns; a month grid spans six weeks.
+@Value("${appointments.calendar.max-days:42}")
+private int calendarMaxDays;
+// Longest a history export may stream before it is cut off.
+@Value("${appointments.export.timeout-seconds:1800}")
+private long exportTimeoutSeconds;
 @Autowired
 public AppointmentController(AppointmentService appointmentService, Service service) {
     this.appointmentService = appointmentService;
@@ -37,24 +56,16 @@ public AppointmentController(AppointmentService appointmentService, Service serv
 // 3. Define the `getAppointments` Method:
 //    - Handles HTTP GET requests to fetch appointments based on date and patient name.
 //    - Takes the appointment date, patient name, and token as path variables.
-//    - First validates the token for role `"doctor"` using the `Service`.
+//    - The token is resolved to the calling doctor (`@CurrentPrincipal`) before the method runs; invalid tokens get 401.
 //    - If the token is valid, returns appointments for the given patient on the specified date.
 //    - If the token is invalid or expired, responds with the appropriate message and status code.
-@GetMapping("/{date}/{patientName}/{token}")
+@GetMapping({"/{date}/{patientName}/{token}", "/{date}/{patientName}"})
 public ResponseEntity<Map<String, Object>> getAppointments(
         @PathVariable @DateTimeFormat (iso = DateTimeFormat.ISO.DATE) LocalDate date,
         @PathVariable String patientName,
-        @PathVariable String token) {
+        @CurrentPrincipal(role = "doctor") AuthPrincipal doctor) {
 
-
-        Map<String, Object> map = new HashMap<>();
-        ResponseEntity<Map<String, String>> tokenResponse = service.validateToken(token, "doctor");
-
-        if (!tokenResponse.getBody().isEmpty()) {
-            map.putAll(tokenResponse.getBody());
-            return new ResponseEntity<>(map, tokenResponse.getStatusCode());
-        }
-        map = appointmentService.getAppointment(patientName, date, token);
+        Map<String, Object> map = appointmentService.getAppointment(patientName, date, doctor);
         return ResponseEntity.status(HttpStatus.OK).body(map);
 }
 
@@ -62,49 +73,85 @@ public ResponseEntity<Map<String, Object>> getAppointments(
 //    - Handles HTTP POST requests to create a new appointment.
 //    - Accepts a validated `Appointment` object in the request body and a token as a path variable.
 //    - Validates the token for the `"patient"` role.
-//    - Uses service logic to validate the appointment data (e.g., check for doctor availability and time conflicts).
+//    - Checks availability and saves in one step through the booking engine, so two concurrent requests cannot take the same slot.
 //    - Returns success if booked, or appropriate error messages if the doctor ID is invalid or the slot is already taken.
-@PostMapping("/{token}")
+@PostMapping({"/{token}", ""})
 public ResponseEntity<Map<String, String>> bookAppointment(
         @RequestBody Appointment appointment,
-        @PathVariable String token) {
+        @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
     Map<String, String> response = new HashMap<>();
-    ResponseEntity<Map<String, String>> tokenResponse = service.validateToken(token, "patient");
-    if (!tokenResponse.getBody().isEmpty()) {
-        return tokenResponse;
-    }
-    int validationResult = service.validateAppointment(appointment);
-    if (validationResult == 1) {
-        int bookingResult = appointmentService.bookAppointment(appointment);
-        if (bookingResult == 1) {
-            response.put("message", "Appointment booked successfully");
-            return ResponseEntity.status(HttpStatus.CREATED).body(response); // 201 Created
-        } else {
-            response.put("message", "Internal server error");
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response); // 500 Internal Server Error
-        }
-    } else if (validationResult == -1) {
+    int bookingResult = appointmentService.bookAppointment(appointment);
+    if (bookingResult == BookingEngine.BOOKED) {
+        response.put("message", "Appointment booked successfully");
+        return ResponseEntity.status(HttpStatus.CREATED).body(response); // 201 Created
+    } else if (bookingResult == BookingEngine.INVALID_DOCTOR) {
         response.put("message", "Invalid doctor ID");
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response); // 400 Bad Request
+    } else if (bookingResult == BookingEngine.FAILED) {
+        response.put("message", "Internal server error");
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response); // 500 Internal Server Error
     }
     response.put("message", "Appointment already booked for the given time or doctor not available");
     return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response); // 400 Bad Request
 }
 
+// 4a. Define the `queueAppointment` Method:
+//    - Handles HTTP POST requests to book through the queued booking mode (`booking.queue.enabled`).
+//    - Returns 202 Accepted with a booking ticket right away; the booking is validated and saved by the doctor's writer queue.
+//    - Returns 503 if the mode is off or the queue is full, so clients can fall back to the synchronous endpoint.
+@PostMapping({"/queued/{token}", "/queued"})
+public ResponseEntity<Map<String, Object>> queueAppointment(
+        @RequestBody Appointment appointment,
+        @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+    return appointmentService.queueAppointment(appointment, patient);
+}
+
+// 4b. Define the `getBookingTicket` Method:
+//    - Handles HTTP GET requests to check a queued booking: PENDING, BOOKED (with appointmentId), SLOT_TAKEN, INVALID_DOCTOR or FAILED.
+//    - With `wait` (seconds, at most 30) the response is held until the booking settles, so clients need not poll.
+@GetMapping({"/tickets/{ticketId}/{token}", "/tickets/{ticketId}"})
+public CompletableFuture<ResponseEntity<Map<String, Object>>> getBookingTicket(
+        @PathVariable String ticketId,
+        @RequestParam(defaultValue = "0") int wait,
+        @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+    return appointmentService.getBookingTicket(ticketId, patient, wait);
+}
+
+// 4c. Define the slot hold methods:
+//    - `holdSlot` reserves the doctor and time in the request body for the calling patient for `booking.hold.seconds`; held slots disappear from availability for everyone else.
+//    - `confirmHold` books a held slot without re-validating it; `releaseHold` gives it back early.
+//    - A patient may hold at most `booking.hold.max-per-patient` slots at once.
+@PostMapping({"/holds/{token}", "/holds"})
+public ResponseEntity<Map<String, Object>> holdSlot(
+        @RequestBody Appointment appointment,
+        @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+    return appointmentService.holdSlot(appointment, patient);
+}
+
+@PostMapping({"/holds/{holdId}/confirm/{token}", "/holds/{holdId}/confirm"})
+public ResponseEntity<Map<String, String>> confirmHold(
+        @PathVariable String holdId,
+        @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+    return appointmentService.confirmHold(holdId, patient);
+}
+
+@DeleteMapping({"/holds/{holdId}/{token}", "/holds/{holdId}"})
+public ResponseEntity<Map<String, String>> releaseHold(
+        @PathVariable String holdId,
+        @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+    return appointmentService.releaseHold(holdId, patient);
+}
+
 // 5. Define the `updateAppointment` Method:
 //    - Handles HTTP PUT requests to modify an existing appointment.
 //    - Accepts a validated `Appointment` object and a token as input.
 //    - Validates the token for `"patient"` role.
 //    - Delegates the update logic to the `AppointmentService`.
 //    - Returns an appropriate success or failure response based on the update result.
-@PutMapping("/{token}")
+@PutMapping({"/{token}", ""})
 public ResponseEntity<Map<String, String>> updateAppointment(
         @RequestBody Appointment appointment,
-        @PathVariable String token) {
-    ResponseEntity<Map<String, String>> tokenResponse = service.validateToken(token, "patient");
-    if (!tokenResponse.getBody().isEmpty()) {
-        return tokenResponse;
-    }
+        @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
     return appointmentService.updateAppointment(appointment);
 }
 
@@ -113,16 +160,11 @@ public ResponseEntity<Map<String, String>> updateAppointment(
 //    - Accepts the appointment ID and a token as path variables.
 //    - Validates the token for `"patient"` role to ensure the user is authorized to cancel the appointment.
 //    - Calls `AppointmentService` to handle the cancellation process and returns the result.
-@DeleteMapping("/{id}/{token}")
+@DeleteMapping({"/{id}/{token}", "/{id}"})
 public ResponseEntity<Map<String, String>> cancelAppointment(
         @PathVariable Long id,
-        @PathVariable String token) {
-    Map<String, String> response = new HashMap<>();
-    ResponseEntity<Map<String, String>> tokenResponse = service.validateToken(token, "patient");
-    if (!tokenResponse.getBody().isEmpty()) {
-        return tokenResponse;
-    }
-    return appointmentService.cancelAppointment(id, token);
+        @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+    return appointmentService.cancelAppointment(id, patient);
 }
 
 // 7. Define the `getDoctorAppointmentsByFilter` Method:
@@ -130,19 +172,64 @@ public ResponseEntity<Map<String, String>> cancelAppointment(
 //    - Accepts filter condition, patient name, and token as path variables.
 //    - Validates the token for `"doctor"` role to ensure only doctors can access this endpoint.
 //    - Calls `AppointmentService` to handle the filtering logic and returns the filtered appointments.
-@GetMapping("/filter/{condition}/{patientName}/{token}")
+//    - Returns one page at a time: optional `size`, and `after` set to the previous page's `nextCursor`.
+@GetMapping({"/filter/{condition}/{patientName}/{token}", "/filter/{condition}/{patientName}"})
 public ResponseEntity<Map<String, Object>> getDoctorAppointmentsByFilter(
         @PathVariable String condition,
         @PathVariable String patientName,
-        @PathVariable String token) {
-    Map<String, Object> response = new HashMap<>();
-    ResponseEntity<Map<String, String>> tokenResponse = service.validateToken(token, "doctor");
-    if (!tokenResponse.getBody().isEmpty()) {
-        response.putAll(tokenResponse.getBody());
-        return new ResponseEntity<>(response, tokenResponse.getStatusCode());
+        @RequestParam(required = false) String after,
+        @RequestParam(required = false) Integer size,
+        @CurrentPrincipal(role = "doctor") AuthPrincipal doctor) {
+    Map<String, Object> result = appointmentService.getDoctorAppointmentsByFilter(condition, patientName, doctor,
+            PageCursor.decode(after), service.pageSize(size));
+    return ResponseEntity.status(HttpStatus.OK).body(result);
+}
+
+// 7a. Define the `getCalendar` Method:
+//    - Handles HTTP GET requests for a doctor's appointments from `start` up to (not including) `end`, both ISO dates, e.g. a week or a month grid.
+//    - Validates the token for `"doctor"` role; the range covers the calling doctor only.
+//    - Replaces one `getAppointments` call per day with a single range query and a compact payload:
+//      parallel `ids`, `minutes` (minutes since 1970-01-01T00:00, wall clock), `statuses` and `patientIds` arrays, plus a `patients` id-to-name map.
+//    - Returns 400 if `end` is not after `start` or the range is longer than `appointments.calendar.max-days`.
+@GetMapping({"/calendar/{start}/{end}/{token}", "/calendar/{start}/{end}"})
+public ResponseEntity<Map<String, Object>> getCalendar(
+        @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+        @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+        @CurrentPrincipal(role = "doctor") AuthPrincipal doctor) {
+    long days = ChronoUnit.DAYS.between(start, end);
+    if (days < 1 || days > calendarMaxDays) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("error", "end must be after start and at most " + calendarMaxDays + " days later");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(map);
     }
+    return ResponseEntity.status(HttpStatus.OK).body(appointmentService.getCalendar(doctor, start, end));
+}
 
-    Map<String, Object> result = appointmentService.getDoctorAppointmentsByFilter(condition, patientName, token);
-    return ResponseEntity.status(HttpStatus.OK).body(result);
+// 8. Define the `exportDoctorAppointments` Method:
+//    - Handles HTTP GET requests for a doctor's full appointment history as newline-delimited JSON (application/x-ndjson), one AppointmentDTO per line.
+//    - Validates the token for `"doctor"` role; the export covers the calling doctor only.
+//    - The body is streamed from a database cursor as it is read, so long histories are not built up in memory.
+//    - Runs as an async task with its own `appointments.export.timeout-seconds` limit; the container's default async timeout (about 30 s on Tomcat) would cut long histories off mid-stream.
+//    - With `gzip=true` the body is gzip-compressed and sent with `Content-Encoding: gzip`.
+@GetMapping({"/export/{token}", "/export"})
+public WebAsyncTask<Void> exportDoctorAppointments(
+        @RequestParam(defaultValue = "false") boolean gzip,
+        @CurrentPrincipal(role = "doctor") AuthPrincipal doctor,
+        HttpServletResponse response) {
+    return new WebAsyncTask<>(TimeUnit.SECONDS.toMillis(exportTimeoutSeconds), () -> {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"appointments.ndjson\"");
+        if (!gzip) {
+            appointmentService.exportDoctorAppointments(doctor, response.getOutputStream());
+        } else {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            GZIPOutputStream compressed = new GZIPOutputStream(response.getOutputStream(), 8192);
+            appointmentService.exportDoctorAppointments(doctor, compressed);
+            compressed.finish();
+        }
+        response.flushBuffer();
+        return null;
+    });
 }
 }
@@ -2,20 +2,28 @@ package com.project.back_end.controllers;
 
 import com.project.back_end.DTO.Login;
 import com.project.back_end.models.Doctor;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.CurrentPrincipal;
 import com.project.back_end.services.DoctorService;
+import com.project.back_end.services.DoctorSuggester;
 import com.project.back_end.services.Service;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("${api.path}doctor")
@@ -32,56 +40,131 @@ public class DoctorController {
 //    - Inject the shared `Service` class for general-purpose features like token validation and filtering.
 final private DoctorService doctorService;
 final private Service service;
+final private DoctorSuggester doctorSuggester;
+
+// How long browsers and shared proxies may reuse the public doctor listings.
+@Value("${http.cache.doctors.max-age-seconds:60}")
+private long doctorsMaxAgeSeconds;
+// Upper bounds for one batch availability request.
+@Value("${availability.batch.max-doctors:50}")
+private int batchMaxDoctors;
+@Value("${availability.batch.max-days:14}")
+private int batchMaxDays;
+// How far ahead the next-available search looks.
+@Value("${availability.next.max-days:30}")
+private int nextMaxDays;
+// Largest page the doctor filter returns, and its size when only `page` is given.
+@Value("${doctor.filter.max-page-size:100}")
+private int filterMaxPageSize;
 @Autowired
-public DoctorController(DoctorService doctorService, Service service) {
+public DoctorController(DoctorService doctorService, Service service, DoctorSuggester doctorSuggester) {
     this.doctorService = doctorService;
     this.service = service;
+    this.doctorSuggester = doctorSuggester;
 }
 
 // 3. Define the `getDoctorAvailability` Method:
 //    - Handles HTTP GET requests to check a specific doctor’s availability on a given date.
 //    - Requires `user` type, `doctorId`, `date`, and `token` as path variables.
-//    - First validates the token against the user type.
-//    - If the token is invalid, returns an error response; otherwise, returns the availability status for the doctor.
-@GetMapping("/availability/{user}/{doctorId}/{date}/{token}")
+//    - The token is resolved against the user type (`@CurrentPrincipal`); invalid tokens get 401 before the method runs.
+//    - Otherwise, returns the availability status for the doctor; a patient's own held slots are listed as free.
+//    - Carries an ETag; a matching `If-None-Match` gets 304 Not Modified without touching the database.
+@GetMapping({"/availability/{user}/{doctorId}/{date}/{token}", "/availability/{user}/{doctorId}/{date}"})
 public ResponseEntity<Map<String, Object>> getDoctorAvailability(
         @PathVariable String user,
         @PathVariable Long doctorId,
         @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
-        @PathVariable String token) {
+        @CurrentPrincipal AuthPrincipal principal,
+        WebRequest request) {
 
+    // Taken before the data is read, so a write racing the read only costs the client a refetch
+    Long patientId = patientId(principal);
+    String etag = service.availabilityEtag(patientId);
+    if (request.checkNotModified(etag)) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
     Map<String, Object> map = new HashMap<>();
-    ResponseEntity<Map<String, String>> tempMap = service.validateToken(token, user);
+    map.put("availability", doctorService.getDoctorAvailability(doctorId, date, patientId));
+    return ResponseEntity.ok().eTag(etag).body(map);
+}
+
+// 3a. Define the `getDoctorAvailabilityBatch` Method:
+//    - Handles HTTP GET requests for the free slots of several doctors over a date range (both dates inclusive).
+//    - Takes `doctorIds` (comma separated), `from` and `to` as request parameters.
+//    - Answers with one doctor query and one appointment query for everything not already indexed, instead of one pair per doctor and day.
+//    - Returns `{"availability": {doctorId: {date: [slots]}}}`; unknown doctors are left out.
+@GetMapping({"/availability/batch/{user}/{token}", "/availability/batch/{user}"})
+public ResponseEntity<Map<String, Object>> getDoctorAvailabilityBatch(
+        @PathVariable String user,
+        @RequestParam List<Long> doctorIds,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @CurrentPrincipal AuthPrincipal principal) {
 
-    // Use the working logic from your second version
-    if (!tempMap.getBody().isEmpty()) {
-        map.putAll(tempMap.getBody());
-        return new ResponseEntity<>(map, tempMap.getStatusCode());
+    Map<String, Object> map = new HashMap<>();
+    long days = ChronoUnit.DAYS.between(from, to) + 1;
+    if (doctorIds.isEmpty() || doctorIds.size() > batchMaxDoctors || days < 1 || days > batchMaxDays) {
+        map.put("error", "Ask for 1-" + batchMaxDoctors + " doctors and a range of 1-" + batchMaxDays + " days");
+        return ResponseEntity.badRequest().body(map);
     }
+    map.put("availability", doctorService.getDoctorAvailability(doctorIds, from, to, patientId(principal)));
+    return ResponseEntity.ok(map);
+}
 
-    map.put("availability", doctorService.getDoctorAvailability(doctorId, date));
+// 3b. Define the `getNextAvailable` Method:
+//    - Handles HTTP GET requests for the earliest free slots across all doctors of a specialty.
+//    - Takes the specialty as a path variable and an optional `limit` (default 5, at most 20).
+//    - Scans forward one day at a time, for at most `availability.next.max-days` days, and stops once `limit` slots are found.
+//    - Returns `{"slots": [{doctorId, doctorName, specialty, date, slot, appointmentTime}, ...]}` ordered by time.
+@GetMapping({"/next-available/{user}/{specialty}/{token}", "/next-available/{user}/{specialty}"})
+public ResponseEntity<Map<String, Object>> getNextAvailable(
+        @PathVariable String user,
+        @PathVariable String specialty,
+        @RequestParam(defaultValue = "5") int limit,
+        @CurrentPrincipal AuthPrincipal principal) {
+
+    Map<String, Object> map = new HashMap<>();
+    if (limit < 1 || limit > 20) {
+        map.put("error", "limit must be between 1 and 20");
+        return ResponseEntity.badRequest().body(map);
+    }
+    map.put("slots", doctorService.findNextAvailable(specialty, limit, nextMaxDays));
     return ResponseEntity.ok(map);
 }
 
+// 3c. Define the `suggestDoctors` Method:
+//    - Handles HTTP GET requests for search-box autocomplete: `q` is matched against the start of any word in a doctor's name.
+//    - Returns only `{id, name, specialty}` for at most `limit` doctors (default 5, at most 10), busiest first.
+//    - Served from an in-memory trie; public and cacheable like the doctor list.
+@GetMapping("/suggest")
+public ResponseEntity<Map<String, Object>> suggestDoctors(
+        @RequestParam String q,
+        @RequestParam(defaultValue = "5") int limit) {
+    Map<String, Object> map = new HashMap<>();
+    map.put("suggestions", doctorSuggester.suggest(q.trim(), Math.max(1, Math.min(limit, DoctorSuggester.MAX_SUGGESTIONS))));
+    return ResponseEntity.ok().cacheControl(publicCache()).body(map);
+}
+
 // 4. Define the `getDoctor` Method:
 //    - Handles HTTP GET requests to retrieve a list of all doctors.
 //    - Returns the list within a response map under the key `"doctors"` with HTTP 200 OK status.
+//    - The body comes serialized from the doctor directory cache, which is invalidated by doctor writes.
+//    - The response is public and cacheable for `http.cache.doctors.max-age-seconds`, and carries an ETag for revalidation.
+//    - With `size` or `after` (the previous page's `nextCursor`), returns one page of doctors in id order instead.
 @GetMapping
-@Transactional(readOnly = true) // Add transaction to keep session open during serialization
-public ResponseEntity<Map<String, Object>> getDoctor() {
-    Map<String, Object> map = new HashMap<>();
-    List<Doctor> doctors = doctorService.getDoctors();
-
-    // Force initialization of the availableTimes collection for each doctor
-    doctors.forEach(doctor -> {
-        // Access the collection to initialize it
-        if (doctor.getAvailableTimes() != null) {
-            doctor.getAvailableTimes().size();
-        }
-    });
-
-    map.put("doctors", doctors);
-    return ResponseEntity.ok(map);
+public ResponseEntity<?> getDoctor(@RequestParam(required = false) Long after, @RequestParam(required = false) Integer size,
+        WebRequest request) {
+    String etag = service.doctorsEtag();
+    if (request.checkNotModified(etag)) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(publicCache()).build();
+    }
+    if (after != null || size != null) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(publicCache())
+                .body(doctorService.getDoctorsPage(after, service.pageSize(size)));
+    }
+    // Already serialized by the doctor directory cache
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(etag).cacheControl(publicCache())
+            .body(service.listDoctors());
 }
 
 // 5. Define the `saveDoctor` Method:
@@ -89,15 +172,10 @@ public ResponseEntity<Map<String, Object>> getDoctor() {
 //    - Accepts a validated `Doctor` object in the request body and a token for authorization.
 //    - Validates the token for the `"admin"` role before proceeding.
 //    - If the doctor already exists, returns a conflict response; otherwise, adds the doctor and returns a success message.
-@PostMapping("/{token}")
+@PostMapping({"/{token}", ""})
 public ResponseEntity<Map<String, String>> saveDoctor(
         @RequestBody @Valid Doctor doctor,
-        @PathVariable String token) {
-
-    ResponseEntity<Map<String, String>> tempMap = service.validateToken(token, "admin");
-    if (!tempMap.getBody().isEmpty()) {
-        return tempMap;
-    }
+        @CurrentPrincipal(role = "admin") AuthPrincipal admin) {
 
     int result = doctorService.saveDoctor(doctor);
     Map<String, String> response = new HashMap<>();
@@ -128,15 +206,10 @@ public ResponseEntity<Map<String, String>> doctorLogin(@RequestBody @Valid Login
 //    - Accepts a validated `Doctor` object and a token for authorization.
 //    - Token must belong to an `"admin"`.
 //    - If the doctor exists, updates the record and returns success; otherwise, returns not found or error messages.
-@PutMapping("/{token}")
+@PutMapping({"/{token}", ""})
 public ResponseEntity<Map<String, String>> updateDoctor(
         @RequestBody @Valid Doctor doctor,
-        @PathVariable String token) {
-
-    ResponseEntity<Map<String, String>> tempMap = service.validateToken(token, "admin");
-    if (!tempMap.getBody().isEmpty()) {
-        return tempMap;
-    }
+        @CurrentPrincipal(role = "admin") AuthPrincipal admin) {
 
     int result = doctorService.updateDoctor(doctor);
     Map<String, String> response = new HashMap<>();
@@ -157,18 +230,12 @@ public ResponseEntity<Map<String, String>> updateDoctor(
 //    - Handles HTTP DELETE requests to remove a doctor by ID.
 //    - Requires both doctor ID and an admin token as path variables.
 //    - If the doctor exists, deletes the record and returns a success message; otherwise, responds with a not found or error message.
-@DeleteMapping("/{id}/{token}")
+@DeleteMapping({"/{id}/{token}", "/{id}"})
 public ResponseEntity<Map<String, String>> deleteDoctor(
         @PathVariable Long id,
-        @PathVariable String token) {
+        @CurrentPrincipal(role = "admin") AuthPrincipal admin) {
 
     Map<String, String> response = new HashMap<>();
-    ResponseEntity<Map<String, String>> tempMap = service.validateToken(token, "admin");
-
-    if (!tempMap.getBody().isEmpty()) {
-        return tempMap;
-    }
-
     int result = doctorService.deleteDoctor(id);
     if (result == 1) {
         response.put("message", "Doctor deleted successfully with id: " + id);
@@ -186,11 +253,33 @@ public ResponseEntity<Map<String, String>> deleteDoctor(
 //    - Handles HTTP GET requests to filter doctors based on name, time, and specialty.
 //    - Accepts `name`, `time`, and `speciality` as path variables.
 //    - Calls the shared `Service` to perform filtering logic and returns matching doctors in the response.
+//    - Optional `page` (0-based) and `size` query parameters return one page of the matches plus the total count.
+//    - Like `getDoctor`, carries an ETag and answers a matching `If-None-Match` with 304 Not Modified.
 @GetMapping("/filter/{name}/{time}/{speciality}")
-public ResponseEntity<Map<String, Object>> filter(@PathVariable String name, @PathVariable String time, @PathVariable String speciality)
+public ResponseEntity<?> filter(@PathVariable String name, @PathVariable String time, @PathVariable String speciality,
+        @RequestParam(required = false) Integer page, @RequestParam(required = false) Integer size, WebRequest request)
 {
     Map<String,Object> map=new HashMap<>();
-    map=service.filterDoctor(name, speciality, time);
-    return ResponseEntity.status(HttpStatus.OK).body(map);
+    if ((page != null && page < 0) || (size != null && (size < 1 || size > filterMaxPageSize))) {
+        map.put("error", "page must be >= 0 and size between 1 and " + filterMaxPageSize);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(map);
+    }
+    String etag = service.doctorsEtag();
+    if (request.checkNotModified(etag)) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(publicCache()).build();
+    }
+    byte[] body=service.filterDoctor(name, speciality, time, size != null && page == null ? Integer.valueOf(0) : page,
+            size == null ? filterMaxPageSize : size);
+    return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_JSON).eTag(etag).cacheControl(publicCache()).body(body);
+}
+
+// Public, token-free reads can be served by the browser or a reverse proxy.
+private CacheControl publicCache() {
+    return CacheControl.maxAge(doctorsMaxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+}
+
+// The caller's id if they are a patient, whose own held slots availability keeps listing as free.
+private Long patientId(AuthPrincipal principal) {
+    return principal != null && principal.hasRole("patient") ? principal.getId() : null;
 }
 }
@@ -1,7 +1,10 @@
 package com.project.back_end.controllers;
 
 import com.project.back_end.DTO.Login;
+import com.project.back_end.DTO.PageCursor;
 import com.project.back_end.models.Patient;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.CurrentPrincipal;
 import com.project.back_end.services.PatientService;
 import com.project.back_end.services.Service;
 import jakarta.validation.Valid;
@@ -33,15 +36,9 @@ public PatientController(PatientService patientService, Service service) {
 //    - Handles HTTP GET requests to retrieve patient details using a token.
 //    - Validates the token for the `"patient"` role using the shared service.
 //    - If the token is valid, returns patient information; otherwise, returns an appropriate error message.
-@GetMapping("/{token}")
-public ResponseEntity<Map<String, Object>> getPatient(@PathVariable String token) {
-    Map<String, Object> response  = new HashMap<>();
-    ResponseEntity<Map<String, String>> tokenResponse = service.validateToken(token, "patient");
-    if (!tokenResponse.getBody().isEmpty()) {
-        response.putAll(tokenResponse.getBody());
-        return new ResponseEntity<>(response, tokenResponse.getStatusCode());
-    }
-    return patientService.getPatientDetails(token);
+@GetMapping({"/{token}", ""})
+public ResponseEntity<Map<String, Object>> getPatient(@CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+    return patientService.getPatientDetails(patient);
 }
 
 // 4. Define the `createPatient` Method:
@@ -81,18 +78,14 @@ public ResponseEntity<Map<String, String>> login(@RequestBody @Valid Login login
 //    - Requires the patient ID, token, and user role as path variables.
 //    - Validates the token using the shared service.
 //    - If valid, retrieves the patient's appointment data from `PatientService`; otherwise, returns a validation error.
-@GetMapping("/{patientId}/{user}/{token}")
+//    - Returns one page at a time: optional `size`, and `after` set to the previous page's `nextCursor`.
+@GetMapping({"/{patientId}/{user}/{token}", "/{patientId}/{user}"})
 public ResponseEntity<Map<String, Object>> getPatientAppointment(
         @PathVariable Long patientId,
-        @PathVariable String user,
-        @PathVariable String token) {
-    Map<String, Object> response = new HashMap<>();
-    ResponseEntity<Map<String, String>> tokenResponse = service.validateToken(token, user);
-    if (!tokenResponse.getBody().isEmpty()) {
-        response.putAll(tokenResponse.getBody());
-        return new ResponseEntity<>(response, tokenResponse.getStatusCode());
-    }
-    return patientService.getPatientAppointment(patientId, token);
+        @RequestParam(required = false) String after,
+        @RequestParam(required = false) Integer size,
+        @CurrentPrincipal AuthPrincipal principal) {
+    return patientService.getPatientAppointment(patientId, PageCursor.decode(after), service.pageSize(size));
 }
 
 // 7. Define the `filterPatientAppointment` Method:
@@ -100,18 +93,15 @@ public ResponseEntity<Map<String, Object>> getPatientAppointment(
 //    - Accepts filtering parameters: `condition`, `name`, and a token.
 //    - Token must be valid for a `"patient"` role.
 //    - If valid, delegates filtering logic to the shared service and returns the filtered result.
-@GetMapping("/filter/{condition}/{name}/{token}")
+//    - Without a condition or name this is the paged list of all appointments (`after`, `size` as above).
+@GetMapping({"/filter/{condition}/{name}/{token}", "/filter/{condition}/{name}"})
 public ResponseEntity<Map<String, Object>> filterPatientAppointment(
         @PathVariable String condition,
         @PathVariable String name,
-        @PathVariable String token) {
-    Map<String, Object> response = new HashMap<>();
-    ResponseEntity<Map<String, String>> tokenResponse = service.validateToken(token, "patient");
-    if (!tokenResponse.getBody().isEmpty()) {
-        response.putAll(tokenResponse.getBody());
-        return new ResponseEntity<>(response, tokenResponse.getStatusCode());
-    }
-    return service.filterPatient(condition, name, token);
+        @RequestParam(required = false) String after,
+        @RequestParam(required = false) Integer size,
+        @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+    return service.filterPatient(condition, name, patient, PageCursor.decode(after), size);
 
 }
 }
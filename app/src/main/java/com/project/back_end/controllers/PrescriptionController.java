@@ -1,6 +1,8 @@
 package com.project.back_end.controllers;
 
 import com.project.back_end.models.Prescription;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.CurrentPrincipal;
 import com.project.back_end.services.AppointmentService;
 import com.project.back_end.services.PrescriptionService;
 import com.project.back_end.services.Service;
@@ -8,7 +10,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
 import java.util.Map;
 
 @RestController
@@ -40,13 +41,9 @@ public PrescriptionController(PrescriptionService prescriptionService, Service s
 //    - Validates the token for the `"doctor"` role.
 //    - If the token is valid, updates the status of the corresponding appointment to reflect that a prescription has been added.
 //    - Delegates the saving logic to `PrescriptionService` and returns a response indicating success or failure.
-@PostMapping("/{token}")
-public ResponseEntity<Map<String, String>> savePrescription(@RequestBody Prescription prescription, @PathVariable String token) {
-    Map<String, String> response = new HashMap<>();
-    ResponseEntity<Map<String, String>> tokenResponse = service.validateToken(token, "doctor");
-    if (!tokenResponse.getBody().isEmpty()) {
-        return tokenResponse;
-    }
+@PostMapping({"/{token}", ""})
+public ResponseEntity<Map<String, String>> savePrescription(@RequestBody Prescription prescription,
+        @CurrentPrincipal(role = "doctor") AuthPrincipal doctor) {
     appointmentService.changeStatus(prescription.getAppointmentId());
     return prescriptionService.savePrescription(prescription);
 }
@@ -57,36 +54,26 @@ public ResponseEntity<Map<String, String>> savePrescription(@RequestBody Prescri
 //    - Validates the token for the `"doctor"` role using the shared service.
 //    - If the token is valid, fetches the prescription using the `PrescriptionService`.
 //    - Returns the prescription details or an appropriate error message if validation fails.
-@GetMapping("/{appointmentId}/{token}")
-public ResponseEntity<Map<String, Object>> getPrescription(@PathVariable Long appointmentId, @PathVariable String token) {
-    Map<String, Object> response = new HashMap<>();
-    ResponseEntity<Map<String, String>> tokenResponse = service.validateToken(token, "doctor");
-    if (!tokenResponse.getBody().isEmpty()) {
-        response.putAll(tokenResponse.getBody());
-        return new ResponseEntity<>(response, tokenResponse.getStatusCode());
-    }
+@GetMapping({"/{appointmentId}/{token}", "/{appointmentId}"})
+public ResponseEntity<Map<String, Object>> getPrescription(@PathVariable Long appointmentId,
+        @CurrentPrincipal(role = "doctor") AuthPrincipal doctor) {
     return prescriptionService.getPrescription(appointmentId);
 }
 
-// New endpoint for patients to view their prescriptions
-@GetMapping("/patient/{patientName}/{token}")
-public ResponseEntity<Map<String, Object>> getPatientPrescriptions(@PathVariable String patientName, @PathVariable String token) {
-    Map<String, Object> response = new HashMap<>();
-    ResponseEntity<Map<String, String>> tokenResponse = service.validateToken(token, "patient");
-    if (!tokenResponse.getBody().isEmpty()) {
-        response.putAll(tokenResponse.getBody());
-        return new ResponseEntity<>(response, tokenResponse.getStatusCode());
-    }
-    return prescriptionService.getPatientPrescriptions(patientName);
+// New endpoint for patients to view their prescriptions, one page at a time
+// (optional `size`, and `after` set to the previous page's `nextCursor`)
+@GetMapping({"/patient/{patientName}/{token}", "/patient/{patientName}"})
+public ResponseEntity<Map<String, Object>> getPatientPrescriptions(@PathVariable String patientName,
+        @RequestParam(required = false) String after,
+        @RequestParam(required = false) Integer size,
+        @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+    return prescriptionService.getPatientPrescriptions(patientName, after, service.pageSize(size));
 }
 
 // New: delete endpoint for patients
-@DeleteMapping("/{id}/{token}")
-public ResponseEntity<Map<String, String>> deletePrescription(@PathVariable String id, @PathVariable String token) {
-    ResponseEntity<Map<String, String>> tokenResponse = service.validateToken(token, "patient");
-    if (!tokenResponse.getBody().isEmpty()) {
-        return tokenResponse;
-    }
-    return prescriptionService.deletePrescription(id, token);
+@DeleteMapping({"/{id}/{token}", "/{id}"})
+public ResponseEntity<Map<String, String>> deletePrescription(@PathVariable String id,
+        @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+    return prescriptionService.deletePrescription(id, patient);
 }
 }
@@ -1,5 +1,6 @@
 package com.project.back_end.controllers;
 
+import com.project.back_end.DTO.InvalidCursorException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -25,4 +26,12 @@ public class ValidationFailed {
 
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
     }
-}
\ No newline at end of file
+
+    // An `after` cursor that was not taken from a previous page's `nextCursor`.
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidCursor(InvalidCursorException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
+    }
+}
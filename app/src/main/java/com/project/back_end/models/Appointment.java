@@ -9,12 +9,20 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 @Entity
-
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_appointment_doctor_time",
+        columnNames = {"doctor_id", "appointment_time"}),
+        indexes = {@Index(name = "idx_appointment_patient_time", columnList = "patient_id, appointment_time, id"),
+                @Index(name = "idx_appointment_time_doctor", columnList = "appointment_time, doctor_id")})
 public class Appointment {
 
   // @Entity annotation:
 //    - Marks the class as a JPA entity, meaning it represents a table in the database.
 //    - Required for persistence frameworks (e.g., Hibernate) to map the class to a database table.
+// @Table unique constraint:
+//    - A doctor can have at most one appointment starting at a given time.
+//    - Backs the booking engine's in-process locking when several nodes write to the same database.
+//    - Its index also serves a doctor's appointment pages; the patient index serves a patient's, both ordered by (appointment_time, id).
+//    - The (appointment_time, doctor_id) index serves the admin reports, which select a time range across all doctors.
 
 // 1. 'id' field:
 //    - Type: private Long
@@ -1,7 +1,10 @@
 package com.project.back_end.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
@@ -82,9 +85,20 @@ public class Doctor {
 //      - Represents the available times for the doctor in a list of time slots.
 //      - Each time slot is represented as a string (e.g., "09:00-10:00", "10:00-11:00").
 //      - The @ElementCollection annotation ensures that the list of time slots is stored as a separate collection in the database.
+//      - The @BatchSize annotation makes any lazy load fetch the slots of up to 100 loaded doctors at once, never one query per doctor.
     @ElementCollection
+    @BatchSize(size = 100)
     private List<String> availableTimes;
-// 8. Getters and Setters:
+
+// 8. 'slotTable' field:
+//    - Type: private int[] (not persisted)
+//    - Description:
+//      - The availableTimes parsed once into packed start/end minutes (see TimeSlot), in the same order.
+//      - Built on first use after the entity is loaded, and rebuilt whenever availableTimes is set or the entity is saved.
+//      - Malformed slots are stored as TimeSlot.INVALID and never match a time.
+    @Transient
+    private int[] slotTable;
+// 9. Getters and Setters:
 //    - Standard getter and setter methods are provided for all fields: id, name, specialty, email, password, phone, and availableTimes.
 public String getName() {
     return name;
@@ -123,6 +137,46 @@ public List<String> getAvailableTimes() {
 
     public void setAvailableTimes(List<String> availableTimes) {
         this.availableTimes = availableTimes;
+        this.slotTable = null;
+    }
+
+    @JsonIgnore
+    public int[] getSlotTable() {
+        int[] table = slotTable;
+        if (table == null) {
+            table = TimeSlot.parseAll(availableTimes);
+            slotTable = table;
+        }
+        return table;
+    }
+
+    // True if any slot starts in the morning (isAm) or from noon on (!isAm)
+    public boolean hasSlotInHalfDay(boolean isAm) {
+        for (int slot : getSlotTable()) {
+            if (slot != TimeSlot.INVALID && (TimeSlot.start(slot) < TimeSlot.NOON) == isAm) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+// 10. Slot validation:
+//    - Rejects malformed slots at write time: checked for @Valid request bodies and by Hibernate before insert/update.
+    @AssertTrue(message = "availableTimes must be slots like 09:00-10:00 with the end after the start")
+    @JsonIgnore
+    public boolean isAvailableTimesValid() {
+        for (int slot : TimeSlot.parseAll(availableTimes)) {
+            if (slot == TimeSlot.INVALID) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void rebuildSlotTable() {
+        slotTable = null;
     }
 
     public Long getId() {
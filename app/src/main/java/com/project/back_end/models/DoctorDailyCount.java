@@ -0,0 +1,95 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@Entity
+@IdClass(DoctorDailyCount.Key.class)
+public class DoctorDailyCount implements Persistable<DoctorDailyCount.Key> {
+
+// Rollup of one doctor's appointments on one day, kept up to date by DoctorRollups so
+// leaderboards and utilization reports read one row per doctor and day instead of
+// aggregating the appointment table. `completed` counts the appointments with status 1.
+@Id
+    @Column(name = "doctor_id")
+    private Long doctorId;
+
+@Id
+    @Column(name = "count_day")
+    private LocalDate day;
+
+    private long booked;
+
+    private long completed;
+
+// Rows are only ever created with a known key; this makes save() insert them directly
+// instead of merging (a SELECT first), and fail rather than overwrite if the row exists.
+@Transient
+    private boolean isNew = true;
+
+    public DoctorDailyCount() {} // No arg require by JPA
+    public DoctorDailyCount(Long doctorId, LocalDate day, long booked, long completed) {
+        this.doctorId = doctorId;
+        this.day = day;
+        this.booked = booked;
+        this.completed = completed;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    public LocalDate getDay() {
+        return day;
+    }
+    public long getBooked() {
+        return booked;
+    }
+    public long getCompleted() {
+        return completed;
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(doctorId, day);
+    }
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public static class Key implements Serializable {
+        private Long doctorId;
+        private LocalDate day;
+
+        public Key() {}
+        public Key(Long doctorId, LocalDate day) {
+            this.doctorId = doctorId;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && Objects.equals(doctorId, other.doctorId) && Objects.equals(day, other.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(doctorId, day);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+public class RollupRebuild {
+
+// When DoctorRollups last recomputed one calendar month of doctor_daily_count, keyed by the
+// month's first day. The rebuild's scan counts every appointment committed before this time,
+// so every node drops the pending deltas for the month that it recorded earlier.
+@Id
+    @Column(name = "month_start")
+    private LocalDate month;
+
+    @Column(name = "rebuilt_at")
+    private LocalDateTime rebuiltAt;
+
+    public RollupRebuild() {} // No arg require by JPA
+    public RollupRebuild(LocalDate month, LocalDateTime rebuiltAt) {
+        this.month = month;
+        this.rebuiltAt = rebuiltAt;
+    }
+
+    public LocalDate getMonth() {
+        return month;
+    }
+    public LocalDateTime getRebuiltAt() {
+        return rebuiltAt;
+    }
+}
@@ -0,0 +1,79 @@
+package com.project.back_end.models;
+
+import java.util.List;
+
+/**
+ * Packed form of a doctor's "HH:mm-HH:mm" time slot.
+ *
+ * A slot is stored in one int as {@code startMinute << 16 | endMinute}, with minutes
+ * counted from midnight, so slot tables are plain int arrays that can be scanned
+ * without parsing or allocating.
+ */
+public final class TimeSlot {
+
+    public static final int INVALID = -1;
+
+    // Slots starting before noon count as morning ("AM") slots.
+    public static final int NOON = 12 * 60;
+
+    private TimeSlot() {
+    }
+
+    public static int pack(int startMinute, int endMinute) {
+        return startMinute << 16 | endMinute;
+    }
+
+    public static int start(int slot) {
+        return slot >>> 16;
+    }
+
+    public static int end(int slot) {
+        return slot & 0xFFFF;
+    }
+
+    // "09:00-10:00" -> pack(540, 600); INVALID unless the format is exact and end > start
+    public static int parse(String slot) {
+        if (slot == null || slot.length() != 11 || slot.charAt(5) != '-') {
+            return INVALID;
+        }
+        int start = parseTime(slot, 0);
+        int end = parseTime(slot, 6);
+        if (start < 0 || end <= start) {
+            return INVALID;
+        }
+        return pack(start, end);
+    }
+
+    // Parses every slot; malformed ones become INVALID entries so positions still line up.
+    public static int[] parseAll(List<String> slots) {
+        if (slots == null) {
+            return new int[0];
+        }
+        int[] table = new int[slots.size()];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = parse(slots.get(i));
+        }
+        return table;
+    }
+
+    private static int parseTime(String s, int offset) {
+        if (s.charAt(offset + 2) != ':') {
+            return INVALID;
+        }
+        int hour = twoDigits(s, offset);
+        int minute = twoDigits(s, offset + 3);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return INVALID;
+        }
+        return hour * 60 + minute;
+    }
+
+    private static int twoDigits(String s, int offset) {
+        int tens = s.charAt(offset) - '0';
+        int ones = s.charAt(offset + 1) - '0';
+        if (tens < 0 || tens > 9 || ones < 0 || ones > 9) {
+            return INVALID;
+        }
+        return tens * 10 + ones;
+    }
+}
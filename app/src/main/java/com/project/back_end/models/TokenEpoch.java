@@ -0,0 +1,35 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+@Entity
+public class TokenEpoch {
+
+// Revocation counter for one account, keyed by "<role>:<userId>" (e.g. "doctor:5").
+// Tokens carry the epoch they were issued under; bumping the epoch revokes every
+// token issued before. Accounts that were never revoked have no row (epoch 0).
+@Id
+    private String principalKey;
+
+    private int epoch;
+
+    public TokenEpoch() {} // No arg require by JPA
+    public TokenEpoch(String principalKey, int epoch) {
+        this.principalKey = principalKey;
+        this.epoch = epoch;
+    }
+
+    public String getPrincipalKey() {
+        return principalKey;
+    }
+    public void setPrincipalKey(String principalKey) {
+        this.principalKey = principalKey;
+    }
+    public int getEpoch() {
+        return epoch;
+    }
+    public void setEpoch(int epoch) {
+        this.epoch = epoch;
+    }
+}
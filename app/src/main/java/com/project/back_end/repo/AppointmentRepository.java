@@ -1,15 +1,23 @@
 package com.project.back_end.repo;
 
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.DTO.DailyReportRow;
 import com.project.back_end.models.Appointment;
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
@@ -23,21 +31,52 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
 
 // 2. Custom Query Methods:
 
+//    - **DTO_SELECT**:
+//      - The select list shared by the dashboard queries below. It builds AppointmentDTO straight from the ten columns it needs,
+//        so no Appointment, Doctor or Patient entities are loaded, tracked for changes or lazily initialised.
+    String DTO_SELECT = "SELECT new com.project.back_end.DTO.AppointmentDTO(a.id, d.id, d.name, p.id, p.name, p.email, p.phone, p.address, a.appointmentTime, a.status) "
+            + "FROM Appointment a JOIN a.doctor d JOIN a.patient p ";
+
 //    - **findByDoctorIdAndAppointmentTimeBetween**:
 //      - This method retrieves a list of appointments for a specific doctor within a given time range.
-//      - The doctor’s available times are eagerly fetched to avoid lazy loading.
-//      - Return type: List<Appointment>
+//      - Return type: List<AppointmentDTO>
+//      - Parameters: Long doctorId, LocalDateTime start, LocalDateTime end
+@Query(DTO_SELECT + "WHERE d.id = ?1 AND a.appointmentTime BETWEEN ?2 AND ?3")
+    List<AppointmentDTO> findByDoctorIdAndAppointmentTimeBetween(Long doctorId, LocalDateTime start, LocalDateTime end);
+//    - **findAppointmentTimesByDoctorIdAndAppointmentTimeBetween**:
+//      - This method retrieves only the start times of a doctor's appointments within a given time range.
+//      - Used to build the in-memory availability index without loading appointment, doctor or patient entities.
+//      - Return type: List<LocalDateTime>
 //      - Parameters: Long doctorId, LocalDateTime start, LocalDateTime end
-//      - It uses a LEFT JOIN to fetch the doctor’s available times along with the appointments.
-@Query("SELECT a FROM Appointment  a LEFT JOIN FETCH a.doctor d LEFT JOIN FETCH a.doctor.availableTimes WHERE a.doctor.id = ?1 AND a.appointmentTime BETWEEN ?2 AND ?3")
-    List<Appointment> findByDoctorIdAndAppointmentTimeBetween(Long doctorId, LocalDateTime start, LocalDateTime end);
+@Query("SELECT a.appointmentTime FROM Appointment a WHERE a.doctor.id = ?1 AND a.appointmentTime BETWEEN ?2 AND ?3")
+List<LocalDateTime> findAppointmentTimesByDoctorIdAndAppointmentTimeBetween(Long doctorId, LocalDateTime start, LocalDateTime end);
+//    - **findDoctorSlotsByDoctorIdInAndAppointmentTimeBetween**:
+//      - This method retrieves (doctor id, appointment time) pairs for several doctors within a given time range in one query.
+//      - Used to fill the availability index for a whole page of doctors and days at once.
+//      - Return type: List<Object[]>
+//      - Parameters: Collection<Long> doctorIds, LocalDateTime start, LocalDateTime end
+@Query("SELECT a.doctor.id, a.appointmentTime FROM Appointment a WHERE a.doctor.id IN ?1 AND a.appointmentTime BETWEEN ?2 AND ?3")
+List<Object[]> findDoctorSlotsByDoctorIdInAndAppointmentTimeBetween(Collection<Long> doctorIds, LocalDateTime start, LocalDateTime end);
+//    - **findCalendarRows**:
+//      - This method retrieves (appointment id, appointment time, status, patient id, patient name) rows for a doctor in the half-open range [start, end), in time order.
+//      - Backs the calendar range view with one scan of the (doctor_id, appointment_time) unique index instead of one request per day.
+//      - Return type: List<Object[]>
+//      - Parameters: Long doctorId, LocalDateTime start, LocalDateTime end
+@Query("SELECT a.id, a.appointmentTime, a.status, p.id, p.name FROM Appointment a JOIN a.patient p WHERE a.doctor.id = ?1 AND a.appointmentTime >= ?2 AND a.appointmentTime < ?3 ORDER BY a.appointmentTime")
+List<Object[]> findCalendarRows(Long doctorId, LocalDateTime start, LocalDateTime end);
+//    - **countByDoctorSince**:
+//      - This method counts appointments per doctor from a given time on, as (doctor id, count) pairs.
+//      - Used to rank doctor-name suggestions by recent booking volume.
+//      - Return type: List<Object[]>
+//      - Parameters: LocalDateTime since
+@Query("SELECT a.doctor.id, COUNT(a) FROM Appointment a WHERE a.appointmentTime >= ?1 GROUP BY a.doctor.id")
+List<Object[]> countByDoctorSince(LocalDateTime since);
 //    - **findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmentTimeBetween**:
 //      - This method retrieves appointments for a specific doctor and patient name (ignoring case) within a given time range.
-//      - It performs a LEFT JOIN to fetch both the doctor and patient details along with the appointment times.
-//      - Return type: List<Appointment>
+//      - Return type: List<AppointmentDTO>
 //      - Parameters: Long doctorId, String patientName, LocalDateTime start, LocalDateTime end
-@Query("SELECT a FROM Appointment a LEFT JOIN FETCH a.doctor d LEFT JOIN FETCH a.patient p WHERE a.doctor.id = ?1 AND LOWER(p.name) LIKE LOWER(CONCAT('%', ?2, '%')) AND a.appointmentTime BETWEEN ?3 AND ?4")
-List<Appointment> findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmentTimeBetween(
+@Query(DTO_SELECT + "WHERE d.id = ?1 AND LOWER(p.name) LIKE LOWER(CONCAT('%', ?2, '%')) AND a.appointmentTime BETWEEN ?3 AND ?4")
+List<AppointmentDTO> findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmentTimeBetween(
         Long doctorId, String patientName, LocalDateTime start, LocalDateTime end);
 //    - **deleteAllByDoctorId**:
 //      - This method deletes all appointments associated with a particular doctor.
@@ -49,30 +88,77 @@ List<Appointment> findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmen
 @Query("DELETE FROM Appointment a WHERE a.doctor.id = ?1")
     void deleteAllByDoctorId(Long doctorId);
 
-//    - **findByPatientId**:
-//      - This method retrieves all appointments for a specific patient.
-//      - Return type: List<Appointment>
-//      - Parameters: Long patientId
-    @Query("SELECT a from Appointment a WHERE a.patient.id = ?1")
-List <Appointment> findByPatientId(Long patientId);
+//    - **findPatientPage**:
+//      - This method retrieves one page of a patient's appointments, ordered by (appointment time, id), that come after the given cursor.
+//      - The (patient_id, appointment_time, id) index serves the range scan.
+//      - Return type: List<AppointmentDTO>
+//      - Parameters: Long patientId, LocalDateTime afterTime, Long afterId, Limit limit
+@Query(DTO_SELECT + "WHERE p.id = ?1 AND (a.appointmentTime > ?2 OR (a.appointmentTime = ?2 AND a.id > ?3)) ORDER BY a.appointmentTime, a.id")
+List<AppointmentDTO> findPatientPage(Long patientId, LocalDateTime afterTime, Long afterId, Limit limit);
+//    - **streamByDoctorId**:
+//      - This method streams every appointment of a doctor, ordered by (appointment time, id), for the history export.
+//      - Rows are read through a forward-only cursor EXPORT_FETCH_SIZE at a time (MySQL needs useCursorFetch=true on the URL), so the full history is never held in memory.
+//      - The Stream must be consumed and closed inside a transaction.
+//      - Return type: Stream<AppointmentDTO>
+//      - Parameters: Long doctorId
+    String EXPORT_FETCH_SIZE = "500";
+@QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+@Query(DTO_SELECT + "WHERE d.id = ?1 ORDER BY a.appointmentTime, a.id")
+Stream<AppointmentDTO> streamByDoctorId(Long doctorId);
+//    - **streamSketchRows**:
+//      - This method streams (doctor id, patient id, appointment time, appointment id) for every appointment from `start` on, to rebuild the analytics sketches.
+//      - Read through a forward-only cursor like streamByDoctorId; must be consumed and closed inside a transaction.
+//      - Return type: Stream<Object[]>
+//      - Parameters: LocalDateTime start
+@QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+@Query("SELECT a.doctor.id, a.patient.id, a.appointmentTime, a.id FROM Appointment a WHERE a.appointmentTime >= ?1")
+Stream<Object[]> streamSketchRows(LocalDateTime start);
+//    - **streamDailyReport**:
+//      - This method streams (doctor name, time, status, patient name, patient phone) for every appointment in [start, end), ordered by doctor name then time.
+//      - The range predicate on the bare column (rather than DATE(appointment_time) = ?) lets the (appointment_time, doctor_id) index find the rows.
+//      - Read through a forward-only cursor like streamByDoctorId; must be consumed and closed inside a transaction.
+//      - Return type: Stream<DailyReportRow>
+//      - Parameters: LocalDateTime start, LocalDateTime end
+@QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+@Query("SELECT new com.project.back_end.DTO.DailyReportRow(d.name, a.appointmentTime, a.status, p.name, p.phone) "
+        + "FROM Appointment a JOIN a.doctor d JOIN a.patient p "
+        + "WHERE a.appointmentTime >= ?1 AND a.appointmentTime < ?2 ORDER BY d.name, a.appointmentTime")
+Stream<DailyReportRow> streamDailyReport(LocalDateTime start, LocalDateTime end);
+//    - **countByDoctorAndDay**:
+//      - This method counts appointments, and those with status 1, per doctor and day in [start, end), as (doctor id, date, count, completed) rows.
+//      - Used to rebuild the doctor_daily_count rollup.
+//      - Return type: List<Object[]>
+//      - Parameters: LocalDateTime start, LocalDateTime end
+@Query("SELECT a.doctor.id, CAST(a.appointmentTime AS LocalDate), COUNT(a), SUM(CASE WHEN a.status = 1 THEN 1 ELSE 0 END) FROM Appointment a "
+        + "WHERE a.appointmentTime >= ?1 AND a.appointmentTime < ?2 GROUP BY a.doctor.id, CAST(a.appointmentTime AS LocalDate)")
+List<Object[]> countByDoctorAndDay(LocalDateTime start, LocalDateTime end);
+//    - **findEarliestAppointmentTime** / **findLatestAppointmentTime**:
+//      - The first and last appointment times, or null if there are no appointments.
+@Query("SELECT MIN(a.appointmentTime) FROM Appointment a")
+LocalDateTime findEarliestAppointmentTime();
+@Query("SELECT MAX(a.appointmentTime) FROM Appointment a")
+LocalDateTime findLatestAppointmentTime();
 //    - **findByPatient_IdAndStatusOrderByAppointmentTimeAsc**:
-//      - This method retrieves all appointments for a specific patient with a given status, ordered by the appointment time.
-//      - Return type: List<Appointment>
-//      - Parameters: Long patientId, int status
-@Query("SELECT a FROM Appointment a WHERE a.patient.id = ?1 AND a.status = ?2 ORDER BY a.appointmentTime ASC")
-List <Appointment> findByPatient_IdAndStatusOrderByAppointmentTimeAsc(Long patientId, int status);
+//      - This method retrieves one page of a patient's appointments with a given status, ordered by (appointment time, id), that come after the given cursor.
+//      - Return type: List<AppointmentDTO>
+//      - Parameters: Long patientId, int status, LocalDateTime afterTime, Long afterId, Limit limit
+@Query(DTO_SELECT + "WHERE p.id = ?1 AND a.status = ?2 AND (a.appointmentTime > ?3 OR (a.appointmentTime = ?3 AND a.id > ?4)) ORDER BY a.appointmentTime, a.id")
+List <AppointmentDTO> findByPatient_IdAndStatusOrderByAppointmentTimeAsc(Long patientId, int status, LocalDateTime afterTime, Long afterId, Limit limit);
 //    - **filterByDoctorNameAndPatientId**:
-//      - This method retrieves appointments based on a doctor’s name (using a LIKE query) and the patient’s ID.
-//      - Return type: List<Appointment>
-//      - Parameters: String doctorName, Long patientId
-@Query("SELECT a FROM Appointment a LEFT JOIN FETCH a.doctor d WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', ?1, '%')) AND a.patient.id = ?2")
-List<Appointment> filterByDoctorNameAndPatientId(String doctorName, Long patientId);
+//      - This method retrieves one page of appointments based on a doctor’s name (using a LIKE query) and the patient’s ID, ordered by (appointment time, id), that come after the given cursor.
+//      - Return type: List<AppointmentDTO>
+//      - Parameters: String doctorName, Long patientId, LocalDateTime afterTime, Long afterId, Limit limit
+@Query(DTO_SELECT + "WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', ?1, '%')) AND p.id = ?2 AND (a.appointmentTime > ?3 OR (a.appointmentTime = ?3 AND a.id > ?4)) ORDER BY a.appointmentTime, a.id")
+List<AppointmentDTO> filterByDoctorNameAndPatientId(String doctorName, Long patientId, LocalDateTime afterTime, Long afterId, Limit limit);
 //    - **filterByDoctorNameAndPatientIdAndStatus**:
-//      - This method retrieves appointments based on a doctor’s name (using a LIKE query), patient’s ID, and a specific appointment status.
-//      - Return type: List<Appointment>
-//      - Parameters: String doctorName, Long patientId, int status
-@Query("SELECT a FROM Appointment a LEFT JOIN FETCH a.doctor d WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', ?1, '%')) AND a.patient.id = ?2 AND a.status = ?3")
-List<Appointment> filterByDoctorNameAndPatientIdAndStatus(String doctorName, Long patientId, int status);
+//      - This method retrieves one page of appointments based on a doctor’s name (using a LIKE query), patient’s ID, and a specific appointment status, ordered by (appointment time, id), that come after the given cursor.
+//      - Return type: List<AppointmentDTO>
+//      - Parameters: String doctorName, Long patientId, int status, LocalDateTime afterTime, Long afterId, Limit limit
+@Query(DTO_SELECT + "WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', ?1, '%')) AND p.id = ?2 AND a.status = ?3 AND (a.appointmentTime > ?4 OR (a.appointmentTime = ?4 AND a.id > ?5)) ORDER BY a.appointmentTime, a.id")
+List<AppointmentDTO> filterByDoctorNameAndPatientIdAndStatus(String doctorName, Long patientId, int status, LocalDateTime afterTime, Long afterId, Limit limit);
 
 //    - **updateStatus**:
 //      - This method updates the status of a specific appointment based on its ID.
@@ -85,32 +171,13 @@ void updateStatus(int status, long id);
 
 // Additional methods needed for doctor appointment filtering
 
-//    - **findByDoctorId**:
-//      - This method retrieves all appointments for a specific doctor.
-//      - Return type: List<Appointment>
-//      - Parameters: Long doctorId
-@Query("SELECT a FROM Appointment a LEFT JOIN FETCH a.doctor d LEFT JOIN FETCH a.patient p WHERE a.doctor.id = ?1")
-List<Appointment> findByDoctorId(Long doctorId);
-
-//    - **findByDoctorIdAndPatient_NameContainingIgnoreCase**:
-//      - This method retrieves appointments for a specific doctor and patient name (ignoring case).
-//      - Return type: List<Appointment>
-//      - Parameters: Long doctorId, String patientName
-@Query("SELECT a FROM Appointment a LEFT JOIN FETCH a.doctor d LEFT JOIN FETCH a.patient p WHERE a.doctor.id = ?1 AND LOWER(p.name) LIKE LOWER(CONCAT('%', ?2, '%'))")
-List<Appointment> findByDoctorIdAndPatient_NameContainingIgnoreCase(Long doctorId, String patientName);
-
-//    - **findByDoctorIdAndAppointmentTimeAfter**:
-//      - This method retrieves future appointments for a specific doctor.
-//      - Return type: List<Appointment>
-//      - Parameters: Long doctorId, LocalDateTime dateTime
-@Query("SELECT a FROM Appointment a LEFT JOIN FETCH a.doctor d LEFT JOIN FETCH a.patient p WHERE a.doctor.id = ?1 AND a.appointmentTime > ?2")
-List<Appointment> findByDoctorIdAndAppointmentTimeAfter(Long doctorId, LocalDateTime dateTime);
-
-//    - **findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmentTimeAfter**:
-//      - This method retrieves future appointments for a specific doctor and patient name (ignoring case).
-//      - Return type: List<Appointment>
-//      - Parameters: Long doctorId, String patientName, LocalDateTime dateTime
-@Query("SELECT a FROM Appointment a LEFT JOIN FETCH a.doctor d LEFT JOIN FETCH a.patient p WHERE a.doctor.id = ?1 AND LOWER(p.name) LIKE LOWER(CONCAT('%', ?2, '%')) AND a.appointmentTime > ?3")
-List<Appointment> findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmentTimeAfter(Long doctorId, String patientName, LocalDateTime dateTime);}
+//    - **findDoctorPage**:
+//      - This method retrieves one page of a doctor's appointments, ordered by (appointment time, id), that come after the given cursor.
+//      - The patient name filter matches any part of the name, ignoring case; an empty string matches everyone.
+//      - The (doctor_id, appointment_time) unique index serves the range scan.
+//      - Return type: List<AppointmentDTO>
+//      - Parameters: Long doctorId, String patientName, LocalDateTime afterTime, Long afterId, Limit limit
+@Query(DTO_SELECT + "WHERE d.id = ?1 AND LOWER(p.name) LIKE LOWER(CONCAT('%', ?2, '%')) AND (a.appointmentTime > ?3 OR (a.appointmentTime = ?3 AND a.id > ?4)) ORDER BY a.appointmentTime, a.id")
+List<AppointmentDTO> findDoctorPage(Long doctorId, String patientName, LocalDateTime afterTime, Long afterId, Limit limit);}
 
 // ...existing code...
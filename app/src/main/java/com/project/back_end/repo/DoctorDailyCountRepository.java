@@ -0,0 +1,48 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.DoctorDailyCount;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DoctorDailyCountRepository extends JpaRepository<DoctorDailyCount, DoctorDailyCount.Key> {
+
+//    - **addCounts**:
+//      - Adds to an existing (doctor, day) row; returns 0 if the row does not exist yet.
+    @Modifying
+    @Transactional
+    @Query("UPDATE DoctorDailyCount c SET c.booked = c.booked + ?3, c.completed = c.completed + ?4 WHERE c.doctorId = ?1 AND c.day = ?2")
+    int addCounts(Long doctorId, LocalDate day, long booked, long completed);
+
+//    - **sumBookedByDoctor**:
+//      - (doctor id, appointments) pairs for the days in [start, end), busiest first.
+    @Query("SELECT c.doctorId, SUM(c.booked) FROM DoctorDailyCount c WHERE c.day >= ?1 AND c.day < ?2 GROUP BY c.doctorId ORDER BY SUM(c.booked) DESC, c.doctorId")
+    List<Object[]> sumBookedByDoctor(LocalDate start, LocalDate end, Limit limit);
+
+//    - **sumByDoctor**:
+//      - (doctor id, appointments, completed appointments) for the days in [start, end).
+    @Query("SELECT c.doctorId, SUM(c.booked), SUM(c.completed) FROM DoctorDailyCount c WHERE c.day >= ?1 AND c.day < ?2 GROUP BY c.doctorId")
+    List<Object[]> sumByDoctor(LocalDate start, LocalDate end);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DoctorDailyCount c WHERE c.day >= ?1 AND c.day < ?2")
+    void deleteDays(LocalDate start, LocalDate end);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DoctorDailyCount c WHERE c.day < ?1 OR c.day >= ?2")
+    void deleteDaysOutside(LocalDate start, LocalDate end);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DoctorDailyCount c WHERE c.doctorId = ?1")
+    void deleteByDoctorId(Long doctorId);
+}
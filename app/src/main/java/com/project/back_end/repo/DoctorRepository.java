@@ -1,14 +1,19 @@
 package com.project.back_end.repo;
 
 import com.project.back_end.models.Doctor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import javax.print.Doc;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 @Repository
-public interface DoctorRepository extends JpaRepository<Doctor, Long> {
+public interface DoctorRepository extends JpaRepository<Doctor, Long>, JpaSpecificationExecutor<Doctor> {
    // 1. Extend JpaRepository:
 //    - The repository extends JpaRepository<Doctor, Long>, which gives it basic CRUD functionality.
 //    - This allows the repository to perform operations like save, delete, update, and find without needing to implement these methods manually.
@@ -29,6 +34,8 @@ Doctor findByEmail(String email);
 //      - The `CONCAT('%', :name, '%')` is used to create a pattern for partial matching.
 //      - Return type: List<Doctor>
 //      - Parameters: String name
+//      - The finders below load availableTimes in the same query (@EntityGraph).
+    @EntityGraph(attributePaths = "availableTimes")
     @Query("SELECT d FROM Doctor  d WHERE d.name LIKE CONCAT('%', :name, '%')")
 List<Doctor> findByNameLike(String name);
 //    - **findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase**:
@@ -36,14 +43,47 @@ List<Doctor> findByNameLike(String name);
 //      - It combines both fields for a more specific search.
 //      - Return type: List<Doctor>
 //      - Parameters: String name, String specialty
+    @EntityGraph(attributePaths = "availableTimes")
     @Query("SELECT d FROM Doctor d WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', :name, '%')) AND LOWER(d.specialty) = LOWER(:specialty)")
 List<Doctor> findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase(String name, String specialty);
 //    - **findBySpecialtyIgnoreCase**:
 //      - This method retrieves a list of Doctors with the specified specialty, ignoring case sensitivity.
 //      - Return type: List<Doctor>
 //      - Parameters: String specialty
+    @EntityGraph(attributePaths = "availableTimes")
     @Query("SELECT d FROM Doctor d WHERE LOWER(d.specialty) = LOWER(:specialty)")
 List<Doctor> findBySpecialtyIgnoreCase(String specialty);
+//    - **findWithAvailableTimesById**:
+//      - This method retrieves a Doctor by ID with the available time slots fetched in the same query.
+//      - Return type: Optional<Doctor>
+//      - Parameters: Long id
+    @Query("SELECT d FROM Doctor d LEFT JOIN FETCH d.availableTimes WHERE d.id = :id")
+Optional<Doctor> findWithAvailableTimesById(Long id);
+//    - **findNamesAndSpecialties**:
+//      - This method retrieves the id, name and specialty of every Doctor, without loading the entities or their time slots.
+//      - Return type: List<Object[]> of (id, name, specialty)
+//      - Used to rebuild the doctor search index.
+    @Query("SELECT d.id, d.name, d.specialty FROM Doctor d")
+List<Object[]> findNamesAndSpecialties();
+//    - **findWithAvailableTimesByIdIn**:
+//      - This method retrieves the Doctors with the given IDs, each with its available time slots, in one query.
+//      - Return type: List<Doctor>
+//      - Parameters: Collection<Long> ids
+    @Query("SELECT DISTINCT d FROM Doctor d LEFT JOIN FETCH d.availableTimes WHERE d.id IN :ids")
+List<Doctor> findWithAvailableTimesByIdIn(Collection<Long> ids);
+//    - **findAllWithAvailableTimes**:
+//      - This method retrieves every Doctor with the available time slots loaded in the same query, instead of one query per doctor.
+//      - Return type: List<Doctor>
+    @EntityGraph(attributePaths = "availableTimes")
+    @Query("SELECT d FROM Doctor d")
+List<Doctor> findAllWithAvailableTimes();
+//    - **findByIdGreaterThanOrderByIdAsc**:
+//      - This method retrieves the next page of doctors after the given id, in id order (keyset pagination).
+//      - Return type: List<Doctor>
+//      - Parameters: Long id, Limit limit
+List<Doctor> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+//    - **JpaSpecificationExecutor**:
+//      - Runs the dynamically composed doctor filter (see DoctorSpecifications) as one query, with paging.
 // 3. @Repository annotation:
 //    - The @Repository annotation marks this interface as a Spring Data JPA repository.
 //    - Spring Data JPA automatically implements this repository, providing the necessary CRUD functionality and custom queries defined in the interface.
@@ -0,0 +1,60 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.Doctor;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+
+// Building blocks for the doctor filter, composed with Specification.where(...).and(...).
+// Each returns null when its argument is null, which Specification treats as "no condition".
+public final class DoctorSpecifications {
+
+    // Slots are stored as "HH:mm-HH:mm", so a slot starts before noon iff its first five
+    // characters sort before "12:00".
+    private static final String NOON = "12:00";
+    private static final String SLOT_PATTERN = "__:__-__:__";
+
+    private DoctorSpecifications() {
+    }
+
+    public static Specification<Doctor> idIn(Collection<Long> ids) {
+        if (ids == null) {
+            return null;
+        }
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    public static Specification<Doctor> nameContains(String name) {
+        if (name == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.like(cb.lower(root.get("name")), "%" + name.toLowerCase() + "%");
+    }
+
+    public static Specification<Doctor> specialtyIs(String specialty) {
+        if (specialty == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(cb.lower(root.get("specialty")), specialty.toLowerCase());
+    }
+
+    // Doctors with at least one slot starting in the morning (isAm) or afternoon.
+    public static Specification<Doctor> hasSlotInHalfDay(Boolean isAm) {
+        if (isAm == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            Subquery<Integer> slots = query.subquery(Integer.class);
+            Root<Doctor> doctor = slots.correlate(root);
+            Join<Doctor, String> slot = doctor.join("availableTimes");
+            slots.select(cb.literal(1)).where(
+                    cb.like(slot, SLOT_PATTERN),
+                    isAm ? cb.lessThan(cb.substring(slot, 1, 5), NOON)
+                            : cb.greaterThanOrEqualTo(cb.substring(slot, 1, 5), NOON));
+            return cb.exists(slots);
+        };
+    }
+}
@@ -1,6 +1,7 @@
 package com.project.back_end.repo;
 
 import com.project.back_end.models.Prescription;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.util.List;
@@ -23,7 +24,10 @@ public interface PrescriptionRepository extends MongoRepository<Prescription, St
 
     List<Prescription> findByAppointmentId(Long appointmentId);
 
-    // Method to find prescriptions by patient name
-    List<Prescription> findByPatientName(String patientName);
+    // Methods to page through a patient's prescriptions in id order: the first page, then the
+    // page after the last id returned (keyset pagination)
+    List<Prescription> findByPatientNameOrderByIdAsc(String patientName, Limit limit);
+
+    List<Prescription> findByPatientNameAndIdGreaterThanOrderByIdAsc(String patientName, String id, Limit limit);
 
 }
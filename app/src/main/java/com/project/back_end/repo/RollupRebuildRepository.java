@@ -0,0 +1,11 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.RollupRebuild;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface RollupRebuildRepository extends JpaRepository<RollupRebuild, LocalDate> {
+}
@@ -0,0 +1,46 @@
+package com.project.back_end.security;
+
+/**
+ * The caller behind a request, resolved once from its token.
+ *
+ * Holds just enough to authorize and scope a request (id, login, display name and
+ * role) so services do not have to re-parse the token or look the user up again.
+ */
+public final class AuthPrincipal {
+
+    // Request attribute under which the resolved principal is kept for the request.
+    public static final String REQUEST_ATTRIBUTE = AuthPrincipal.class.getName();
+
+    private final Long id;
+    private final String email;
+    private final String name;
+    private final String role;
+
+    public AuthPrincipal(Long id, String email, String name, String role) {
+        this.id = id;
+        this.email = email;
+        this.name = name;
+        this.role = role;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    // Email for doctors and patients, username for admins.
+    public String getEmail() {
+        return email;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public boolean hasRole(String role) {
+        return this.role.equals(role);
+    }
+}
@@ -0,0 +1,57 @@
+package com.project.back_end.security;
+
+import com.project.back_end.services.TokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Authenticates requests that send {@code Authorization: Bearer <token>}.
+ *
+ * The resolved {@link AuthPrincipal} is stored as a request attribute, where
+ * {@link PrincipalArgumentResolver} picks it up for endpoints mapped without a
+ * {@code {token}} path segment. Keeping the token out of the URL lets browsers and
+ * proxies cache responses by URL. A bad header is rejected with 401; requests without
+ * the header are passed through untouched.
+ */
+@Component
+public class BearerTokenFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final TokenService tokenService;
+
+    public BearerTokenFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        AuthPrincipal principal = tokenService.authenticate(header.substring(BEARER_PREFIX.length()).trim());
+        if (principal == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Invalid or expired token\"}");
+            return;
+        }
+        request.setAttribute(AuthPrincipal.REQUEST_ATTRIBUTE, principal);
+        // Responses now depend on the header, so shared caches must key on it
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION);
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,22 @@
+package com.project.back_end.security;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Injects the authenticated {@link AuthPrincipal} into a controller method.
+ *
+ * The token is taken from the {@code Authorization: Bearer} header (see
+ * {@link BearerTokenFilter}) or, on the older URL forms, from the {@code {token}} path
+ * variable. When {@link #role()} is left empty the required role is read from the
+ * {@code {user}} path variable instead. Requests that cannot be authenticated for the
+ * role are rejected with 401 before the method runs.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CurrentPrincipal {
+
+    String role() default "";
+}
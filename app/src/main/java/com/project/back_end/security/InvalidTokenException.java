@@ -0,0 +1,8 @@
+package com.project.back_end.security;
+
+public class InvalidTokenException extends RuntimeException {
+
+    public InvalidTokenException() {
+        super("Invalid or expired token");
+    }
+}
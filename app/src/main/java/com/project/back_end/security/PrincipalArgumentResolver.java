@@ -0,0 +1,70 @@
+package com.project.back_end.security;
+
+import com.project.back_end.services.TokenService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.MethodParameter;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Resolves {@link CurrentPrincipal} parameters.
+ *
+ * The principal is resolved at most once per request and cached as a request
+ * attribute, so later lookups in the same request are free.
+ */
+@Component
+public class PrincipalArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final TokenService tokenService;
+
+    public PrincipalArgumentResolver(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentPrincipal.class)
+                && AuthPrincipal.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(@NonNull MethodParameter parameter, ModelAndViewContainer mavContainer,
+            @NonNull NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Map<String, String> pathVariables = pathVariables(webRequest);
+        String role = parameter.getParameterAnnotation(CurrentPrincipal.class).role();
+        if (role.isEmpty()) {
+            role = pathVariables.get("user");
+        }
+        if (role == null) {
+            throw new InvalidTokenException();
+        }
+
+        Object existing = webRequest.getAttribute(AuthPrincipal.REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (existing instanceof AuthPrincipal principal && principal.hasRole(role)) {
+            return principal;
+        }
+
+        String token = pathVariables.get("token");
+        AuthPrincipal principal = token == null ? null : tokenService.resolvePrincipal(token, role);
+        if (principal == null) {
+            throw new InvalidTokenException();
+        }
+        webRequest.setAttribute(AuthPrincipal.REQUEST_ATTRIBUTE, principal, RequestAttributes.SCOPE_REQUEST);
+        return principal;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> pathVariables(NativeWebRequest webRequest) {
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        Object vars = request == null ? null : request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        return vars == null ? Map.of() : (Map<String, String>) vars;
+    }
+}
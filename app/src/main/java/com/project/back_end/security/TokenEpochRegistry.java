@@ -0,0 +1,66 @@
+package com.project.back_end.security;
+
+import com.project.back_end.models.TokenEpoch;
+import com.project.back_end.repo.TokenEpochRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of the {@code token_epoch} table.
+ *
+ * Token validation reads the epoch from memory so it never needs a database round trip.
+ * The table only holds accounts that have been revoked, so it stays small, and it is
+ * reloaded periodically so revocations made on other nodes are picked up.
+ */
+@Component
+public class TokenEpochRegistry {
+
+    private final TokenEpochRepository tokenEpochRepository;
+
+    private volatile Map<String, Integer> epochs = new ConcurrentHashMap<>();
+
+    public TokenEpochRegistry(TokenEpochRepository tokenEpochRepository) {
+        this.tokenEpochRepository = tokenEpochRepository;
+    }
+
+    public static String key(String role, Long userId) {
+        return role + ":" + userId;
+    }
+
+    public int currentEpoch(String role, Long userId) {
+        return epochs.getOrDefault(key(role, userId), 0);
+    }
+
+    // Invalidates every token issued to the account so far; returns the new epoch.
+    public synchronized int revoke(String role, Long userId) {
+        String key = key(role, userId);
+        TokenEpoch row = tokenEpochRepository.findById(key).orElse(new TokenEpoch(key, 0));
+        row.setEpoch(Math.max(row.getEpoch(), currentEpoch(role, userId)) + 1);
+        tokenEpochRepository.save(row);
+        epochs.put(key, row.getEpoch());
+        return row.getEpoch();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.epoch.refresh-ms:30000}")
+    public void refresh() {
+        Map<String, Integer> loaded = new HashMap<>();
+        try {
+            for (TokenEpoch row : tokenEpochRepository.findAll()) {
+                loaded.put(row.getPrincipalKey(), row.getEpoch());
+            }
+        } catch (Exception e) {
+            // Keep serving the last known epochs until the database is reachable again
+            System.err.println("Error refreshing token epochs: " + e.getMessage());
+            return;
+        }
+        // Epochs only ever grow, so merging by max never loses a local revoke that
+        // raced with this reload.
+        Map<String, Integer> merged = new ConcurrentHashMap<>(epochs);
+        loaded.forEach((key, epoch) -> merged.merge(key, epoch, Math::max));
+        epochs = merged;
+    }
+}
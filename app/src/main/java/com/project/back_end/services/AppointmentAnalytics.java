@@ -0,0 +1,229 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Approximate appointment analytics kept in memory, one set of sketches per calendar month.
+ *
+ * Each month holds a {@link HyperLogLog} of distinct patients per doctor and {@link SpaceSaving}
+ * top-k counters of appointments per doctor and per specialty. Bookings feed them as they commit;
+ * a year or a run of months is answered by merging the monthly sketches, so a query never touches
+ * the appointment table. Memory is bounded by doctors x retained months x 2 KB for the patient
+ * sketches plus a few dozen counters per month.
+ *
+ * Sketches only grow: cancelled or moved appointments stay counted until the nightly rebuild,
+ * which replays the retained months from the database. Bookings keep feeding the live sketches
+ * while a rebuild runs and are also noted by appointment id; those the replay did not see are
+ * added to the rebuilt sketches before they are swapped in, so none is lost or counted twice.
+ * A node only sees its own bookings between rebuilds; the sketches serialize and merge, so
+ * nodes can combine them if needed.
+ */
+@Component
+public class AppointmentAnalytics {
+
+    // Counters per top-k sketch; items heavier than 1/TOP_K of a month's bookings are always kept.
+    public static final int TOP_K = 64;
+
+    private static final class MonthSketches {
+        final Map<Long, HyperLogLog> patientsByDoctor = new ConcurrentHashMap<>();
+        final SpaceSaving<Long> doctors = new SpaceSaving<>(TOP_K);
+        final SpaceSaving<String> specialties = new SpaceSaving<>(TOP_K);
+
+        void add(Long doctorId, Long patientId, String specialty) {
+            patientsByDoctor.computeIfAbsent(doctorId, id -> new HyperLogLog()).add(patientId);
+            doctors.offer(doctorId);
+            if (specialty != null) {
+                specialties.offer(specialty);
+            }
+        }
+    }
+
+    private final AppointmentRepository appointmentRepository;
+    private final DoctorRepository doctorRepository;
+    private final TransactionTemplate transactionTemplate;
+    // A booking recorded while a rebuild runs, kept until the replay shows whether it saw it
+    private record Booking(Long doctorId, Long patientId, YearMonth month, String specialty) {
+    }
+
+    private final Map<Long, String> specialties = new ConcurrentHashMap<>();
+    private volatile Map<YearMonth, MonthSketches> months = new ConcurrentHashMap<>();
+    // Bookings recorded since the running rebuild started, by appointment id; null between
+    // rebuilds. Written and swapped under `swap`, so no booking slips between the two maps.
+    private volatile Map<Long, Booking> duringRebuild;
+    private final Object swap = new Object();
+
+    @Value("${analytics.retention-months:24}")
+    private int retentionMonths;
+
+    public AppointmentAnalytics(AppointmentRepository appointmentRepository, DoctorRepository doctorRepository,
+            PlatformTransactionManager transactionManager) {
+        this.appointmentRepository = appointmentRepository;
+        this.doctorRepository = doctorRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    // Call once an appointment has been committed.
+    public void booked(Long appointmentId, Long doctorId, Long patientId, LocalDateTime appointmentTime) {
+        if (appointmentId == null || doctorId == null || patientId == null || appointmentTime == null) {
+            return;
+        }
+        YearMonth month = YearMonth.from(appointmentTime);
+        if (month.isBefore(firstRetainedMonth())) {
+            return;
+        }
+        String specialty = specialties.get(doctorId);
+        if (specialty == null) {
+            // Looked up outside the map so no bin lock is held across the query; a doctor
+            // loaded twice by racing bookings is harmless
+            specialty = doctorRepository.findById(doctorId).map(Doctor::getSpecialty).orElse(null);
+            if (specialty != null) {
+                specialties.put(doctorId, specialty);
+            }
+        }
+        synchronized (swap) {
+            if (duringRebuild != null) {
+                duringRebuild.put(appointmentId, new Booking(doctorId, patientId, month, specialty));
+            }
+            months.computeIfAbsent(month, m -> new MonthSketches()).add(doctorId, patientId, specialty);
+        }
+    }
+
+    // Replays the retained months from the database into fresh sketches, then swaps them in.
+    // Bookings recorded meanwhile that the replay did not see are added before the swap. A
+    // booking committed before the rebuild started but recorded only after the replay passed
+    // its row is counted twice; booked() runs right after the commit, so that window is tiny.
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${analytics.rebuild-cron:0 45 2 * * *}")
+    public synchronized void rebuild() {
+        Map<Long, String> latestSpecialties = new HashMap<>();
+        for (Doctor doctor : doctorRepository.findAll()) {
+            if (doctor.getSpecialty() != null) {
+                latestSpecialties.put(doctor.getId(), doctor.getSpecialty());
+            }
+        }
+        Map<Long, Booking> recorded = new ConcurrentHashMap<>();
+        synchronized (swap) {
+            duringRebuild = recorded;
+        }
+        Map<YearMonth, MonthSketches> rebuilt = new ConcurrentHashMap<>();
+        Set<Long> seen = new HashSet<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> stream = appointmentRepository.streamSketchRows(firstRetainedMonth().atDay(1).atStartOfDay())) {
+                    for (Object[] row : (Iterable<Object[]>) stream::iterator) {
+                        Long doctorId = (Long) row[0];
+                        rebuilt.computeIfAbsent(YearMonth.from((LocalDateTime) row[2]), m -> new MonthSketches())
+                                .add(doctorId, (Long) row[1], latestSpecialties.get(doctorId));
+                        if (recorded.containsKey((Long) row[3])) {
+                            seen.add((Long) row[3]);
+                        }
+                    }
+                }
+            });
+            synchronized (swap) {
+                recorded.forEach((appointmentId, booking) -> {
+                    if (!seen.contains(appointmentId)) {
+                        rebuilt.computeIfAbsent(booking.month(), m -> new MonthSketches())
+                                .add(booking.doctorId(), booking.patientId(), booking.specialty());
+                    }
+                });
+                specialties.clear();
+                specialties.putAll(latestSpecialties);
+                months = rebuilt;
+            }
+        } finally {
+            synchronized (swap) {
+                duringRebuild = null;
+            }
+        }
+    }
+
+    // Drops a deleted doctor's patient sketches; their top-k counters age out with their months.
+    public void doctorDeleted(Long doctorId) {
+        specialties.remove(doctorId);
+        for (MonthSketches sketches : months.values()) {
+            sketches.patientsByDoctor.remove(doctorId);
+        }
+    }
+
+    // Estimated distinct patients per doctor and the busiest doctors and specialties, for the
+    // month (1-12), or the whole year if month is null. Months outside the retention window are
+    // not covered, which `complete` reports.
+    public Map<String, Object> getSummary(int year, Integer month, int limit) {
+        YearMonth first = month == null ? YearMonth.of(year, 1) : YearMonth.of(year, month);
+        YearMonth last = month == null ? YearMonth.of(year, 12) : first;
+
+        Map<Long, HyperLogLog> patients = new HashMap<>();
+        SpaceSaving<Long> doctors = new SpaceSaving<>(TOP_K);
+        SpaceSaving<String> specialtyCounts = new SpaceSaving<>(TOP_K);
+        Map<YearMonth, MonthSketches> snapshot = months;
+        for (YearMonth m = first; !m.isAfter(last); m = m.plusMonths(1)) {
+            MonthSketches sketches = snapshot.get(m);
+            if (sketches == null) {
+                continue;
+            }
+            sketches.patientsByDoctor.forEach((doctorId, sketch) ->
+                    patients.computeIfAbsent(doctorId, id -> new HyperLogLog()).merge(sketch));
+            doctors.merge(sketches.doctors);
+            specialtyCounts.merge(sketches.specialties);
+        }
+
+        List<Map<String, Object>> distinct = new ArrayList<>();
+        patients.forEach((doctorId, sketch) -> {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("doctorId", doctorId);
+            entry.put("distinctPatients", sketch.estimate());
+            distinct.add(entry);
+        });
+        distinct.sort(Comparator.comparingLong((Map<String, Object> e) -> (Long) e.get("distinctPatients")).reversed());
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("start", first.atDay(1));
+        map.put("end", last.plusMonths(1).atDay(1));
+        map.put("complete", !first.isBefore(firstRetainedMonth()));
+        map.put("distinctPatients", distinct.size() > limit ? distinct.subList(0, limit) : distinct);
+        map.put("topDoctors", entries(doctors.top(limit), "doctorId"));
+        map.put("topSpecialties", entries(specialtyCounts.top(limit), "specialty"));
+        return map;
+    }
+
+    private static <T> List<Map<String, Object>> entries(List<SpaceSaving.Entry<T>> top, String key) {
+        List<Map<String, Object>> list = new ArrayList<>(top.size());
+        for (SpaceSaving.Entry<T> entry : top) {
+            Map<String, Object> item = new HashMap<>();
+            item.put(key, entry.item());
+            item.put("appointments", entry.count());
+            // The true count lies in [appointments - maxOvercount, appointments]
+            item.put("maxOvercount", entry.error());
+            list.add(item);
+        }
+        return list;
+    }
+
+    private YearMonth firstRetainedMonth() {
+        return YearMonth.from(LocalDate.now()).minusMonths(retentionMonths - 1);
+    }
+}
@@ -1,53 +1,160 @@
 // AppointmentService.java
 package com.project.back_end.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.DTO.PageCursor;
 import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
 import com.project.back_end.models.Patient;
 import com.project.back_end.repo.AppointmentRepository;
-import com.project.back_end.repo.DoctorRepository;
-import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.security.AuthPrincipal;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class AppointmentService {
 
     private final AppointmentRepository appointmentRepository;
-    private final com.project.back_end.services.Service service;
-    private final TokenService tokenService;
-    private final PatientRepository patientRepository;
-    private final DoctorRepository doctorRepository;
-
-    public AppointmentService(AppointmentRepository appointmentRepository,
-            com.project.back_end.services.Service service, TokenService tokenService,
-            PatientRepository patientRepository, DoctorRepository doctorRepository) {
+    private final AvailabilityIndex availabilityIndex;
+    private final BookingEngine bookingEngine;
+    private final BookingQueue bookingQueue;
+    private final SlotHolds slotHolds;
+    private final ObjectMapper objectMapper;
+    private final DoctorRollups doctorRollups;
+    private final AppointmentAnalytics appointmentAnalytics;
+
+    public AppointmentService(AppointmentRepository appointmentRepository, AvailabilityIndex availabilityIndex,
+            BookingEngine bookingEngine, BookingQueue bookingQueue, SlotHolds slotHolds, ObjectMapper objectMapper,
+            DoctorRollups doctorRollups, AppointmentAnalytics appointmentAnalytics) {
         this.appointmentRepository = appointmentRepository;
-        this.service = service;
-        this.tokenService = tokenService;
-        this.patientRepository = patientRepository;
-        this.doctorRepository = doctorRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.bookingEngine = bookingEngine;
+        this.bookingQueue = bookingQueue;
+        this.slotHolds = slotHolds;
+        this.objectMapper = objectMapper;
+        this.doctorRollups = doctorRollups;
+        this.appointmentAnalytics = appointmentAnalytics;
     }
 
+    // Checks the slot and books it atomically; returns a BookingEngine result code.
     public int bookAppointment(Appointment appointment) {
-        try {
-            appointmentRepository.save(appointment);
-            return 1;
-        } catch (Exception e) {
-            System.out.println("Error: " + e);
-            return 0;
+        int out = bookingEngine.book(appointment);
+        if (out == BookingEngine.BOOKED) {
+            doctorRollups.booked(appointment.getDoctorId(), appointment.getAppointmentTime(), appointment.getStatus());
+            appointmentAnalytics.booked(appointment.getId(), appointment.getDoctorId(), appointment.getPatientId(),
+                    appointment.getAppointmentTime());
+        }
+        return out;
+    }
+
+    // Hands the booking to the per-doctor writer queue and answers with a ticket to poll.
+    public ResponseEntity<Map<String, Object>> queueAppointment(Appointment appointment, AuthPrincipal patient) {
+        Map<String, Object> response = new HashMap<>();
+        if (!bookingQueue.isEnabled()) {
+            response.put("message", "Queued booking is not enabled");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+        BookingQueue.Ticket ticket = bookingQueue.submit(appointment, patient.getId());
+        if (ticket == null) {
+            response.put("message", "Booking queue is full, please try again");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ticket.toMap());
+    }
+
+    // The ticket's current state. With waitSeconds > 0 the response is held until the
+    // booking settles or the wait runs out, without tying up a request thread.
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getBookingTicket(String ticketId, AuthPrincipal patient,
+            int waitSeconds) {
+        BookingQueue.Ticket ticket = bookingQueue.ticket(ticketId, patient.getId());
+        if (ticket == null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "No booking ticket found with id: " + ticketId);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND).body(response));
+        }
+        if (waitSeconds <= 0 || ticket.getResult().isDone()) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok(ticket.toMap()));
+        }
+        return ticket.getResult().copy()
+                .completeOnTimeout(null, Math.min(waitSeconds, 30), TimeUnit.SECONDS)
+                .handle((code, error) -> ResponseEntity.ok(ticket.toMap()));
+    }
+
+    // Reserves the appointment's doctor and time for the patient while they fill in the form.
+    public ResponseEntity<Map<String, Object>> holdSlot(Appointment appointment, AuthPrincipal patient) {
+        Long doctorId = appointment.getDoctorId();
+        LocalDateTime time = appointment.getAppointmentTime();
+        SlotHolds.Hold hold = bookingEngine.hold(doctorId, time, patient.getId());
+        if (hold != null) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(hold.toMap());
         }
+        Map<String, Object> response = new HashMap<>();
+        if (doctorId == null || time == null || availabilityIndex.checkSlot(doctorId, time) == -1) {
+            response.put("message", "Invalid doctor id or appointment time");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        if (slotHolds.holdOn(doctorId, time) == null && availabilityIndex.checkSlot(doctorId, time) == 1) {
+            response.put("message", "Too many slots on hold, confirm or release one first");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+        }
+        response.put("message", "Slot is already booked or held by another patient");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    // Books the patient's held slot without re-running the availability checks.
+    public ResponseEntity<Map<String, String>> confirmHold(String holdId, AuthPrincipal patient) {
+        Map<String, String> response = new HashMap<>();
+        SlotHolds.Hold hold = slotHolds.get(holdId, patient.getId());
+        if (hold == null) {
+            response.put("message", "Hold not found or expired");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        Doctor doctor = new Doctor();
+        doctor.setId(hold.getDoctorId());
+        Patient owner = new Patient();
+        owner.setId(patient.getId());
+        Appointment appointment = new Appointment(doctor, owner, hold.getAppointmentTime(), 0);
+        int out = bookingEngine.confirm(appointment, hold);
+        if (out == BookingEngine.BOOKED) {
+            doctorRollups.booked(hold.getDoctorId(), hold.getAppointmentTime(), 0);
+            appointmentAnalytics.booked(appointment.getId(), hold.getDoctorId(), patient.getId(), hold.getAppointmentTime());
+            response.put("message", "Appointment booked successfully");
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } else if (out == BookingEngine.FAILED) {
+            response.put("message", "Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+        response.put("message", "Appointment already booked for the given time or doctor not available");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    public ResponseEntity<Map<String, String>> releaseHold(String holdId, AuthPrincipal patient) {
+        Map<String, String> response = new HashMap<>();
+        SlotHolds.Hold hold = slotHolds.get(holdId, patient.getId());
+        if (hold == null) {
+            response.put("message", "Hold not found or expired");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        slotHolds.release(hold);
+        response.put("message", "Hold released");
+        return ResponseEntity.status(HttpStatus.OK).body(response);
     }
 
     public ResponseEntity<Map<String, String>> updateAppointment(Appointment appointment) {
@@ -63,22 +170,31 @@ public class AppointmentService {
             response.put("message", "Patient Id mismatch");
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         }
-        int out = service.validateAppointment(appointment);
-        if (out == 1) {
-            try {
-                appointmentRepository.save(appointment);
-                response.put("message", "Appointment Updated Successfully");
-                return ResponseEntity.status(HttpStatus.OK).body(response);
-
-            } catch (Exception e) {
-                System.out.println("Error: " + e);
-                response.put("message", "Internal Server Error");
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-            }
-
-        } else if (out == -1) {
+        Appointment previous = result.get();
+        Long previousDoctorId = previous.getDoctorId();
+        LocalDateTime previousTime = previous.getAppointmentTime();
+        int previousStatus = previous.getStatus();
+        int out = bookingEngine.reschedule(appointment, previousDoctorId, previousTime);
+        if (out == BookingEngine.BOOKED) {
+            Long appointmentId = appointment.getId();
+            Long doctorId = appointment.getDoctorId();
+            Long patientId = previous.getPatientId();
+            LocalDateTime appointmentTime = appointment.getAppointmentTime();
+            int status = appointment.getStatus();
+            availabilityIndex.afterCommit(() -> {
+                doctorRollups.cancelled(previousDoctorId, previousTime, previousStatus);
+                doctorRollups.booked(doctorId, appointmentTime, status);
+                // Sketches cannot forget the old slot; the nightly rebuild drops it
+                appointmentAnalytics.booked(appointmentId, doctorId, patientId, appointmentTime);
+            });
+            response.put("message", "Appointment Updated Successfully");
+            return ResponseEntity.status(HttpStatus.OK).body(response);
+        } else if (out == BookingEngine.INVALID_DOCTOR) {
             response.put("message", "Invalid doctor id");
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } else if (out == BookingEngine.FAILED) {
+            response.put("message", "Internal Server Error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
 
         response.put("message", "Appointment already booked for given time or Doctor not available");
@@ -87,7 +203,7 @@ public class AppointmentService {
     }
 
     @Transactional
-    public ResponseEntity<Map<String, String>> cancelAppointment(long id, String token) {
+    public ResponseEntity<Map<String, String>> cancelAppointment(long id, AuthPrincipal patient) {
         Map<String, String> response = new HashMap<>();
 
         try {
@@ -100,32 +216,6 @@ public class AppointmentService {
 
             Appointment appointment = appointmentOpt.get();
 
-            // Extract and validate token
-            if (token == null || token.trim().isEmpty()) {
-                response.put("message", "Token is required");
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
-            }
-
-            String extractedEmail;
-            try {
-                extractedEmail = tokenService.extractEmail(token);
-                if (extractedEmail == null || extractedEmail.trim().isEmpty()) {
-                    response.put("message", "Invalid token - no email found");
-                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
-                }
-            } catch (Exception e) {
-                System.err.println("Token extraction error: " + e.getMessage());
-                response.put("message", "Invalid or expired token");
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
-            }
-
-            // Find patient by email
-            Patient patient = patientRepository.findByEmail(extractedEmail);
-            if (patient == null) {
-                response.put("message", "Patient not found for the provided token");
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
-            }
-
             // Check if patient owns this appointment - Fix: Use .equals() for Long comparison
             if (!patient.getId().equals(appointment.getPatient().getId())) {
                 response.put("message", "You are not authorized to cancel this appointment");
@@ -140,6 +230,13 @@ public class AppointmentService {
 
             // Delete the appointment
             appointmentRepository.deleteById(id);
+            Long doctorId = appointment.getDoctorId();
+            LocalDateTime appointmentTime = appointment.getAppointmentTime();
+            int status = appointment.getStatus();
+            availabilityIndex.afterCommit(() -> {
+                availabilityIndex.markFree(doctorId, appointmentTime);
+                doctorRollups.cancelled(doctorId, appointmentTime, status);
+            });
 
             response.put("message", "Appointment cancelled successfully");
             return ResponseEntity.status(HttpStatus.OK).body(response);
@@ -153,16 +250,15 @@ public class AppointmentService {
     }
 
     @Transactional
-    public Map<String, Object> getAppointment(String pname, LocalDate date, String token) {
+    public Map<String, Object> getAppointment(String pname, LocalDate date, AuthPrincipal doctor) {
         Map<String, Object> map = new HashMap<>();
-        String extractedEmail = tokenService.extractEmail(token);
-        Long doctorId = doctorRepository.findByEmail(extractedEmail).getId();
+        Long doctorId = doctor.getId();
 
         // Use the provided date parameter, not today's date
         LocalDateTime startOfDay = date.atStartOfDay();
         LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
 
-        List<Appointment> appointments;
+        List<AppointmentDTO> appointments;
 
         if (pname.equals("null")) {
             // Get appointments for the specific date only
@@ -175,77 +271,60 @@ public class AppointmentService {
                             doctorId, pname, startOfDay, endOfDay);
         }
 
-        List<AppointmentDTO> appointmentDTOs = appointments.stream()
-                .map(app -> new AppointmentDTO(
-                        app.getId(),
-                        app.getDoctor().getId(),
-                        app.getDoctor().getName(),
-                        app.getPatient().getId(),
-                        app.getPatient().getName(),
-                        app.getPatient().getEmail(),
-                        app.getPatient().getPhone(),
-                        app.getPatient().getAddress(),
-                        app.getAppointmentTime(),
-                        app.getStatus()))
-                .collect(Collectors.toList());
-
-        map.put("appointments", appointmentDTOs);
+        map.put("appointments", appointments);
         return map;
     }
 
     @Transactional
     public void changeStatus(long appointmentId)
     {
+        Optional<Appointment> appointment = appointmentRepository.findById(appointmentId);
         appointmentRepository.updateStatus(1, appointmentId);
+        appointment.ifPresent(app -> {
+            Long doctorId = app.getDoctorId();
+            LocalDateTime appointmentTime = app.getAppointmentTime();
+            int previousStatus = app.getStatus();
+            availabilityIndex.afterCommit(() -> doctorRollups.statusChanged(doctorId, appointmentTime, previousStatus, 1));
+        });
     }
 
-    // New method for doctors to filter appointments by condition
+    // New method for doctors to filter appointments by condition, one page of `size` at a time
+    // in (appointment time, id) order, starting after the cursor; nextCursor is null on the last page.
     @Transactional
-    public Map<String, Object> getDoctorAppointmentsByFilter(String condition, String patientName, String token) {
+    public Map<String, Object> getDoctorAppointmentsByFilter(String condition, String patientName, AuthPrincipal doctor,
+            PageCursor after, int size) {
         Map<String, Object> map = new HashMap<>();
 
         try {
-            String extractedEmail = tokenService.extractEmail(token);
-            Long doctorId = doctorRepository.findByEmail(extractedEmail).getId();
-
-            List<Appointment> appointments;
+            Long doctorId = doctor.getId();
 
+            PageCursor from;
             if (condition == null || condition.equals("null")) {
-                // Get all appointments for this doctor
-                if (patientName == null || patientName.equals("null")) {
-                    appointments = appointmentRepository.findByDoctorId(doctorId);
-                } else {
-                    appointments = appointmentRepository.findByDoctorIdAndPatient_NameContainingIgnoreCase(doctorId, patientName);
-                }
+                // All appointments for this doctor
+                from = after == null ? PageCursor.START : after;
             } else if (condition.equals("future")) {
-                // Get future appointments only
-                LocalDateTime now = LocalDateTime.now();
-                if (patientName == null || patientName.equals("null")) {
-                    appointments = appointmentRepository.findByDoctorIdAndAppointmentTimeAfter(doctorId, now);
-                } else {
-                    appointments = appointmentRepository.findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmentTimeAfter(doctorId, patientName, now);
-                }
+                // Future appointments only
+                from = after == null ? PageCursor.after(LocalDateTime.now()) : after;
             } else {
                 map.put("error", "Invalid filter condition");
                 map.put("appointments", List.of());
                 return map;
             }
+            String name = patientName == null || patientName.equals("null") ? "" : patientName;
+
+            // One extra row tells whether another page follows
+            List<AppointmentDTO> appointments = appointmentRepository.findDoctorPage(doctorId, name, from.time(), from.id(),
+                    Limit.of(size + 1));
+            boolean more = appointments.size() > size;
+            if (more) {
+                appointments = appointments.subList(0, size);
+                AppointmentDTO last = appointments.get(size - 1);
+                map.put("nextCursor", new PageCursor(last.getAppointmentTime(), last.getId()).encode());
+            } else {
+                map.put("nextCursor", null);
+            }
 
-            List<AppointmentDTO> appointmentDTOs = appointments.stream()
-                    .map(app -> new AppointmentDTO(
-                            app.getId(),
-                            app.getDoctor().getId(),
-                            app.getDoctor().getName(),
-                            app.getPatient().getId(),
-                            app.getPatient().getName(),
-                            app.getPatient().getEmail(),
-                            app.getPatient().getPhone(),
-                            app.getPatient().getAddress(),
-                            app.getAppointmentTime(),
-                            app.getStatus()))
-                    .collect(Collectors.toList());
-
-            map.put("appointments", appointmentDTOs);
+            map.put("appointments", appointments);
             return map;
 
         } catch (Exception e) {
@@ -256,4 +335,42 @@ public class AppointmentService {
         }
     }
 
+
+    // The doctor's appointments from `start` up to (not including) `end`, as parallel arrays: ids,
+    // times in minutes since 1970-01-01T00:00 (wall clock, no time zone), status codes and patient
+    // ids, with each patient's name once in `patients`. Built for the week and month calendar.
+    public Map<String, Object> getCalendar(AuthPrincipal doctor, LocalDate start, LocalDate end) {
+        List<Object[]> rows = appointmentRepository.findCalendarRows(doctor.getId(), start.atStartOfDay(), end.atStartOfDay());
+        long[] ids = new long[rows.size()];
+        long[] minutes = new long[rows.size()];
+        int[] statuses = new int[rows.size()];
+        long[] patientIds = new long[rows.size()];
+        Map<Long, String> patients = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            ids[i] = (Long) row[0];
+            minutes[i] = ((LocalDateTime) row[1]).toEpochSecond(ZoneOffset.UTC) / 60;
+            statuses[i] = (Integer) row[2];
+            patientIds[i] = (Long) row[3];
+            patients.putIfAbsent(patientIds[i], (String) row[4]);
+        }
+        Map<String, Object> map = new HashMap<>();
+        map.put("start", start);
+        map.put("end", end);
+        map.put("ids", ids);
+        map.put("minutes", minutes);
+        map.put("statuses", statuses);
+        map.put("patientIds", patientIds);
+        map.put("patients", patients);
+        return map;
+    }
+
+    // Writes the doctor's whole appointment history to `out` as newline-delimited JSON, oldest
+    // first, and returns the number of rows. Rows come from a database cursor and are written as
+    // they arrive, so memory use stays flat however long the history is. `out` is left open.
+    @Transactional
+    public long exportDoctorAppointments(AuthPrincipal doctor, OutputStream out) throws IOException {
+        return NdjsonWriter.write(objectMapper, AppointmentDTO.class,
+                appointmentRepository.streamByDoctorId(doctor.getId()), out);
+    }
 }
@@ -0,0 +1,338 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.TimeSlot;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * In-memory index of booked slots per doctor and day.
+ *
+ * Each doctor's {@code availableTimes} are parsed once into a slot template, and each
+ * (doctor, date) that has been asked about gets a bitmap with one bit per template slot
+ * that is set when the slot is booked. Availability and booking checks are then bit
+ * tests over the template instead of string formatting and re-parsing.
+ *
+ * The booking, update and cancel paths keep the bitmaps current. A day is reloaded from
+ * the appointment table once it is older than {@code availability.index.ttl-seconds},
+ * which bounds staleness when other nodes write to the same database.
+ */
+@Component
+public class AvailabilityIndex {
+
+    // A doctor's availableTimes with their start minutes, in the order they are stored.
+    static final class SlotTemplate {
+        final String[] labels;
+        final int[] startMinutes;
+
+        SlotTemplate(Doctor doctor) {
+            int[] table = doctor.getSlotTable();
+            labels = new String[table.length];
+            startMinutes = new int[table.length];
+            for (int i = 0; i < table.length; i++) {
+                labels[i] = doctor.getAvailableTimes().get(i);
+                startMinutes[i] = table[i] == TimeSlot.INVALID ? -1 : TimeSlot.start(table[i]);
+            }
+        }
+    }
+
+    // Booked slots of one doctor on one day, one bit per template slot.
+    static final class DayBitmap {
+        final SlotTemplate template;
+        final long loadedAt;
+        private final long[] words;
+
+        DayBitmap(SlotTemplate template) {
+            this.template = template;
+            this.loadedAt = System.currentTimeMillis();
+            this.words = new long[(template.startMinutes.length + 63) >>> 6];
+        }
+
+        synchronized void set(int minuteOfDay, boolean booked) {
+            int[] starts = template.startMinutes;
+            for (int i = 0; i < starts.length; i++) {
+                if (starts[i] == minuteOfDay) {
+                    if (booked) {
+                        words[i >>> 6] |= 1L << i;
+                    } else {
+                        words[i >>> 6] &= ~(1L << i);
+                    }
+                }
+            }
+        }
+
+        // Index of the first free slot starting at the given minute, or -1
+        synchronized int freeSlotAt(int minuteOfDay) {
+            int[] starts = template.startMinutes;
+            for (int i = 0; i < starts.length; i++) {
+                if (starts[i] == minuteOfDay && (words[i >>> 6] & (1L << i)) == 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        synchronized List<String> freeLabels(Set<Integer> excludedMinutes) {
+            List<String> free = new ArrayList<>(template.labels.length);
+            for (int i = 0; i < template.labels.length; i++) {
+                if ((words[i >>> 6] & (1L << i)) == 0 && !excludedMinutes.contains(template.startMinutes[i])) {
+                    free.add(template.labels[i]);
+                }
+            }
+            return free;
+        }
+    }
+
+    record DayKey(Long doctorId, LocalDate date) {
+    }
+
+    private final DoctorRepository doctorRepository;
+    private final AppointmentRepository appointmentRepository;
+
+    private final Map<Long, SlotTemplate> templates = new ConcurrentHashMap<>();
+    private final Map<DayKey, DayBitmap> days = new ConcurrentHashMap<>();
+    // Bumped on every change, so responses built from the index can be versioned
+    private final AtomicLong version = new AtomicLong();
+    // The version of the last booking change per day, indexed or not, so a batch load that
+    // raced with it can tell its bitmap is stale
+    private final Map<DayKey, Long> changedAt = new ConcurrentHashMap<>();
+
+    @Value("${availability.index.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    public AvailabilityIndex(DoctorRepository doctorRepository, AppointmentRepository appointmentRepository) {
+        this.doctorRepository = doctorRepository;
+        this.appointmentRepository = appointmentRepository;
+    }
+
+    // Free slot labels for the doctor on the date, or null if the doctor does not exist.
+    public List<String> freeSlots(Long doctorId, LocalDate date) {
+        return freeSlots(doctorId, date, Collections.emptySet());
+    }
+
+    // As above, leaving out slots that start at one of the given minutes of the day (e.g. held slots).
+    public List<String> freeSlots(Long doctorId, LocalDate date, Set<Integer> excludedMinutes) {
+        DayBitmap day = day(doctorId, date);
+        return day == null ? null : day.freeLabels(excludedMinutes);
+    }
+
+    // Free slot labels for several doctors on every date from..to (inclusive), keyed by doctor
+    // id and ISO date. Whatever is not indexed yet is loaded with one doctor query and one
+    // grouped appointment query rather than one pair per doctor and day. Unknown doctors
+    // are left out. excludedMinutes gives the start minutes to leave out per doctor and date.
+    public Map<Long, Map<String, List<String>>> freeSlots(Collection<Long> doctorIds, LocalDate from, LocalDate to,
+            BiFunction<Long, LocalDate, Set<Integer>> excludedMinutes) {
+        long batchStart = System.currentTimeMillis();
+        long batchVersion = version.get();
+
+        List<Long> unknown = new ArrayList<>();
+        for (Long doctorId : doctorIds) {
+            if (!templates.containsKey(doctorId)) {
+                unknown.add(doctorId);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            for (Doctor doctor : doctorRepository.findWithAvailableTimesByIdIn(unknown)) {
+                templates.put(doctor.getId(), new SlotTemplate(doctor));
+            }
+        }
+
+        // Days that are missing or stale, grouped by doctor
+        Map<Long, List<LocalDate>> toLoad = new HashMap<>();
+        for (Long doctorId : doctorIds) {
+            if (!templates.containsKey(doctorId)) {
+                continue;
+            }
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                DayBitmap day = days.get(new DayKey(doctorId, date));
+                if (day == null || batchStart - day.loadedAt >= ttlSeconds * 1000) {
+                    toLoad.computeIfAbsent(doctorId, id -> new ArrayList<>()).add(date);
+                }
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            Map<DayKey, DayBitmap> loaded = new HashMap<>();
+            for (Map.Entry<Long, List<LocalDate>> e : toLoad.entrySet()) {
+                SlotTemplate template = templates.get(e.getKey());
+                for (LocalDate date : e.getValue()) {
+                    loaded.put(new DayKey(e.getKey(), date), new DayBitmap(template));
+                }
+            }
+            List<Object[]> booked = appointmentRepository.findDoctorSlotsByDoctorIdInAndAppointmentTimeBetween(
+                    toLoad.keySet(), from.atStartOfDay(), to.atTime(LocalTime.MAX));
+            for (Object[] row : booked) {
+                LocalDateTime time = (LocalDateTime) row[1];
+                DayBitmap day = loaded.get(new DayKey((Long) row[0], time.toLocalDate()));
+                if (day != null) {
+                    day.set(minuteOfDay(time), true);
+                }
+            }
+            // A bitmap loaded since this batch started is newer than ours, so keep it. A day booked
+            // or freed since then may be missing that change, as may the bitmap it was applied to,
+            // so drop both; the next lookup loads the day on its own.
+            for (Map.Entry<DayKey, DayBitmap> e : loaded.entrySet()) {
+                days.compute(e.getKey(), (key, existing) -> {
+                    if (changedAt.getOrDefault(key, 0L) > batchVersion) {
+                        return existing != null && existing.loadedAt >= batchStart ? existing : null;
+                    }
+                    return existing != null && existing.loadedAt >= batchStart ? existing : e.getValue();
+                });
+            }
+        }
+
+        Map<Long, Map<String, List<String>>> result = new LinkedHashMap<>();
+        for (Long doctorId : doctorIds) {
+            SlotTemplate template = templates.get(doctorId);
+            if (template == null) {
+                continue;
+            }
+            Map<String, List<String>> byDate = new LinkedHashMap<>();
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                DayBitmap day = days.get(new DayKey(doctorId, date));
+                if (day == null) {
+                    // Purged or evicted in the meantime; fall back to a single-day load.
+                    day = day(doctorId, date);
+                }
+                if (day != null) {
+                    byDate.put(date.toString(), day.freeLabels(excludedMinutes.apply(doctorId, date)));
+                }
+            }
+            result.put(doctorId, byDate);
+        }
+        return result;
+    }
+
+    // 1: a free slot starts at the given time, 0: no free slot there, -1: unknown doctor
+    public int checkSlot(Long doctorId, LocalDateTime appointmentTime) {
+        DayBitmap day = day(doctorId, appointmentTime.toLocalDate());
+        if (day == null) {
+            return -1;
+        }
+        return day.freeSlotAt(minuteOfDay(appointmentTime)) >= 0 ? 1 : 0;
+    }
+
+    // Call once an appointment at this time has been committed.
+    public void markBooked(Long doctorId, LocalDateTime appointmentTime) {
+        update(doctorId, appointmentTime, true);
+    }
+
+    // Call once an appointment at this time has been deleted or moved away.
+    public void markFree(Long doctorId, LocalDateTime appointmentTime) {
+        update(doctorId, appointmentTime, false);
+    }
+
+    // Drops everything cached for the doctor, e.g. after their availableTimes changed.
+    public void evictDoctor(Long doctorId) {
+        templates.remove(doctorId);
+        days.keySet().removeIf(key -> key.doctorId().equals(doctorId));
+        changedAt.keySet().removeIf(key -> key.doctorId().equals(doctorId));
+        version.incrementAndGet();
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    // Runs the update after the surrounding transaction commits, or right away if there
+    // is none, so the index never shows a change that could still roll back.
+    public void afterCommit(Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    @Scheduled(cron = "${availability.index.purge-cron:0 5 0 * * *}")
+    public void purgePastDays() {
+        LocalDate today = LocalDate.now();
+        days.keySet().removeIf(key -> key.date().isBefore(today));
+        changedAt.keySet().removeIf(key -> key.date().isBefore(today));
+    }
+
+    private void update(Long doctorId, LocalDateTime appointmentTime, boolean booked) {
+        if (doctorId == null || appointmentTime == null) {
+            return;
+        }
+        DayKey dayKey = new DayKey(doctorId, appointmentTime.toLocalDate());
+        changedAt.put(dayKey, version.incrementAndGet());
+        // Only days that are already indexed need updating; others load fresh from the DB.
+        days.computeIfPresent(dayKey, (key, day) -> {
+            day.set(minuteOfDay(appointmentTime), booked);
+            return day;
+        });
+    }
+
+    private DayBitmap day(Long doctorId, LocalDate date) {
+        DayKey key = new DayKey(doctorId, date);
+        DayBitmap day = days.get(key);
+        if (day != null && System.currentTimeMillis() - day.loadedAt < ttlSeconds * 1000) {
+            return day;
+        }
+        SlotTemplate template = template(doctorId);
+        if (template == null) {
+            return null;
+        }
+        // Loading under the map's lock means a markBooked for the same day waits for the
+        // load instead of being applied to a bitmap that is about to be replaced.
+        return days.compute(key, (k, existing) -> {
+            if (existing != null && existing != day) {
+                return existing;
+            }
+            return load(doctorId, date, template);
+        });
+    }
+
+    private SlotTemplate template(Long doctorId) {
+        SlotTemplate template = templates.get(doctorId);
+        if (template != null) {
+            return template;
+        }
+        Doctor doctor = doctorRepository.findWithAvailableTimesById(doctorId).orElse(null);
+        if (doctor == null) {
+            return null;
+        }
+        template = new SlotTemplate(doctor);
+        templates.put(doctorId, template);
+        return template;
+    }
+
+    private DayBitmap load(Long doctorId, LocalDate date, SlotTemplate template) {
+        DayBitmap day = new DayBitmap(template);
+        List<LocalDateTime> booked = appointmentRepository.findAppointmentTimesByDoctorIdAndAppointmentTimeBetween(
+                doctorId, date.atStartOfDay(), date.atTime(LocalTime.MAX));
+        for (LocalDateTime time : booked) {
+            day.set(minuteOfDay(time), true);
+        }
+        return day;
+    }
+
+    static int minuteOfDay(LocalDateTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+}
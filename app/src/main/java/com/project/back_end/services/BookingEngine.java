@@ -0,0 +1,200 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Appointment;
+import com.project.back_end.repo.AppointmentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Books appointments so that two requests can never take the same doctor slot.
+ *
+ * Within a node, the availability check and the insert for a (doctor, slot start) run
+ * under one of a fixed set of striped locks, so only bookings that hash to the same stripe
+ * wait on each other and everything else proceeds in parallel. Across nodes, the unique
+ * (doctor_id, appointment_time) constraint on Appointment rejects the loser of a race, which
+ * is reported as a taken slot rather than an error; any other integrity violation fails the
+ * booking and leaves the slot alone.
+ */
+@Component
+public class BookingEngine {
+
+    public static final int BOOKED = 1;
+    public static final int SLOT_TAKEN = 0;
+    public static final int INVALID_DOCTOR = -1;
+    public static final int FAILED = -2;
+
+    // The (doctor_id, appointment_time) unique constraint on Appointment
+    private static final String SLOT_CONSTRAINT = "uk_appointment_doctor_time";
+
+    private final AppointmentRepository appointmentRepository;
+    private final AvailabilityIndex availabilityIndex;
+    private final SlotHolds slotHolds;
+    private final ReentrantLock[] stripes;
+
+    public BookingEngine(AppointmentRepository appointmentRepository, AvailabilityIndex availabilityIndex,
+            SlotHolds slotHolds, @Value("${booking.lock-stripes:1024}") int stripeCount) {
+        this.appointmentRepository = appointmentRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.slotHolds = slotHolds;
+        // Round up to a power of two so the stripe is picked with a mask.
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // Books the appointment if its slot is free; returns one of the constants above.
+    public int book(Appointment appointment) {
+        Long doctorId = appointment.getDoctorId();
+        LocalDateTime time = appointment.getAppointmentTime();
+        if (doctorId == null || time == null) {
+            return INVALID_DOCTOR;
+        }
+        ReentrantLock lock = stripeFor(doctorId, time);
+        lock.lock();
+        try {
+            int check = availabilityIndex.checkSlot(doctorId, time);
+            if (check != 1) {
+                return check == -1 ? INVALID_DOCTOR : SLOT_TAKEN;
+            }
+            if (slotHolds.isHeldByOther(doctorId, time, appointment.getPatientId())) {
+                return SLOT_TAKEN;
+            }
+            // Flush inside the lock so a constraint violation from another node surfaces here.
+            appointmentRepository.saveAndFlush(appointment);
+            SlotHolds.Hold ownHold = slotHolds.holdOn(doctorId, time);
+            if (ownHold != null) {
+                slotHolds.release(ownHold);
+            }
+            availabilityIndex.markBooked(doctorId, time);
+            return BOOKED;
+        } catch (DataIntegrityViolationException e) {
+            if (!isSlotClash(e)) {
+                System.out.println("Error: " + e);
+                return FAILED;
+            }
+            // Another node booked the slot first; make sure this node's index knows it.
+            availabilityIndex.markBooked(doctorId, time);
+            return SLOT_TAKEN;
+        } catch (Exception e) {
+            System.out.println("Error: " + e);
+            return FAILED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reserves the slot for the patient for booking.hold.seconds. Returns the hold, or
+    // null if the slot is not free, is held by someone else, or the patient holds too many.
+    public SlotHolds.Hold hold(Long doctorId, LocalDateTime time, Long patientId) {
+        if (doctorId == null || time == null) {
+            return null;
+        }
+        ReentrantLock lock = stripeFor(doctorId, time);
+        lock.lock();
+        try {
+            if (availabilityIndex.checkSlot(doctorId, time) != 1 || slotHolds.isHeldByOther(doctorId, time, patientId)) {
+                return null;
+            }
+            return slotHolds.place(doctorId, time, patientId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Books a held slot. The hold already guarantees the slot was free and nobody else
+    // could book it since, so the availability check is skipped; the unique constraint
+    // still guards against a booking made on another node.
+    public int confirm(Appointment appointment, SlotHolds.Hold hold) {
+        ReentrantLock lock = stripeFor(hold.getDoctorId(), hold.getAppointmentTime());
+        lock.lock();
+        try {
+            if (slotHolds.get(hold.getId(), hold.getPatientId()) == null) {
+                // Expired while waiting for the lock; fall back to a normal booking.
+                return book(appointment);
+            }
+            appointmentRepository.saveAndFlush(appointment);
+            slotHolds.release(hold);
+            availabilityIndex.markBooked(hold.getDoctorId(), hold.getAppointmentTime());
+            return BOOKED;
+        } catch (DataIntegrityViolationException e) {
+            if (!isSlotClash(e)) {
+                System.out.println("Error: " + e);
+                return FAILED;
+            }
+            slotHolds.release(hold);
+            availabilityIndex.markBooked(hold.getDoctorId(), hold.getAppointmentTime());
+            return SLOT_TAKEN;
+        } catch (Exception e) {
+            System.out.println("Error: " + e);
+            return FAILED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Moves an existing appointment to the slot it now carries, freeing its previous one.
+    public int reschedule(Appointment appointment, Long previousDoctorId, LocalDateTime previousTime) {
+        Long doctorId = appointment.getDoctorId();
+        LocalDateTime time = appointment.getAppointmentTime();
+        if (doctorId == null || time == null) {
+            return INVALID_DOCTOR;
+        }
+        ReentrantLock lock = stripeFor(doctorId, time);
+        lock.lock();
+        try {
+            int check = availabilityIndex.checkSlot(doctorId, time);
+            if (check != 1) {
+                return check == -1 ? INVALID_DOCTOR : SLOT_TAKEN;
+            }
+            if (slotHolds.isHeldByOther(doctorId, time, appointment.getPatientId())) {
+                return SLOT_TAKEN;
+            }
+            appointmentRepository.saveAndFlush(appointment);
+            // A caller's transaction may still roll the move back
+            availabilityIndex.afterCommit(() -> {
+                availabilityIndex.markFree(previousDoctorId, previousTime);
+                availabilityIndex.markBooked(doctorId, time);
+            });
+            return BOOKED;
+        } catch (DataIntegrityViolationException e) {
+            if (!isSlotClash(e)) {
+                System.out.println("Error: " + e);
+                return FAILED;
+            }
+            availabilityIndex.markBooked(doctorId, time);
+            return SLOT_TAKEN;
+        } catch (Exception e) {
+            System.out.println("Error: " + e);
+            return FAILED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // True if the violation is the unique slot constraint. Other violations (a missing doctor
+    // or patient, a bad column) say nothing about the slot and must not mark it booked.
+    static boolean isSlotClash(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            String message = cause.getMessage();
+            if (message != null && message.toLowerCase(Locale.ROOT).contains(SLOT_CONSTRAINT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ReentrantLock stripeFor(Long doctorId, LocalDateTime slotStart) {
+        long h = doctorId * 0x9E3779B97F4A7C15L + slotStart.toEpochSecond(ZoneOffset.UTC);
+        h ^= (h >>> 32);
+        h ^= (h >>> 16);
+        return stripes[(int) h & (stripes.length - 1)];
+    }
+}
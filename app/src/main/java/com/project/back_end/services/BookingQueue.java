@@ -0,0 +1,278 @@
+package com.project.back_end.services;
+
+import com.project.back_end.cache.BoundedCache;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.repo.AppointmentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Optional queued booking mode ({@code booking.queue.enabled}).
+ *
+ * Requests are routed by doctor id to one of a fixed number of partitions, each drained
+ * by a single writer thread. The writer validates a batch against the availability index,
+ * settles slot clashes inside the batch in arrival order, and inserts what is left in one
+ * transaction. The request thread only enqueues and returns a ticket, which the client
+ * polls or waits on.
+ *
+ * If the batch insert fails for any reason (most often the unique slot constraint, when a
+ * synchronous booking or another node got there first), the batch is replayed one by one
+ * through {@link BookingEngine}, so one bad row cannot fail the bookings around it. On
+ * shutdown new bookings are refused and those still queued fail.
+ */
+@Component
+public class BookingQueue {
+
+    // A queued booking and its outcome, one of the BookingEngine result codes.
+    public static final class Ticket {
+        private final String id;
+        private final Long patientId;
+        private final CompletableFuture<Integer> result = new CompletableFuture<>();
+        private volatile Appointment appointment;
+
+        Ticket(String id, Long patientId, Appointment appointment) {
+            this.id = id;
+            this.patientId = patientId;
+            this.appointment = appointment;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public CompletableFuture<Integer> getResult() {
+            return result;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("ticket", id);
+            Integer code = result.getNow(null);
+            map.put("status", code == null ? "PENDING" : statusName(code));
+            Appointment booked = appointment;
+            if (code != null && code == BookingEngine.BOOKED && booked != null) {
+                map.put("appointmentId", booked.getId());
+            }
+            return map;
+        }
+
+        private void complete(int code) {
+            if (code != BookingEngine.BOOKED) {
+                appointment = null;
+            }
+            result.complete(code);
+        }
+    }
+
+    private static final class Partition {
+        final BlockingQueue<Ticket> queue;
+        final Thread writer;
+
+        Partition(BlockingQueue<Ticket> queue, Thread writer) {
+            this.queue = queue;
+            this.writer = writer;
+        }
+    }
+
+    private final AppointmentRepository appointmentRepository;
+    private final AvailabilityIndex availabilityIndex;
+    private final BookingEngine bookingEngine;
+    private final SlotHolds slotHolds;
+    private final DoctorRollups doctorRollups;
+    private final AppointmentAnalytics appointmentAnalytics;
+
+    @Value("${booking.queue.enabled:false}")
+    private boolean enabled;
+
+    @Value("${booking.queue.partitions:8}")
+    private int partitionCount;
+
+    @Value("${booking.queue.capacity:1000}")
+    private int capacity;
+
+    @Value("${booking.queue.batch-size:32}")
+    private int batchSize;
+
+    // How long a finished ticket can still be polled
+    @Value("${booking.queue.ticket-ttl-seconds:600}")
+    private long ticketTtlSeconds;
+
+    private Partition[] partitions;
+    private BoundedCache<String, Ticket> tickets;
+    private volatile boolean running;
+
+    public BookingQueue(AppointmentRepository appointmentRepository, AvailabilityIndex availabilityIndex,
+            BookingEngine bookingEngine, SlotHolds slotHolds, DoctorRollups doctorRollups,
+            AppointmentAnalytics appointmentAnalytics) {
+        this.appointmentRepository = appointmentRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.bookingEngine = bookingEngine;
+        this.slotHolds = slotHolds;
+        this.doctorRollups = doctorRollups;
+        this.appointmentAnalytics = appointmentAnalytics;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        tickets = new BoundedCache<>("bookingTickets", partitionCount * capacity * 4);
+        partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            BlockingQueue<Ticket> queue = new ArrayBlockingQueue<>(capacity);
+            Thread writer = new Thread(() -> drain(queue), "booking-writer-" + i);
+            writer.setDaemon(true);
+            partitions[i] = new Partition(queue, writer);
+            writer.start();
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (partitions != null) {
+            for (Partition partition : partitions) {
+                partition.writer.interrupt();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Queues the booking and returns its ticket, or null if queued booking is off, shutting
+    // down, or the doctor's partition is full.
+    public Ticket submit(Appointment appointment, Long patientId) {
+        if (!enabled || !running || appointment.getDoctorId() == null || appointment.getAppointmentTime() == null) {
+            return null;
+        }
+        Ticket ticket = new Ticket(UUID.randomUUID().toString(), patientId, appointment);
+        Partition partition = partitions[(int) Math.floorMod(appointment.getDoctorId(), (long) partitionCount)];
+        if (!partition.queue.offer(ticket)) {
+            return null;
+        }
+        if (!running && partition.queue.remove(ticket)) {
+            // Stopped after the check above; the writer may already have left
+            return null;
+        }
+        tickets.put(ticket.id, ticket, System.currentTimeMillis() + ticketTtlSeconds * 1000);
+        return ticket;
+    }
+
+    // The patient's ticket with this id, or null if unknown, expired or someone else's.
+    public Ticket ticket(String id, Long patientId) {
+        if (!enabled) {
+            return null;
+        }
+        Ticket ticket = tickets.get(id);
+        return ticket != null && ticket.patientId.equals(patientId) ? ticket : null;
+    }
+
+    private void drain(BlockingQueue<Ticket> queue) {
+        List<Ticket> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            try {
+                commit(batch);
+            } catch (Exception e) {
+                System.err.println("Error committing booking batch: " + e.getMessage());
+                for (Ticket ticket : batch) {
+                    ticket.complete(BookingEngine.FAILED);
+                }
+            }
+            batch.clear();
+        }
+        // Shutting down: nothing will commit what is still queued
+        List<Ticket> left = new ArrayList<>();
+        queue.drainTo(left);
+        for (Ticket ticket : left) {
+            ticket.complete(BookingEngine.FAILED);
+        }
+    }
+
+    void commit(List<Ticket> batch) {
+        List<Ticket> accepted = new ArrayList<>(batch.size());
+        Set<String> claimed = new HashSet<>();
+        for (Ticket ticket : batch) {
+            Appointment appointment = ticket.appointment;
+            int check = availabilityIndex.checkSlot(appointment.getDoctorId(), appointment.getAppointmentTime());
+            if (check == -1) {
+                ticket.complete(BookingEngine.INVALID_DOCTOR);
+            } else if (check == 0
+                    || slotHolds.isHeldByOther(appointment.getDoctorId(), appointment.getAppointmentTime(), ticket.patientId)
+                    || !claimed.add(appointment.getDoctorId() + "@" + appointment.getAppointmentTime())) {
+                ticket.complete(BookingEngine.SLOT_TAKEN);
+            } else {
+                accepted.add(ticket);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        List<Appointment> rows = new ArrayList<>(accepted.size());
+        for (Ticket ticket : accepted) {
+            rows.add(ticket.appointment);
+        }
+        try {
+            appointmentRepository.saveAllAndFlush(rows);
+        } catch (RuntimeException e) {
+            // Usually someone outside this partition took one of the slots, but any bad row
+            // rolls back the whole batch; settle each booking on its own.
+            for (Ticket ticket : accepted) {
+                ticket.appointment.setId(null);
+                int out = bookingEngine.book(ticket.appointment);
+                if (out == BookingEngine.BOOKED) {
+                    countBooking(ticket.appointment);
+                }
+                ticket.complete(out);
+            }
+            return;
+        }
+        for (Ticket ticket : accepted) {
+            availabilityIndex.markBooked(ticket.appointment.getDoctorId(), ticket.appointment.getAppointmentTime());
+            countBooking(ticket.appointment);
+            ticket.complete(BookingEngine.BOOKED);
+        }
+    }
+
+    private void countBooking(Appointment appointment) {
+        doctorRollups.booked(appointment.getDoctorId(), appointment.getAppointmentTime(), appointment.getStatus());
+        appointmentAnalytics.booked(appointment.getId(), appointment.getDoctorId(), appointment.getPatientId(),
+                appointment.getAppointmentTime());
+    }
+
+    static String statusName(int code) {
+        switch (code) {
+            case BookingEngine.BOOKED:
+                return "BOOKED";
+            case BookingEngine.SLOT_TAKEN:
+                return "SLOT_TAKEN";
+            case BookingEngine.INVALID_DOCTOR:
+                return "INVALID_DOCTOR";
+            default:
+                return "FAILED";
+        }
+    }
+}
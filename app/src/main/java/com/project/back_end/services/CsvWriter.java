@@ -0,0 +1,61 @@
+package com.project.back_end.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Writes a stream of rows as RFC 4180 CSV (UTF-8, CRLF line ends) under a header line, as the rows arrive.
+// Text cells that a spreadsheet would read as a formula get a leading ' so they open as plain text.
+final class CsvWriter {
+
+    private CsvWriter() {
+    }
+
+    // Consumes and closes `rows` and returns how many were written. `out` is flushed but left open.
+    static <T> long write(String[] header, Stream<T> rows, Function<T, Object[]> columns, OutputStream out) throws IOException {
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try (rows) {
+            writeLine(writer, header);
+            for (T row : (Iterable<T>) rows::iterator) {
+                writeLine(writer, columns.apply(row));
+                count++;
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static void writeLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i] == null ? "" : values[i].toString();
+            if (!(values[i] instanceof Number) && isFormula(value)) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private static boolean isFormula(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        char first = value.charAt(0);
+        return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+    }
+}
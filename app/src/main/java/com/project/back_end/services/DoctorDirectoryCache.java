@@ -0,0 +1,163 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.cache.BoundedCache;
+import com.project.back_end.models.Doctor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of the public doctor listings, kept as serialized JSON.
+ *
+ * One entry holds the full directory and one entry each filter combination (name,
+ * specialty, AM/PM, page) that has been asked for. A hit returns the stored bytes without
+ * touching the database or Jackson. DoctorService reports every doctor write, and only
+ * the entries that listed the doctor or whose filter the doctor matches before or after
+ * the write are dropped. Entries also expire after {@code doctor.directory.ttl-seconds},
+ * which bounds staleness when another node changes doctors.
+ */
+@Component
+public class DoctorDirectoryCache {
+
+    // A cached listing, with what is needed to decide whether a write affects it.
+    private static final class Listing {
+        final byte[] json;
+        final Set<Long> doctorIds;
+        final String name;
+        final String specialty;
+        final Boolean isAm;
+
+        Listing(byte[] json, Set<Long> doctorIds, String name, String specialty, Boolean isAm) {
+            this.json = json;
+            this.doctorIds = doctorIds;
+            this.name = name;
+            this.specialty = specialty;
+            this.isAm = isAm;
+        }
+
+        // True if the doctor belongs in this listing's filter (so a write can move it in or out).
+        boolean matches(Doctor doctor) {
+            if (name != null && (doctor.getName() == null || !doctor.getName().toLowerCase(Locale.ROOT).contains(name))) {
+                return false;
+            }
+            if (specialty != null && (doctor.getSpecialty() == null || !doctor.getSpecialty().toLowerCase(Locale.ROOT).equals(specialty))) {
+                return false;
+            }
+            return isAm == null || doctor.hasSlotInHalfDay(isAm);
+        }
+    }
+
+    private static final String ALL = "all";
+
+    private final ObjectMapper objectMapper;
+    private final BoundedCache<String, Listing> listings;
+    private final long ttlMillis;
+
+    // Bumped by every write; a load that overlaps a write is returned but not cached.
+    private final AtomicLong writes = new AtomicLong();
+
+    public DoctorDirectoryCache(ObjectMapper objectMapper,
+            @Value("${doctor.directory.max-entries:500}") int maxEntries,
+            @Value("${doctor.directory.ttl-seconds:300}") long ttlSeconds) {
+        this.objectMapper = objectMapper;
+        this.listings = new BoundedCache<>("doctorDirectory", maxEntries);
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    // {"doctors": [...]} for every doctor.
+    public byte[] all(Supplier<List<Doctor>> loader) {
+        Listing cached = listings.get(ALL);
+        if (cached != null) {
+            return cached.json;
+        }
+        long seen = writes.get();
+        List<Doctor> doctors = loader.get();
+        Listing listing = new Listing(serialize(Map.of("doctors", doctors)), idsOf(doctors), null, null, null);
+        store(ALL, listing, seen);
+        return listing.json;
+    }
+
+    // The filter result from `loader` (a map holding "doctors"); null criteria are unset.
+    @SuppressWarnings("unchecked")
+    public byte[] filtered(String name, String specialty, String amOrPm, Integer page, int size,
+            Supplier<Map<String, Object>> loader) {
+        String lowerName = name == null ? null : name.toLowerCase(Locale.ROOT);
+        String lowerSpecialty = specialty == null ? null : specialty.toLowerCase(Locale.ROOT);
+        Boolean isAm = amOrPm == null ? null : amOrPm.equalsIgnoreCase("am");
+        String key = "filter|" + lowerName + "|" + lowerSpecialty + "|" + isAm + "|" + (page == null ? "" : page + "x" + size);
+        Listing cached = listings.get(key);
+        if (cached != null) {
+            return cached.json;
+        }
+        long seen = writes.get();
+        Map<String, Object> result = loader.get();
+        Listing listing = new Listing(serialize(result), idsOf((List<Doctor>) result.get("doctors")),
+                lowerName, lowerSpecialty, isAm);
+        store(key, listing, seen);
+        return listing.json;
+    }
+
+    public void doctorSaved(Doctor doctor) {
+        writes.incrementAndGet();
+        listings.invalidateIf((key, listing) -> listing.matches(doctor));
+    }
+
+    // `before` is the stored state the update replaced.
+    public void doctorUpdated(Doctor before, Doctor after) {
+        writes.incrementAndGet();
+        listings.invalidateIf((key, listing) -> listing.doctorIds.contains(after.getId())
+                || listing.matches(before) || listing.matches(after));
+    }
+
+    public void doctorDeleted(Doctor doctor) {
+        writes.incrementAndGet();
+        // Matching the filter covers later pages, which shift up by one.
+        listings.invalidateIf((key, listing) -> listing.doctorIds.contains(doctor.getId()) || listing.matches(doctor));
+    }
+
+    // Number of doctor writes seen by this node.
+    public long version() {
+        return writes.get();
+    }
+
+    public Map<String, Object> stats() {
+        return listings.stats();
+    }
+
+    private void store(String key, Listing listing, long seen) {
+        // Checked after the put as well, so a write racing the put cannot leave it behind.
+        if (writes.get() == seen) {
+            listings.put(key, listing, System.currentTimeMillis() + ttlMillis);
+            if (writes.get() != seen) {
+                listings.invalidate(key);
+            }
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize doctor listing", e);
+        }
+    }
+
+    private static Set<Long> idsOf(List<Doctor> doctors) {
+        Set<Long> ids = new HashSet<>();
+        if (doctors != null) {
+            for (Doctor doctor : doctors) {
+                ids.add(doctor.getId());
+            }
+        }
+        return ids;
+    }
+}
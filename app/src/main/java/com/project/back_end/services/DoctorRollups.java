@@ -0,0 +1,238 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.DoctorDailyCount;
+import com.project.back_end.models.RollupRebuild;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorDailyCountRepository;
+import com.project.back_end.repo.RollupRebuildRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-doctor, per-day appointment counts, maintained incrementally.
+ *
+ * Booking, cancelling, moving and completing an appointment add a delta to an in-memory
+ * counter for its (doctor, day) once it has committed; a scheduled flush adds the pending
+ * deltas to the doctor_daily_count table, so the booking path never waits on the rollup.
+ * Flushes only add, so several nodes can flush into the same table. A nightly rebuild
+ * recomputes the table from the appointments a month at a time, which repairs drift from
+ * writes that bypass the application or deltas lost in a crash.
+ *
+ * Pending changes remember when they were recorded. Before a month is recomputed the rebuild
+ * commits a rollup_rebuild marker with the current time; the scan that follows counts every
+ * appointment committed before it, so every node's flush drops the changes to that month it
+ * recorded before the marker and keeps the later ones. That holds across nodes as long as
+ * their clocks agree (NTP). A change can still be counted twice if it is recorded between
+ * the marker and the scan's snapshot, or if a flush that read the markers just before the
+ * marker committed writes after the month is rewritten; the next rebuild repairs either.
+ * When two nodes rebuild the same month at once, the one that loses the insert race skips
+ * the month, as the other node's rows are just as current; its later marker can hide changes
+ * recorded between the two, again until the next rebuild.
+ */
+@Component
+public class DoctorRollups {
+
+    // One change to a (doctor, day) row not yet written, and when it was recorded
+    private record Change(LocalDateTime recordedAt, long booked, long completed) {
+    }
+
+    private final DoctorDailyCountRepository dailyCounts;
+    private final AppointmentRepository appointmentRepository;
+    private final RollupRebuildRepository rollupRebuilds;
+    private final TransactionTemplate transactionTemplate;
+    // Lists are only touched inside ConcurrentHashMap.compute, or after being removed
+    private final ConcurrentHashMap<AvailabilityIndex.DayKey, List<Change>> pending = new ConcurrentHashMap<>();
+    // Held by flush and rebuild, which both write the table
+    private final ReentrantLock writing = new ReentrantLock();
+
+    public DoctorRollups(DoctorDailyCountRepository dailyCounts, AppointmentRepository appointmentRepository,
+            RollupRebuildRepository rollupRebuilds, PlatformTransactionManager transactionManager) {
+        this.dailyCounts = dailyCounts;
+        this.appointmentRepository = appointmentRepository;
+        this.rollupRebuilds = rollupRebuilds;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Call once an appointment has been committed.
+    public void booked(Long doctorId, LocalDateTime appointmentTime, int status) {
+        add(doctorId, appointmentTime, 1, status == 1 ? 1 : 0);
+    }
+
+    // Call once an appointment has been deleted.
+    public void cancelled(Long doctorId, LocalDateTime appointmentTime, int status) {
+        add(doctorId, appointmentTime, -1, status == 1 ? -1 : 0);
+    }
+
+    // Call once an appointment's status has changed.
+    public void statusChanged(Long doctorId, LocalDateTime appointmentTime, int from, int to) {
+        int completed = (to == 1 ? 1 : 0) - (from == 1 ? 1 : 0);
+        if (completed != 0) {
+            add(doctorId, appointmentTime, 0, completed);
+        }
+    }
+
+    // Drops the doctor's rows and pending deltas, after their appointments were deleted.
+    public void doctorDeleted(Long doctorId) {
+        pending.keySet().removeIf(key -> key.doctorId().equals(doctorId));
+        dailyCounts.deleteByDoctorId(doctorId);
+    }
+
+    // Writes every pending delta; deltas that fail to write are kept for the next flush.
+    @Scheduled(fixedDelayString = "${rollup.flush-ms:5000}")
+    @PreDestroy
+    public void flush() {
+        writing.lock();
+        try {
+            writePending();
+        } finally {
+            writing.unlock();
+        }
+    }
+
+    // Like flush, but returns at once if a flush or rebuild is already running, so report
+    // reads do not wait behind a rebuild; they then miss at most the last few seconds of deltas.
+    public void flushIfIdle() {
+        if (writing.tryLock()) {
+            try {
+                writePending();
+            } finally {
+                writing.unlock();
+            }
+        }
+    }
+
+    // Fills the table on first start; later starts keep the existing rows.
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (dailyCounts.count() == 0) {
+            rebuild();
+        }
+    }
+
+    // Recomputes the table from the appointment table, one calendar month per transaction.
+    @Scheduled(cron = "${rollup.rebuild-cron:0 30 2 * * *}")
+    public void rebuild() {
+        writing.lock();
+        try {
+            writePending();
+            LocalDateTime earliest = appointmentRepository.findEarliestAppointmentTime();
+            LocalDateTime latest = appointmentRepository.findLatestAppointmentTime();
+            if (earliest == null) {
+                transactionTemplate.executeWithoutResult(status -> dailyCounts.deleteAllInBatch());
+                return;
+            }
+            LocalDate start = earliest.toLocalDate().withDayOfMonth(1);
+            LocalDate end = latest.toLocalDate().plusDays(1);
+            dailyCounts.deleteDaysOutside(start, end);
+            for (LocalDate month = start; month.isBefore(end); month = month.plusMonths(1)) {
+                rebuildMonth(month, month.plusMonths(1));
+            }
+        } finally {
+            writing.unlock();
+        }
+    }
+
+    private void rebuildMonth(LocalDate from, LocalDate to) {
+        try {
+            // Committed first, so flushes on every node stop writing changes the scan counts
+            rollupRebuilds.save(new RollupRebuild(from, LocalDateTime.now()));
+            transactionTemplate.executeWithoutResult(status -> {
+                dailyCounts.deleteDays(from, to);
+                List<DoctorDailyCount> rows = new ArrayList<>();
+                for (Object[] row : appointmentRepository.countByDoctorAndDay(from.atStartOfDay(), to.atStartOfDay())) {
+                    rows.add(new DoctorDailyCount((Long) row[0], (LocalDate) row[1],
+                            ((Number) row[2]).longValue(), ((Number) row[3]).longValue()));
+                }
+                dailyCounts.saveAllAndFlush(rows);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another node rebuilt the month at the same time and inserted its rows first
+            System.err.println("Skipped rebuilding appointment rollups from " + from + ": " + e.getMessage());
+        }
+    }
+
+    private void writePending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<LocalDate, LocalDateTime> rebuiltAt = new HashMap<>();
+        try {
+            for (RollupRebuild rebuild : rollupRebuilds.findAll()) {
+                rebuiltAt.put(rebuild.getMonth(), rebuild.getRebuiltAt());
+            }
+        } catch (Exception e) {
+            System.err.println("Error flushing appointment rollup: " + e.getMessage());
+            return;
+        }
+        for (AvailabilityIndex.DayKey key : new ArrayList<>(pending.keySet())) {
+            List<Change> changes = pending.remove(key);
+            if (changes == null) {
+                continue;
+            }
+            // Changes recorded before the month's last rebuild were counted by its scan
+            LocalDateTime cutoff = rebuiltAt.get(key.date().withDayOfMonth(1));
+            List<Change> kept = new ArrayList<>();
+            long booked = 0;
+            long completed = 0;
+            for (Change change : changes) {
+                if (cutoff == null || change.recordedAt().isAfter(cutoff)) {
+                    kept.add(change);
+                    booked += change.booked();
+                    completed += change.completed();
+                }
+            }
+            if (booked == 0 && completed == 0) {
+                continue;
+            }
+            try {
+                write(key, booked, completed);
+            } catch (Exception e) {
+                System.err.println("Error flushing appointment rollup: " + e.getMessage());
+                pending.merge(key, kept, (newer, older) -> {
+                    older.addAll(newer);
+                    return older;
+                });
+                return;
+            }
+        }
+    }
+
+    private void add(Long doctorId, LocalDateTime appointmentTime, long booked, long completed) {
+        if (doctorId != null && appointmentTime != null) {
+            Change change = new Change(LocalDateTime.now(), booked, completed);
+            pending.compute(new AvailabilityIndex.DayKey(doctorId, appointmentTime.toLocalDate()), (k, changes) -> {
+                List<Change> list = changes == null ? new ArrayList<>() : changes;
+                list.add(change);
+                return list;
+            });
+        }
+    }
+
+    private void write(AvailabilityIndex.DayKey key, long booked, long completed) {
+        if (dailyCounts.addCounts(key.doctorId(), key.date(), booked, completed) > 0) {
+            return;
+        }
+        try {
+            // Inserts (see DoctorDailyCount.isNew), so a row created meanwhile is not overwritten
+            dailyCounts.saveAndFlush(new DoctorDailyCount(key.doctorId(), key.date(), booked, completed));
+        } catch (DataIntegrityViolationException e) {
+            // Another node inserted the row first
+            dailyCounts.addCounts(key.doctorId(), key.date(), booked, completed);
+        }
+    }
+}
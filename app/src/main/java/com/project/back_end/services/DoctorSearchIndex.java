@@ -0,0 +1,291 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.repo.DoctorRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over doctor names and specialties.
+ *
+ * Answers case-insensitive substring queries with doctor ids, so the name and specialty
+ * filters no longer run {@code LIKE '%...%'} scans over the doctor table. A query is
+ * split into trigrams, their posting lists are intersected starting from the shortest,
+ * and the survivors are checked against the stored lower-cased value. Queries shorter
+ * than three characters just scan the stored values.
+ *
+ * DoctorService keeps the index in step with its own writes once they commit; a periodic
+ * rebuild picks up doctors written by other nodes. Writes that commit while a rebuild is
+ * reading the table are replayed onto the rebuilt index, so the swap does not lose them. Until the first load completes, {@link #isReady()} is
+ * false and callers fall back to the database.
+ */
+@Component
+public class DoctorSearchIndex {
+
+    // One field's values and trigram postings.
+    private static final class Field {
+        final Map<Long, String> values = new HashMap<>();
+        final Map<String, Set<Long>> postings = new HashMap<>();
+
+        void put(Long id, String raw) {
+            remove(id);
+            if (raw == null) {
+                return;
+            }
+            String value = raw.toLowerCase(Locale.ROOT);
+            values.put(id, value);
+            for (String gram : trigrams(value)) {
+                postings.computeIfAbsent(gram, g -> new HashSet<>()).add(id);
+            }
+        }
+
+        void remove(Long id) {
+            String old = values.remove(id);
+            if (old == null) {
+                return;
+            }
+            for (String gram : trigrams(old)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+
+        Set<Long> containing(String query) {
+            String q = query.toLowerCase(Locale.ROOT);
+            Set<Long> result = new HashSet<>();
+            if (q.length() < 3) {
+                for (Map.Entry<Long, String> e : values.entrySet()) {
+                    if (e.getValue().contains(q)) {
+                        result.add(e.getKey());
+                    }
+                }
+                return result;
+            }
+            List<Set<Long>> lists = new ArrayList<>();
+            for (String gram : trigrams(q)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids == null) {
+                    return result;
+                }
+                lists.add(ids);
+            }
+            lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+            candidates:
+            for (Long id : lists.get(0)) {
+                for (int i = 1; i < lists.size(); i++) {
+                    if (!lists.get(i).contains(id)) {
+                        continue candidates;
+                    }
+                }
+                // Trigrams can all match without the whole query matching in sequence.
+                if (values.get(id).contains(q)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+
+        Set<Long> equalTo(String query) {
+            String q = query.toLowerCase(Locale.ROOT);
+            Set<Long> result = new HashSet<>();
+            for (Long id : q.length() < 3 ? values.keySet() : containing(q)) {
+                if (values.get(id).equals(q)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+    }
+
+    private final DoctorRepository doctorRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Field names = new Field();
+    private Field specialties = new Field();
+    // Name and specialty as entered, for callers that display them
+    private Map<Long, String[]> display = new HashMap<>();
+    private volatile boolean ready;
+    // Bumped on every change so derived structures know when to rebuild
+    private volatile long version;
+
+    // Writes made while a rebuild is reading the table, replayed onto the rebuilt index.
+    // A null value records a delete.
+    private Map<Long, Doctor> writesDuringRebuild;
+
+    public DoctorSearchIndex(DoctorRepository doctorRepository) {
+        this.doctorRepository = doctorRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Ids of doctors whose name contains the query, ignoring case.
+    public Set<Long> idsByName(String name) {
+        lock.readLock().lock();
+        try {
+            return names.containing(name);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids of doctors whose specialty equals the query, ignoring case.
+    public Set<Long> idsBySpecialty(String specialty) {
+        lock.readLock().lock();
+        try {
+            return specialties.equalTo(specialty);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids matching both; either argument may be null to leave it out.
+    public Set<Long> ids(String name, String specialty) {
+        lock.readLock().lock();
+        try {
+            Set<Long> ids = name != null ? names.containing(name) : new HashSet<>(names.values.keySet());
+            if (specialty != null) {
+                ids.retainAll(specialties.equalTo(specialty));
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(Doctor doctor) {
+        lock.writeLock().lock();
+        try {
+            names.put(doctor.getId(), doctor.getName());
+            specialties.put(doctor.getId(), doctor.getSpecialty());
+            display.put(doctor.getId(), new String[]{doctor.getName(), doctor.getSpecialty()});
+            version++;
+            if (writesDuringRebuild != null) {
+                writesDuringRebuild.put(doctor.getId(), doctor);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long doctorId) {
+        lock.writeLock().lock();
+        try {
+            names.remove(doctorId);
+            specialties.remove(doctorId);
+            display.remove(doctorId);
+            version++;
+            if (writesDuringRebuild != null) {
+                writesDuringRebuild.put(doctorId, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${doctor.search.rebuild-ms:300000}", initialDelayString = "${doctor.search.rebuild-ms:300000}")
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            writesDuringRebuild = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Field newNames = new Field();
+        Field newSpecialties = new Field();
+        Map<Long, String[]> newDisplay = new HashMap<>();
+        try {
+            for (Object[] row : doctorRepository.findNamesAndSpecialties()) {
+                Long id = (Long) row[0];
+                String name = (String) row[1];
+                String specialty = (String) row[2];
+                newNames.put(id, name);
+                newSpecialties.put(id, specialty);
+                newDisplay.put(id, new String[]{name, specialty});
+            }
+        } catch (Exception e) {
+            // Keep serving the current index until the database is reachable again
+            System.err.println("Error rebuilding doctor search index: " + e.getMessage());
+            lock.writeLock().lock();
+            try {
+                writesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Doctor> e : writesDuringRebuild.entrySet()) {
+                if (e.getValue() == null) {
+                    newNames.remove(e.getKey());
+                    newSpecialties.remove(e.getKey());
+                    newDisplay.remove(e.getKey());
+                } else {
+                    newNames.put(e.getKey(), e.getValue().getName());
+                    newSpecialties.put(e.getKey(), e.getValue().getSpecialty());
+                    newDisplay.put(e.getKey(), new String[]{e.getValue().getName(), e.getValue().getSpecialty()});
+                }
+            }
+            names = newNames;
+            specialties = newSpecialties;
+            display = newDisplay;
+            version++;
+            writesDuringRebuild = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long version() {
+        return version;
+    }
+
+    // Copy of id -> {name, specialty} for every indexed doctor.
+    public Map<Long, String[]> snapshot() {
+        lock.readLock().lock();
+        try {
+            return new HashMap<>(display);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.values.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static Set<String> trigrams(String value) {
+        if (value.length() < 3) {
+            return Collections.emptySet();
+        }
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= value.length(); i++) {
+            grams.add(value.substring(i, i + 3));
+        }
+        return grams;
+    }
+}
@@ -3,19 +3,24 @@ package com.project.back_end.services;
 import com.project.back_end.DTO.Login;
 import com.project.back_end.models.Appointment;
 import com.project.back_end.models.Doctor;
+import com.project.back_end.models.TimeSlot;
 import com.project.back_end.repo.AppointmentRepository;
 import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.DoctorSpecifications;
+import com.project.back_end.security.TokenEpochRegistry;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class DoctorService {
@@ -26,52 +31,146 @@ public class DoctorService {
 
     private final TokenService tokenService;
 
+    private final TokenEpochRegistry tokenEpochRegistry;
+
+    private final AvailabilityIndex availabilityIndex;
+
+    private final SlotHolds slotHolds;
+
+    private final DoctorSearchIndex doctorSearchIndex;
+
+    private final DoctorDirectoryCache doctorDirectoryCache;
+
+    private final DoctorRollups doctorRollups;
+
+    private final AppointmentAnalytics appointmentAnalytics;
+
     public DoctorService(DoctorRepository doctorRepository, AppointmentRepository appointmentRepository,
-            TokenService tokenService) {
+            TokenService tokenService, TokenEpochRegistry tokenEpochRegistry, AvailabilityIndex availabilityIndex,
+            SlotHolds slotHolds, DoctorSearchIndex doctorSearchIndex, DoctorDirectoryCache doctorDirectoryCache,
+            DoctorRollups doctorRollups, AppointmentAnalytics appointmentAnalytics) {
         this.doctorRepository = doctorRepository;
         this.appointmentRepository = appointmentRepository;
         this.tokenService = tokenService;
+        this.tokenEpochRegistry = tokenEpochRegistry;
+        this.availabilityIndex = availabilityIndex;
+        this.slotHolds = slotHolds;
+        this.doctorSearchIndex = doctorSearchIndex;
+        this.doctorDirectoryCache = doctorDirectoryCache;
+        this.doctorRollups = doctorRollups;
+        this.appointmentAnalytics = appointmentAnalytics;
     }
 
 
-    @Transactional
-    public List<String> getDoctorAvailability(Long doctorId, LocalDate date) {
-        Optional<Doctor> doctor = doctorRepository.findById(doctorId);
+    // patientId is the patient asking, whose own holds stay listed as free; null for anyone else.
+    public List<String> getDoctorAvailability(Long doctorId, LocalDate date, Long patientId) {
+        // Slots other patients are holding are shown as taken.
+        List<String> availableSlots = availabilityIndex.freeSlots(doctorId, date,
+                slotHolds.heldMinutes(doctorId, date, patientId));
 
-        if (doctor.isEmpty()) {
+        if (availableSlots == null) {
             return List.of("Doctor not found with ID: " + doctorId);
         }
+        return availableSlots;
+    }
+
+    // Free slots for several doctors over a date range in one go, keyed by doctor id and date.
+    public Map<Long, Map<String, List<String>>> getDoctorAvailability(List<Long> doctorIds, LocalDate from, LocalDate to,
+            Long patientId) {
+        return availabilityIndex.freeSlots(new LinkedHashSet<>(doctorIds), from, to,
+                (doctorId, date) -> slotHolds.heldMinutes(doctorId, date, patientId));
+    }
+
+    // One doctor's free slots on one day, sorted by start, walked by the merge below.
+    private static final class SlotCursor {
+        final Doctor doctor;
+        final int[] starts;
+        final String[] labels;
+        int pos;
+
+        SlotCursor(Doctor doctor, int[] starts, String[] labels) {
+            this.doctor = doctor;
+            this.starts = starts;
+            this.labels = labels;
+        }
 
-        List<String> availableSlots = doctor.get().getAvailableTimes().stream()
-                .map(Object::toString)
-                .collect(Collectors.toList());
-
-        // Convert LocalDate to LocalDateTime (start and end of the day)
-        LocalDateTime startOfDay = date.atStartOfDay();
-        LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
-
-        // Fetch the appointments for this doctor on the given date
-        List<Appointment> appointments = appointmentRepository.findByDoctorIdAndAppointmentTimeBetween(doctorId,
-                startOfDay, endOfDay);
-
-        // Set of booked slots for the doctor on this date
-        Set<String> bookedSlots = appointments.stream()
-                .map(appt -> {
-                    LocalDateTime start = appt.getAppointmentTime();
-                    LocalDateTime end = start.plusHours(1); // Add 1 hour to the start time to get the end time
-                    return formatSlot(start, end); // Format the slot as "HH:mm-HH:mm"
-                })
-                .collect(Collectors.toSet());
-
-        // Filter out booked slots from the available slots
-        return availableSlots.stream()
-                .filter(slot -> !bookedSlots.contains(slot))
-                .collect(Collectors.toList());
+        int current() {
+            return starts[pos];
+        }
     }
 
-    private String formatSlot(LocalDateTime start, LocalDateTime end) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
-        return start.format(formatter) + "-" + end.format(formatter);
+    // The earliest free slots across every doctor of the specialty, at most `limit` of them.
+    // Days are scanned forward one at a time, each costing at most one grouped appointment
+    // query, and each day's per-doctor slot lists are merged through a heap so the scan
+    // stops as soon as `limit` slots are found. Gives up after maxDays days.
+    public List<Map<String, Object>> findNextAvailable(String specialty, int limit, int maxDays) {
+        List<Doctor> doctors = searchDoctors(null, specialty);
+        List<Map<String, Object>> found = new ArrayList<>(limit);
+        if (doctors.isEmpty()) {
+            return found;
+        }
+        Map<Long, Doctor> byId = new LinkedHashMap<>();
+        for (Doctor doctor : doctors) {
+            byId.put(doctor.getId(), doctor);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int nowMinute = now.getHour() * 60 + now.getMinute();
+        PriorityQueue<SlotCursor> heap = new PriorityQueue<>(Comparator.comparingInt(SlotCursor::current));
+        for (int d = 0; d < maxDays && found.size() < limit; d++) {
+            LocalDate date = now.toLocalDate().plusDays(d);
+            Map<Long, Map<String, List<String>>> free =
+                    availabilityIndex.freeSlots(byId.keySet(), date, date, slotHolds::heldMinutes);
+
+            heap.clear();
+            for (Map.Entry<Long, Map<String, List<String>>> e : free.entrySet()) {
+                SlotCursor cursor = cursorFor(byId.get(e.getKey()), e.getValue().get(date.toString()), d == 0 ? nowMinute : -1);
+                if (cursor != null) {
+                    heap.add(cursor);
+                }
+            }
+            while (!heap.isEmpty() && found.size() < limit) {
+                SlotCursor cursor = heap.poll();
+                Map<String, Object> slot = new HashMap<>();
+                slot.put("doctorId", cursor.doctor.getId());
+                slot.put("doctorName", cursor.doctor.getName());
+                slot.put("specialty", cursor.doctor.getSpecialty());
+                slot.put("date", date.toString());
+                slot.put("slot", cursor.labels[cursor.pos]);
+                slot.put("appointmentTime", date.atTime(cursor.current() / 60, cursor.current() % 60).toString());
+                found.add(slot);
+                if (++cursor.pos < cursor.starts.length) {
+                    heap.add(cursor);
+                }
+            }
+        }
+        return found;
+    }
+
+    // Sorted cursor over the slots starting after notBeforeMinute, or null if there are none.
+    private static SlotCursor cursorFor(Doctor doctor, List<String> labels, int notBeforeMinute) {
+        if (labels == null || labels.isEmpty()) {
+            return null;
+        }
+        long[] keyed = new long[labels.size()];
+        int n = 0;
+        for (int i = 0; i < labels.size(); i++) {
+            int slot = TimeSlot.parse(labels.get(i));
+            if (slot != TimeSlot.INVALID && TimeSlot.start(slot) > notBeforeMinute) {
+                keyed[n++] = (long) TimeSlot.start(slot) << 32 | i;
+            }
+        }
+        if (n == 0) {
+            return null;
+        }
+        Arrays.sort(keyed, 0, n);
+        int[] starts = new int[n];
+        String[] sorted = new String[n];
+        for (int i = 0; i < n; i++) {
+            starts[i] = (int) (keyed[i] >>> 32);
+            sorted[i] = labels.get((int) keyed[i]);
+        }
+        return new SlotCursor(doctor, starts, sorted);
     }
 
     public int saveDoctor(Doctor doctor) {
@@ -83,7 +182,10 @@ public class DoctorService {
             return -1;
         }
         try {
-            doctorRepository.save(doctor);
+            Doctor saved = doctorRepository.save(doctor);
+            // Not before commit: a rolled-back save would leave a phantom doctor in the index
+            availabilityIndex.afterCommit(() -> doctorSearchIndex.put(saved));
+            doctorDirectoryCache.doctorSaved(saved);
             return 1;
         } catch (Exception e) {
             System.err.println("Error saving doctor: " + e.getMessage());
@@ -94,30 +196,50 @@ public class DoctorService {
 
     public int updateDoctor(Doctor doctor) {
         // success: 1, conflict:-1, internal error: 0
-        Optional<Doctor> result = doctorRepository.findById(doctor.getId());
+        // Loaded with its slots: the directory cache reads them after this (detached) load
+        Optional<Doctor> result = doctorRepository.findWithAvailableTimesById(doctor.getId());
         if (!result.isPresent()) {
             return -1;
         }
+        Doctor saved;
         try {
-            doctorRepository.save(doctor);
-            return 1;
+            saved = doctorRepository.save(doctor);
         } catch (Exception e) {
             System.err.println("Error saving doctor: " + e.getMessage());
             return 0;
         }
-
+        availabilityIndex.afterCommit(() -> doctorSearchIndex.put(saved));
+        doctorDirectoryCache.doctorUpdated(result.get(), saved);
+        // The slot template may have changed
+        availabilityIndex.evictDoctor(doctor.getId());
+        return 1;
     }
 
     @Transactional
     public List<Doctor> getDoctors() {
-        List<Doctor> doctors = doctorRepository.findAll();
-        // Optionally touch the collection to force loading:
-        doctors.forEach(doc -> doc.getAvailableTimes().size());
-        return doctors;
+        // availableTimes come with the doctors in one query
+        return doctorRepository.findAllWithAvailableTimes();
+    }
+
+    // The next `size` doctors after the given id (from the start if null) in id order, with
+    // nextCursor set to the last id when more follow.
+    @Transactional
+    public Map<String, Object> getDoctorsPage(Long afterId, int size) {
+        Map<String, Object> map = new HashMap<>();
+        // One extra row tells whether another page follows
+        List<Doctor> doctors = doctorRepository.findByIdGreaterThanOrderByIdAsc(afterId == null ? 0L : afterId, Limit.of(size + 1));
+        boolean more = doctors.size() > size;
+        if (more) {
+            doctors = doctors.subList(0, size);
+        }
+        map.put("doctors", withAvailableTimes(doctors));
+        map.put("nextCursor", more ? String.valueOf(doctors.get(size - 1).getId()) : null);
+        return map;
     }
 
     public int deleteDoctor(long id) {
-        Optional<Doctor> doctor = doctorRepository.findById(id);
+        // Loaded with its slots: the directory cache reads them after this (detached) load
+        Optional<Doctor> doctor = doctorRepository.findWithAvailableTimesById(id);
 
         if (!doctor.isPresent()) {
             return -1;
@@ -125,11 +247,18 @@ public class DoctorService {
         try {
             appointmentRepository.deleteAllByDoctorId(doctor.get().getId());
             doctorRepository.delete(doctor.get());
-            return 1;
         } catch (Exception e) {
             System.err.println("Error saving doctor: " + e.getMessage());
             return 0;
         }
+        // Tokens are validated from their claims, so revoke them explicitly
+        tokenEpochRegistry.revoke("doctor", id);
+        availabilityIndex.evictDoctor(id);
+        availabilityIndex.afterCommit(() -> doctorSearchIndex.remove(id));
+        doctorDirectoryCache.doctorDeleted(doctor.get());
+        doctorRollups.doctorDeleted(id);
+        appointmentAnalytics.doctorDeleted(id);
+        return 1;
     }
 
     public ResponseEntity<Map<String, String>> validateDoctor(Login login) {
@@ -139,7 +268,7 @@ public class DoctorService {
             Doctor doctor = doctorRepository.findByEmail(login.getEmail());
             if (doctor != null) {
                 if (doctor.getPassword().equals(login.getPassword())) {
-                    map.put("token", tokenService.generateToken(doctor.getEmail()));
+                    map.put("token", tokenService.generateToken(doctor.getEmail(), "doctor", doctor.getId(), doctor.getName()));
                     return ResponseEntity.status(HttpStatus.OK).body(map);
                 } else {
                     map.put("error", "Password does not match");
@@ -156,101 +285,72 @@ public class DoctorService {
         }
     }
 
+    // Doctors matching every given filter, sorted by name; any filter may be null. The name
+    // and specialty filters are resolved to ids through the search index once it is loaded,
+    // and the AM/PM filter is an EXISTS over the slot table, so the whole filter is one query.
+    // With a page number only that page is loaded (page size `size`), plus a count.
     @Transactional
-    public Map<String, Object> findDoctorByName(String name) {
-        Map<String, Object> map = new HashMap<>();
-        List<Doctor> doctorList = doctorRepository.findByNameLike(name);
-        doctorList.forEach(doc -> doc.getAvailableTimes().size());
-        map.put("doctors", doctorList);
-        return map;
-    }
-
-    @Transactional
-    public Map<String, Object> filterDoctorsByNameSpecilityandTime(String name, String specialty, String amOrPm) {
+    public Map<String, Object> filterDoctors(String name, String specialty, String amOrPm, Integer page, int size) {
         Map<String, Object> map = new HashMap<>();
-
-        List<Doctor> doctors = doctorRepository.findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase(name, specialty);
-
-        List<Doctor> filteredDoctors = filterDoctorByTime(doctors,amOrPm);
-
-        map.put("doctors", filteredDoctors);
-        return map;
-    }
-
-    @Transactional
-    public Map<String, Object> filterDoctorByNameAndTime(String name, String amOrPm) {
-        Map<String, Object> map = new HashMap<>();
-
-        // Step 1: Fetch by name (partial match)
-        List<Doctor> doctors = doctorRepository.findByNameLike(name);
-
-        // Step 2: Filter by AM/PM
-        List<Doctor> filteredDoctors = filterDoctorByTime(doctors,amOrPm);
-
-        map.put("doctors", filteredDoctors);
-        return map;
-    }
-
-    @Transactional
-    public Map<String, Object> filterDoctorByNameAndSpecility(String name, String specilty) {
-        Map<String, Object> map = new HashMap<>();
-        List<Doctor> doctorList = doctorRepository.findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase(name, specilty);
-        doctorList.forEach(doc -> doc.getAvailableTimes().size());
-        map.put("doctors", doctorList);
-        return map;
-    }
-
-    @Transactional
-    public Map<String, Object> filterDoctorByTimeAndSpecility(String specilty, String amOrPm) {
-        Map<String, Object> map = new HashMap<>();
-        List<Doctor> doctors = doctorRepository.findBySpecialtyIgnoreCase(specilty);
-        List<Doctor> filteredDoctors = filterDoctorByTime(doctors,amOrPm);
-        map.put("doctors", filteredDoctors);
-        return map;
-
-    }
-
-    @Transactional
-    public Map<String, Object> filterDoctorBySpecility(String specilty) {
-        Map<String, Object> map = new HashMap<>();
-        List<Doctor> doctorList = doctorRepository.findBySpecialtyIgnoreCase(specilty);
-        doctorList.forEach(doc -> doc.getAvailableTimes().size());
-        map.put("doctors", doctorList);
+        Specification<Doctor> spec;
+        if (doctorSearchIndex.isReady() && (name != null || specialty != null)) {
+            Set<Long> ids = doctorSearchIndex.ids(name, specialty);
+            if (ids.isEmpty()) {
+                map.put("doctors", new ArrayList<>());
+                return map;
+            }
+            spec = Specification.where(DoctorSpecifications.idIn(ids));
+        } else {
+            spec = Specification.where(DoctorSpecifications.nameContains(name))
+                    .and(DoctorSpecifications.specialtyIs(specialty));
+        }
+        spec = spec.and(DoctorSpecifications.hasSlotInHalfDay(amOrPm == null ? null : amOrPm.equalsIgnoreCase("am")));
+
+        Sort sort = Sort.by("name", "id");
+        List<Doctor> doctors;
+        if (page == null) {
+            doctors = doctorRepository.findAll(spec, sort);
+        } else {
+            Page<Doctor> result = doctorRepository.findAll(spec, PageRequest.of(page, size, sort));
+            doctors = result.getContent();
+            map.put("page", page);
+            map.put("size", size);
+            map.put("totalElements", result.getTotalElements());
+        }
+        map.put("doctors", withAvailableTimes(doctors));
         return map;
     }
 
-    @Transactional
-    public Map<String, Object> filterDoctorsByTime(String amOrPm) {
-        Map<String, Object> map = new HashMap<>();
-        List<Doctor> doctors = doctorRepository.findAll();
-        List<Doctor> filteredDoctors = filterDoctorByTime(doctors,amOrPm);
-        map.put("doctors", filteredDoctors);
-        return map;
+    // Loads the slot lists of the given doctors in one query, keeping their order.
+    private List<Doctor> withAvailableTimes(List<Doctor> doctors) {
+        if (doctors.isEmpty()) {
+            return doctors;
+        }
+        List<Long> ids = new ArrayList<>(doctors.size());
+        for (Doctor doctor : doctors) {
+            ids.add(doctor.getId());
+        }
+        Map<Long, Doctor> loaded = new HashMap<>();
+        for (Doctor doctor : doctorRepository.findWithAvailableTimesByIdIn(ids)) {
+            loaded.put(doctor.getId(), doctor);
+        }
+        List<Doctor> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ordered.add(loaded.get(id));
+        }
+        return ordered;
     }
 
-
-    public  List<Doctor> filterDoctorByTime(List<Doctor> doctors,String amOrPm)
-    {
-        return doctors.stream()
-        .filter(doctor -> {
-            if (amOrPm == null || amOrPm.isBlank())
-                return true;
-
-            boolean isAM = amOrPm.equalsIgnoreCase("am");
-            return doctor.getAvailableTimes().stream().anyMatch(slot -> {
-                try {
-                    String startHourStr = slot.split("-")[0].split(":")[0]; // e.g. "09"
-                    int hour = Integer.parseInt(startHourStr);
-                    return isAM ? hour < 12 : hour >= 12;
-                } catch (Exception e) {
-                    return false; // Skip invalid time slots
-                }
-            });
-        })
-        .collect(Collectors.toList());
+    // Doctors whose name contains `name` and whose specialty equals `specialty`, ignoring case;
+    // either may be null. Matches come from the in-memory search index and are loaded by id,
+    // together with their availableTimes; the LIKE queries are only used until it is loaded.
+    private List<Doctor> searchDoctors(String name, String specialty) {
+        if (!doctorSearchIndex.isReady()) {
+            return name == null ? doctorRepository.findBySpecialtyIgnoreCase(specialty)
+                    : specialty == null ? doctorRepository.findByNameLike(name)
+                    : doctorRepository.findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase(name, specialty);
+        }
+        Set<Long> ids = doctorSearchIndex.ids(name, specialty);
+        return ids.isEmpty() ? new ArrayList<>() : doctorRepository.findWithAvailableTimesByIdIn(ids);
     }
-
-
-
-   
 }
@@ -0,0 +1,171 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.AppointmentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Doctor-name autocomplete from an in-memory prefix trie.
+ *
+ * Every word start of every name (so "ada" finds "Dr. Emily Adams") is inserted into the
+ * trie, and each node keeps the ids of its best {@link #MAX_SUGGESTIONS} doctors ranked by
+ * bookings over the last {@code doctor.suggest.window-days} days, so a lookup is a walk
+ * down the prefix with no sorting. The trie is immutable and swapped as a whole: it is
+ * rebuilt when the doctor search index changes or the booking counts are refreshed.
+ */
+@Component
+public class DoctorSuggester {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        long[] top = new long[0];
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i < 0 ? null : children[i];
+        }
+    }
+
+    // Mutable node used while building; frozen into a Node afterwards.
+    private static final class Builder {
+        final TreeMap<Character, Builder> children = new TreeMap<>();
+        final Set<Long> ids = new LinkedHashSet<>();
+
+        Node freeze(Comparator<Long> rank) {
+            Node node = new Node();
+            node.keys = new char[children.size()];
+            node.children = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Builder> e : children.entrySet()) {
+                node.keys[i] = e.getKey();
+                node.children[i++] = e.getValue().freeze(rank);
+            }
+            node.top = ids.stream().sorted(rank).limit(MAX_SUGGESTIONS).mapToLong(Long::longValue).toArray();
+            return node;
+        }
+    }
+
+    private static final class Snapshot {
+        final Node root;
+        final Map<Long, String[]> doctors;
+        final long indexVersion;
+
+        Snapshot(Node root, Map<Long, String[]> doctors, long indexVersion) {
+            this.root = root;
+            this.doctors = doctors;
+            this.indexVersion = indexVersion;
+        }
+    }
+
+    private final DoctorSearchIndex doctorSearchIndex;
+    private final AppointmentRepository appointmentRepository;
+
+    @Value("${doctor.suggest.window-days:30}")
+    private int windowDays;
+
+    private volatile Map<Long, Long> bookingCounts = new HashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(new Node(), new HashMap<>(), -1);
+
+    public DoctorSuggester(DoctorSearchIndex doctorSearchIndex, AppointmentRepository appointmentRepository) {
+        this.doctorSearchIndex = doctorSearchIndex;
+        this.appointmentRepository = appointmentRepository;
+    }
+
+    // Up to `limit` doctors with a name word starting with the prefix, busiest first.
+    public List<Map<String, Object>> suggest(String prefix, int limit) {
+        Snapshot current = current();
+        Node node = current.root;
+        for (char c : prefix.toLowerCase(Locale.ROOT).toCharArray()) {
+            node = node.child(c);
+            if (node == null) {
+                return new ArrayList<>();
+            }
+        }
+        List<Map<String, Object>> suggestions = new ArrayList<>();
+        for (int i = 0; i < node.top.length && i < limit; i++) {
+            String[] doctor = current.doctors.get(node.top[i]);
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("id", node.top[i]);
+            map.put("name", doctor[0]);
+            map.put("specialty", doctor[1]);
+            suggestions.add(map);
+        }
+        return suggestions;
+    }
+
+    @Scheduled(fixedDelayString = "${doctor.suggest.refresh-ms:600000}")
+    public void refreshBookingCounts() {
+        Map<Long, Long> counts = new HashMap<>();
+        try {
+            for (Object[] row : appointmentRepository.countByDoctorSince(LocalDateTime.now().minusDays(windowDays))) {
+                counts.put((Long) row[0], (Long) row[1]);
+            }
+        } catch (Exception e) {
+            // Keep ranking by the last known counts until the database is reachable again
+            System.err.println("Error refreshing booking counts: " + e.getMessage());
+            return;
+        }
+        bookingCounts = counts;
+        synchronized (this) {
+            snapshot = build(doctorSearchIndex.version());
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        long version = doctorSearchIndex.version();
+        if (current.indexVersion == version) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot.indexVersion != version) {
+                snapshot = build(version);
+            }
+            return snapshot;
+        }
+    }
+
+    private Snapshot build(long version) {
+        Map<Long, String[]> doctors = doctorSearchIndex.snapshot();
+        Map<Long, Long> counts = bookingCounts;
+        Builder root = new Builder();
+        for (Map.Entry<Long, String[]> e : doctors.entrySet()) {
+            String name = e.getValue()[0];
+            if (name == null) {
+                continue;
+            }
+            String lower = name.toLowerCase(Locale.ROOT);
+            for (int start = 0; start < lower.length(); start++) {
+                if (!Character.isLetterOrDigit(lower.charAt(start))
+                        || (start > 0 && Character.isLetterOrDigit(lower.charAt(start - 1)))) {
+                    continue;
+                }
+                Builder node = root;
+                for (int i = start; i < lower.length(); i++) {
+                    node = node.children.computeIfAbsent(lower.charAt(i), c -> new Builder());
+                    node.ids.add(e.getKey());
+                }
+            }
+        }
+        Comparator<Long> rank = Comparator.<Long>comparingLong(id -> -counts.getOrDefault(id, 0L))
+                .thenComparing(id -> doctors.get(id)[0]);
+        return new Snapshot(root.freeze(rank), doctors, version);
+    }
+}
@@ -0,0 +1,87 @@
+package com.project.back_end.services;
+
+import java.util.Arrays;
+
+/**
+ * Approximate count of distinct longs in a fixed 2^PRECISION bytes.
+ *
+ * Each value is hashed to 64 bits; the first PRECISION bits pick a register and the register
+ * keeps the longest run of leading zeros (plus one) seen in the remaining bits. The standard
+ * error is 1.04 / sqrt(2^PRECISION), about 2.3% here; small counts fall back to linear counting
+ * over the empty registers, which is close to exact. Two sketches merge by taking the larger
+ * register, so the sketch of a union is the merge of the sketches, whichever node built them.
+ */
+final class HyperLogLog {
+
+    static final int PRECISION = 11;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers;
+
+    HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    synchronized void add(long value) {
+        long hash = mix(value);
+        int index = (int) (hash >>> (64 - PRECISION));
+        // The sentinel bit bounds the run when the remaining bits are all zero
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    synchronized long estimate() {
+        double sum = 0;
+        int empty = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                empty++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && empty > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / empty);
+        }
+        return Math.round(estimate);
+    }
+
+    // Folds `other` into this sketch; afterwards this estimates the union of both inputs.
+    void merge(HyperLogLog other) {
+        byte[] theirs = other.toBytes();
+        synchronized (this) {
+            for (int i = 0; i < REGISTERS; i++) {
+                if (theirs[i] > registers[i]) {
+                    registers[i] = theirs[i];
+                }
+            }
+        }
+    }
+
+    // A copy of the registers, e.g. to ship the sketch to another node.
+    synchronized byte[] toBytes() {
+        return registers.clone();
+    }
+
+    static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes.length != REGISTERS) {
+            throw new IllegalArgumentException("Expected " + REGISTERS + " registers, got " + bytes.length);
+        }
+        return new HyperLogLog(Arrays.copyOf(bytes, REGISTERS));
+    }
+
+    // SplitMix64 finalizer: spreads sequential ids over all 64 bits.
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
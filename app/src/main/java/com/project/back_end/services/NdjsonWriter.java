@@ -0,0 +1,39 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+
+// Writes a stream of rows as newline-delimited JSON, one object per line, as the rows arrive.
+final class NdjsonWriter {
+
+    private NdjsonWriter() {
+    }
+
+    // Consumes and closes `rows` and returns how many were written. `out` is left open.
+    static <T> long write(ObjectMapper objectMapper, Class<T> type, Stream<T> rows, OutputStream out) throws IOException {
+        long count = 0;
+        try (rows;
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                     .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            // Let the generator's buffer decide when to write instead of flushing every row
+            SequenceWriter lines = objectMapper.writerFor(type)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .withRootValueSeparator("\n")
+                    .writeValues(generator);
+            for (T row : (Iterable<T>) rows::iterator) {
+                lines.write(row);
+                count++;
+            }
+            if (count > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+        return count;
+    }
+}
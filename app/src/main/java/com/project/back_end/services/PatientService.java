@@ -1,11 +1,13 @@
 package com.project.back_end.services;
 
 import com.project.back_end.DTO.AppointmentDTO;
-import com.project.back_end.models.Appointment;
+import com.project.back_end.DTO.PageCursor;
 import com.project.back_end.models.Patient;
 import com.project.back_end.repo.AppointmentRepository;
 import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.security.AuthPrincipal;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -13,20 +15,16 @@ import org.springframework.stereotype.Service;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Service
 public class PatientService {
 
     private final PatientRepository patientRepository;
     private final AppointmentRepository appointmentRepository;
-    private final TokenService tokenService;
 
-    public PatientService(PatientRepository patientRepository, AppointmentRepository appointmentRepository,
-            TokenService tokenService) {
+    public PatientService(PatientRepository patientRepository, AppointmentRepository appointmentRepository) {
         this.patientRepository = patientRepository;
         this.appointmentRepository = appointmentRepository;
-        this.tokenService = tokenService;
     }
 
     public int createPatient(Patient patient) {
@@ -40,29 +38,18 @@ public class PatientService {
 
     }
 
+    // One page of the patient's appointments in (appointment time, id) order, starting after
+    // the cursor (from the beginning if null); nextCursor is null on the last page.
+    // The filtered lists below page the same way.
     @Transactional
-    public ResponseEntity<Map<String, Object>> getPatientAppointment(Long id, String token) {
+    public ResponseEntity<Map<String, Object>> getPatientAppointment(Long id, PageCursor after, int size) {
         Map<String, Object> map = new HashMap<>();
 
         try {
-            List<Appointment> appointments = appointmentRepository.findByPatientId(id);
-
-            // Convert appointments to DTOs
-            List<AppointmentDTO> appointmentDTOs = appointments.stream()
-                    .map(app -> new AppointmentDTO(
-                            app.getId(),
-                            app.getDoctor().getId(), // Only doctor ID
-                            app.getDoctor().getName(),
-                            app.getPatient().getId(),
-                            app.getPatient().getName(),
-                            app.getPatient().getEmail(),
-                            app.getPatient().getPhone(),
-                            app.getPatient().getAddress(),
-                            app.getAppointmentTime(),
-                            app.getStatus()))
-                    .collect(Collectors.toList());
-
-            map.put("appointments", appointmentDTOs);
+            PageCursor from = after == null ? PageCursor.START : after;
+            // One extra row tells whether another page follows
+            List<AppointmentDTO> appointments = appointmentRepository.findPatientPage(id, from.time(), from.id(), Limit.of(size + 1));
+            putPage(map, appointments, size);
             return ResponseEntity.status(HttpStatus.OK).body(map);
         } catch (Exception e) {
             System.out.println("Error: " + e);
@@ -71,110 +58,75 @@ public class PatientService {
         }
     }
 
-    public ResponseEntity<Map<String, Object>> filterByCondition(String condition, Long id) {
+    public ResponseEntity<Map<String, Object>> filterByCondition(String condition, Long id, PageCursor after, int size) {
         Map<String, Object> map = new HashMap<>();
-        List<Appointment> appointments;
-        if (condition.equals("past")) {
-            appointments = appointmentRepository.findByPatient_IdAndStatusOrderByAppointmentTimeAsc(id, 1);
-
-        } else if (condition.equals("future")) {
-            appointments = appointmentRepository.findByPatient_IdAndStatusOrderByAppointmentTimeAsc(id, 0);
-
-        } else {
+        Integer status = status(condition);
+        if (status == null) {
             map.put("error", "Invalid filter");
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(map);
-
         }
-        List<AppointmentDTO> appointmentDTOs = appointments.stream()
-                .map(app -> new AppointmentDTO(
-                        app.getId(),
-                        app.getDoctor().getId(), // Only doctor ID
-                        app.getDoctor().getName(),
-                        app.getPatient().getId(),
-                        app.getPatient().getName(),
-                        app.getPatient().getEmail(),
-                        app.getPatient().getPhone(),
-                        app.getPatient().getAddress(),
-                        app.getAppointmentTime(),
-                        app.getStatus()))
-                .collect(Collectors.toList());
-
-        map.put("appointments", appointmentDTOs);
+
+        PageCursor from = after == null ? PageCursor.START : after;
+        List<AppointmentDTO> appointments = appointmentRepository.findByPatient_IdAndStatusOrderByAppointmentTimeAsc(id,
+                status, from.time(), from.id(), Limit.of(size + 1));
+        putPage(map, appointments, size);
         return ResponseEntity.status(HttpStatus.OK).body(map);
     }
 
-    public ResponseEntity<Map<String, Object>> filterByDoctor(String name, Long patientId) {
+    public ResponseEntity<Map<String, Object>> filterByDoctor(String name, Long patientId, PageCursor after, int size) {
         Map<String, Object> map = new HashMap<>();
+        PageCursor from = after == null ? PageCursor.START : after;
+        List<AppointmentDTO> appointments = appointmentRepository.filterByDoctorNameAndPatientId(name,
+                patientId, from.time(), from.id(), Limit.of(size + 1));
 
-        System.out.println("Startingur query");
-        List<Appointment> appointments = appointmentRepository.filterByDoctorNameAndPatientId(name,
-                patientId);
-
-        System.out.println(name);
-        System.out.println(patientId);
-        System.out.println("HI");
-        System.out.println(appointments.size());
-        for (Appointment appointment : appointments) {
-            System.out.println("" + appointment.getDoctor().getName());
-        }
-
-        List<AppointmentDTO> appointmentDTOs = appointments.stream()
-                .map(app -> new AppointmentDTO(
-                        app.getId(),
-                        app.getDoctor().getId(), // Only doctor ID
-                        app.getDoctor().getName(),
-                        app.getPatient().getId(),
-                        app.getPatient().getName(),
-                        app.getPatient().getEmail(),
-                        app.getPatient().getPhone(),
-                        app.getPatient().getAddress(),
-                        app.getAppointmentTime(),
-                        app.getStatus()))
-                .collect(Collectors.toList());
-
-        map.put("appointments", appointmentDTOs);
+        putPage(map, appointments, size);
         return ResponseEntity.status(HttpStatus.OK).body(map);
     }
 
     public ResponseEntity<Map<String, Object>> filterByDoctorAndCondition(String condition, String name,
-            long patientId) {
+            long patientId, PageCursor after, int size) {
 
         Map<String, Object> map = new HashMap<>();
-        List<Appointment> appointments;
-        if (condition.equals("past")) {
-            appointments = appointmentRepository.filterByDoctorNameAndPatientIdAndStatus(name, patientId, 1);
+        Integer status = status(condition);
+        if (status == null) {
+            map.put("error", "Invalid filter");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(map);
+        }
+
+        PageCursor from = after == null ? PageCursor.START : after;
+        List<AppointmentDTO> appointments = appointmentRepository.filterByDoctorNameAndPatientIdAndStatus(name,
+                patientId, status, from.time(), from.id(), Limit.of(size + 1));
+        putPage(map, appointments, size);
+        return ResponseEntity.status(HttpStatus.OK).body(map);
+    }
 
+    // "past" appointments have status 1, "future" ones 0; anything else is not a filter
+    private static Integer status(String condition) {
+        if (condition.equals("past")) {
+            return 1;
         } else if (condition.equals("future")) {
-            appointments = appointmentRepository.filterByDoctorNameAndPatientIdAndStatus(name, patientId, 0);
+            return 0;
+        }
+        return null;
+    }
 
+    // Puts the first size rows and the cursor of the next page; the query fetched one extra
+    // row to tell whether another page follows.
+    private static void putPage(Map<String, Object> map, List<AppointmentDTO> appointments, int size) {
+        if (appointments.size() > size) {
+            appointments = appointments.subList(0, size);
+            AppointmentDTO last = appointments.get(size - 1);
+            map.put("nextCursor", new PageCursor(last.getAppointmentTime(), last.getId()).encode());
         } else {
-            map.put("error", "Invalid filter");
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(map);
-
+            map.put("nextCursor", null);
         }
-        List<AppointmentDTO> appointmentDTOs = appointments.stream()
-                .map(app -> new AppointmentDTO(
-                        app.getId(),
-                        app.getDoctor().getId(), // Only doctor ID
-                        app.getDoctor().getName(),
-                        app.getPatient().getId(),
-                        app.getPatient().getName(),
-                        app.getPatient().getEmail(),
-                        app.getPatient().getPhone(),
-                        app.getPatient().getAddress(),
-                        app.getAppointmentTime(),
-                        app.getStatus()))
-                .collect(Collectors.toList());
-
-        map.put("appointments", appointmentDTOs);
-        return ResponseEntity.status(HttpStatus.OK).body(map);
+        map.put("appointments", appointments);
     }
 
-    public ResponseEntity<Map<String,Object>> getPatientDetails(String token)
+    public ResponseEntity<Map<String,Object>> getPatientDetails(AuthPrincipal principal)
     {
         Map<String, Object> map = new HashMap<>();
-        String email=tokenService.extractEmail(token);
-        Patient patient=patientRepository.findByEmail(email);
+        Patient patient=patientRepository.findById(principal.getId()).orElse(null);
         map.put("patient",patient);
         return ResponseEntity.status(HttpStatus.OK).body(map);
     }
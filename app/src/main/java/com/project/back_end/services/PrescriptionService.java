@@ -1,9 +1,11 @@
 package com.project.back_end.services;
 
+import com.project.back_end.DTO.InvalidCursorException;
 import com.project.back_end.models.Prescription;
-import com.project.back_end.models.Patient;
 import com.project.back_end.repo.PrescriptionRepository;
-import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.security.AuthPrincipal;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -18,14 +20,10 @@ import java.util.Optional;
 public class PrescriptionService {
     
     private final PrescriptionRepository prescriptionRepository;
-    private final TokenService tokenService;
-    private final PatientRepository patientRepository;
 
-    public PrescriptionService(PrescriptionRepository prescriptionRepository, TokenService tokenService, PatientRepository patientRepository)
+    public PrescriptionService(PrescriptionRepository prescriptionRepository)
     {
         this.prescriptionRepository=prescriptionRepository;
-        this.tokenService = tokenService;
-        this.patientRepository = patientRepository;
     }
 
     public ResponseEntity<Map<String, String>> savePrescription(Prescription prescription)
@@ -71,15 +69,27 @@ public class PrescriptionService {
         }
     }
 
-    // New method for patients to get their prescriptions by patient name
-    public ResponseEntity<Map<String, Object>> getPatientPrescriptions(String patientName)
+    // New method for patients to get their prescriptions by patient name, one page of `size`
+    // at a time in id order. `after` is the previous page's nextCursor (the last id it held).
+    public ResponseEntity<Map<String, Object>> getPatientPrescriptions(String patientName, String after, int size)
     {
         Map<String, Object> map = new HashMap<>();
+        if (after != null && !ObjectId.isValid(after)) {
+            throw new InvalidCursorException();
+        }
 
         try {
-            List<Prescription> prescriptions = prescriptionRepository.findByPatientName(patientName);
+            // One extra row tells whether another page follows
+            List<Prescription> prescriptions = after == null
+                    ? prescriptionRepository.findByPatientNameOrderByIdAsc(patientName, Limit.of(size + 1))
+                    : prescriptionRepository.findByPatientNameAndIdGreaterThanOrderByIdAsc(patientName, after, Limit.of(size + 1));
+            boolean more = prescriptions.size() > size;
+            if (more) {
+                prescriptions = prescriptions.subList(0, size);
+            }
             map.put("prescriptions", prescriptions);
             map.put("count", prescriptions.size());
+            map.put("nextCursor", more ? prescriptions.get(size - 1).getId() : null);
             return ResponseEntity.status(HttpStatus.OK).body(map);
         }
         catch(Exception e)
@@ -91,7 +101,7 @@ public class PrescriptionService {
     }
 
     // New: allow patient to delete their own prescription
-    public ResponseEntity<Map<String, String>> deletePrescription(String id, String token) {
+    public ResponseEntity<Map<String, String>> deletePrescription(String id, AuthPrincipal patient) {
         Map<String, String> map = new HashMap<>();
         try {
             Optional<Prescription> opt = prescriptionRepository.findById(id);
@@ -100,16 +110,6 @@ public class PrescriptionService {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(map);
             }
             Prescription prescription = opt.get();
-            String email = tokenService.extractEmail(token);
-            if (email == null || email.isEmpty()) {
-                map.put("message", "Invalid or expired token");
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(map);
-            }
-            Patient patient = patientRepository.findByEmail(email);
-            if (patient == null) {
-                map.put("message", "Unauthorized");
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(map);
-            }
             if (patient.getName() == null || !patient.getName().equalsIgnoreCase(prescription.getPatientName())) {
                 map.put("message", "You are not authorized to delete this prescription");
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(map);
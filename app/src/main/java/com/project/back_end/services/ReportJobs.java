@@ -0,0 +1,309 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Admin reports run in the background, with their output cached on disk.
+ *
+ * Submitting a report returns a job right away; the report runs on a small fixed pool with a
+ * bounded queue, so big scans never hold a request thread and at most `threads` of them hold a
+ * database connection at once. The output is written gzip-compressed to `reports.jobs.dir` and
+ * kept for `reports.jobs.ttl-seconds`. A job is keyed by its report, parameters and format: while
+ * a job for the same key is queued or running, submitting again returns that job instead of
+ * running the report twice. A finished job is only reused for a range that is entirely in the
+ * past, since later bookings still change today's and future figures. Jobs live only in memory;
+ * report files left by a previous run are deleted on start.
+ */
+@Component
+public class ReportJobs {
+
+    public enum Format {
+        NDJSON("ndjson", "application/x-ndjson"),
+        CSV("csv", "text/csv");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    public enum State {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    // Writes one report to `out` and returns the number of rows.
+    @FunctionalInterface
+    private interface Report {
+        long write(OutputStream out) throws IOException;
+    }
+
+    public static final class Job {
+        private final String id;
+        private final String key;
+        private final String fileName;
+        private final Format format;
+        // Whether the output can no longer change, so a finished job can be served again
+        private final boolean settled;
+        private final Instant submittedAt = Instant.now();
+        private final CompletableFuture<Path> result = new CompletableFuture<>();
+        private volatile State state = State.QUEUED;
+        private volatile long rows;
+        private volatile long bytes;
+        private volatile Instant expiresAt;
+        private volatile String error;
+
+        Job(String id, String key, String fileName, Format format, boolean settled) {
+            this.id = id;
+            this.key = key;
+            this.fileName = fileName;
+            this.format = format;
+            this.settled = settled;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        // The name to download the report under, without the .gz suffix.
+        public String getFileName() {
+            return fileName;
+        }
+
+        public Format getFormat() {
+            return format;
+        }
+
+        // Completes with the gzip file once the report is written, or exceptionally if it fails.
+        public CompletableFuture<Path> getResult() {
+            return result;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("job", id);
+            map.put("report", key);
+            map.put("status", state.name());
+            map.put("submittedAt", submittedAt.toString());
+            if (state == State.DONE) {
+                map.put("fileName", fileName);
+                map.put("rows", rows);
+                map.put("compressedBytes", bytes);
+                map.put("expiresAt", expiresAt.toString());
+            } else if (state == State.FAILED) {
+                map.put("message", error);
+            }
+            return map;
+        }
+
+        boolean isExpired(Instant now) {
+            return expiresAt != null && now.isAfter(expiresAt);
+        }
+    }
+
+    // Every file this class writes starts with this, so start() never deletes anything else
+    private static final String FILE_PREFIX = "report-";
+
+    private final ReportService reportService;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Job> jobsByKey = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+    private Path directory;
+
+    @Value("${reports.jobs.threads:2}")
+    private int threads;
+
+    @Value("${reports.jobs.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${reports.jobs.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    @Value("${reports.jobs.dir:${java.io.tmpdir}/report-jobs}")
+    private String dir;
+
+    public ReportJobs(ReportService reportService, ObjectMapper objectMapper) {
+        this.reportService = reportService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        directory = Paths.get(dir);
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, FILE_PREFIX + "*.{gz,part}")) {
+            for (Path file : stale) {
+                Files.deleteIfExists(file);
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    // Every appointment on `date`, as ReportService.writeDailyReport writes them.
+    public Job submitDailyReport(LocalDate date, Format format) {
+        return submit("daily:" + date, "appointments-" + date, date.plusDays(1), format,
+                format == Format.CSV
+                        ? out -> reportService.writeDailyReportCsv(date, out)
+                        : out -> reportService.writeDailyReport(date, out));
+    }
+
+    // The month (or year, if month is null) leaderboard of ReportService.getLeaderboard, one doctor per row.
+    public Job submitLeaderboard(int year, Integer month, int limit, Format format) {
+        String period = month == null ? String.valueOf(year) : year + "-" + String.format("%02d", month);
+        LocalDate end = month == null ? LocalDate.of(year + 1, 1, 1) : LocalDate.of(year, month, 1).plusMonths(1);
+        return submit("leaderboard:" + period + ":" + limit, "leaderboard-" + period, end, format,
+                out -> writeDoctors(reportService.getLeaderboard(year, month, limit), format,
+                        new String[] {"doctorId", "patientsSeen"}, out));
+    }
+
+    // The utilization of ReportService.getUtilization for [start, end), one doctor per row.
+    public Job submitUtilization(LocalDate start, LocalDate end, Format format) {
+        return submit("utilization:" + start + ":" + end, "utilization-" + start + "-" + end, end, format,
+                out -> writeDoctors(reportService.getUtilization(start, end), format,
+                        new String[] {"doctorId", "name", "booked", "completed", "capacity", "utilization"}, out));
+    }
+
+    // The job, or null if it is unknown or has expired.
+    public Job get(String id) {
+        Job job = jobs.get(id);
+        return job == null || job.isExpired(Instant.now()) ? null : job;
+    }
+
+    // Drops expired jobs and their files. Failed jobs expire after the same TTL.
+    @Scheduled(fixedDelayString = "${reports.jobs.sweep-ms:60000}")
+    public void sweep() {
+        Instant now = Instant.now();
+        for (Job job : jobs.values()) {
+            if (job.isExpired(now)) {
+                jobs.remove(job.id);
+                jobsByKey.remove(job.key, job);
+                try {
+                    Files.deleteIfExists(file(job));
+                } catch (IOException e) {
+                    System.err.println("Error deleting report " + job.id + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Returns the job already queued or running for the same report, or the finished one if the
+    // report covers days before `end` (exclusive) and those are all past; otherwise queues a new
+    // one. Null if the queue is full.
+    private synchronized Job submit(String key, String fileName, LocalDate end, Format format, Report report) {
+        String fullKey = key + ":" + format.extension;
+        Job existing = jobsByKey.get(fullKey);
+        if (existing != null && !existing.isExpired(Instant.now()) && (existing.state == State.QUEUED
+                || existing.state == State.RUNNING || (existing.state == State.DONE && existing.settled))) {
+            return existing;
+        }
+        boolean settled = !end.isAfter(LocalDate.now());
+        Job job = new Job(UUID.randomUUID().toString(), fullKey, fileName + "." + format.extension, format, settled);
+        try {
+            executor.execute(() -> run(job, report));
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+        jobs.put(job.id, job);
+        jobsByKey.put(fullKey, job);
+        return job;
+    }
+
+    private void run(Job job, Report report) {
+        job.state = State.RUNNING;
+        Path part = directory.resolve(FILE_PREFIX + job.id + ".part");
+        try {
+            try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(part)), 8192)) {
+                job.rows = report.write(out);
+            }
+            Path file = Files.move(part, file(job), StandardCopyOption.ATOMIC_MOVE);
+            job.bytes = Files.size(file);
+            job.expiresAt = Instant.now().plusSeconds(ttlSeconds);
+            job.state = State.DONE;
+            job.result.complete(file);
+        } catch (Exception e) {
+            System.err.println("Error running report " + job.key + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException ignored) {
+                // The next start clears leftover .part files
+            }
+            job.error = "Report failed, please submit it again";
+            job.expiresAt = Instant.now().plusSeconds(ttlSeconds);
+            job.state = State.FAILED;
+            job.result.completeExceptionally(e);
+        }
+    }
+
+    private long writeDoctors(Map<String, Object> report, Format format, String[] columns, OutputStream out)
+            throws IOException {
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> doctors = (List<Map<String, Object>>) report.get("doctors");
+        if (format == Format.CSV) {
+            return CsvWriter.write(columns, doctors.stream(), doctor -> {
+                Object[] values = new Object[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    values[i] = doctor.get(columns[i]);
+                }
+                return values;
+            }, out);
+        } else {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Class<Map<String, Object>> type = (Class) Map.class;
+            return NdjsonWriter.write(objectMapper, type, doctors.stream(), out);
+        }
+    }
+
+    private Path file(Job job) {
+        return directory.resolve(FILE_PREFIX + job.id + "." + job.format.extension + ".gz");
+    }
+}
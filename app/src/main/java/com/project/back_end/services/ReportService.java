@@ -0,0 +1,125 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.DTO.DailyReportRow;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorDailyCountRepository;
+import com.project.back_end.repo.DoctorRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Admin reports, formerly the GetDailyAppointmentReportByDoctor and GetDoctorWithMostPatients*
+// stored procedures. Days, months and years are turned into half-open [start, end) timestamp
+// ranges so the database can use the (appointment_time, doctor_id) index instead of evaluating
+// DATE(), MONTH() or YEAR() on every row. Per-doctor totals come from the daily rollups
+// (see DoctorRollups), so a month or a year reads doctors x days rows, not every appointment.
+@Service
+public class ReportService {
+
+    private final AppointmentRepository appointmentRepository;
+    private final DoctorRepository doctorRepository;
+    private final DoctorDailyCountRepository dailyCounts;
+    private final DoctorRollups doctorRollups;
+    private final ObjectMapper objectMapper;
+
+    public ReportService(AppointmentRepository appointmentRepository, DoctorRepository doctorRepository,
+            DoctorDailyCountRepository dailyCounts, DoctorRollups doctorRollups, ObjectMapper objectMapper) {
+        this.appointmentRepository = appointmentRepository;
+        this.doctorRepository = doctorRepository;
+        this.dailyCounts = dailyCounts;
+        this.doctorRollups = doctorRollups;
+        this.objectMapper = objectMapper;
+    }
+
+    // Every appointment on `date` as newline-delimited JSON, by doctor name then time; returns the row count.
+    @Transactional
+    public long writeDailyReport(LocalDate date, OutputStream out) throws IOException {
+        return NdjsonWriter.write(objectMapper, DailyReportRow.class,
+                appointmentRepository.streamDailyReport(date.atStartOfDay(), date.plusDays(1).atStartOfDay()), out);
+    }
+
+    // The same rows as CSV under a header line; returns the row count.
+    @Transactional
+    public long writeDailyReportCsv(LocalDate date, OutputStream out) throws IOException {
+        return CsvWriter.write(new String[] {"doctorName", "appointmentTime", "status", "patientName", "patientPhone"},
+                appointmentRepository.streamDailyReport(date.atStartOfDay(), date.plusDays(1).atStartOfDay()),
+                row -> new Object[] {row.doctorName(), row.appointmentTime(), row.status(), row.patientName(), row.patientPhone()},
+                out);
+    }
+
+    // The doctor with the most appointments in the month (1-12), or in the whole year if month is null.
+    public Map<String, Object> getDoctorWithMostPatients(int year, Integer month) {
+        Map<String, Object> map = getLeaderboard(year, month, 1);
+        List<?> doctors = (List<?>) map.remove("doctors");
+        Map<?, ?> top = doctors.isEmpty() ? null : (Map<?, ?>) doctors.get(0);
+        map.put("doctorId", top == null ? null : top.get("doctorId"));
+        map.put("patientsSeen", top == null ? 0L : top.get("patientsSeen"));
+        return map;
+    }
+
+    // The `limit` doctors with the most appointments in the month (1-12), or in the whole year if month is null.
+    public Map<String, Object> getLeaderboard(int year, Integer month, int limit) {
+        LocalDate start = month == null ? LocalDate.of(year, 1, 1) : LocalDate.of(year, month, 1);
+        LocalDate end = month == null ? start.plusYears(1) : start.plusMonths(1);
+        doctorRollups.flushIfIdle();
+
+        List<Map<String, Object>> doctors = new ArrayList<>();
+        for (Object[] row : dailyCounts.sumBookedByDoctor(start, end, Limit.of(limit))) {
+            Map<String, Object> doctor = new HashMap<>();
+            doctor.put("doctorId", row[0]);
+            doctor.put("patientsSeen", row[1]);
+            doctors.add(doctor);
+        }
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("start", start);
+        map.put("end", end);
+        map.put("doctors", doctors);
+        return map;
+    }
+
+    // Booked and completed appointments per doctor for the days in [start, end), against their
+    // capacity: today's available time slots times the number of days.
+    public Map<String, Object> getUtilization(LocalDate start, LocalDate end) {
+        doctorRollups.flushIfIdle();
+        Map<Long, Object[]> counts = new HashMap<>();
+        for (Object[] row : dailyCounts.sumByDoctor(start, end)) {
+            counts.put((Long) row[0], row);
+        }
+        long days = ChronoUnit.DAYS.between(start, end);
+
+        List<Map<String, Object>> doctors = new ArrayList<>();
+        for (Doctor doctor : doctorRepository.findAllWithAvailableTimes()) {
+            Object[] row = counts.get(doctor.getId());
+            long booked = row == null ? 0L : ((Number) row[1]).longValue();
+            long completed = row == null ? 0L : ((Number) row[2]).longValue();
+            long capacity = (doctor.getAvailableTimes() == null ? 0 : doctor.getAvailableTimes().size()) * days;
+
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("doctorId", doctor.getId());
+            entry.put("name", doctor.getName());
+            entry.put("booked", booked);
+            entry.put("completed", completed);
+            entry.put("capacity", capacity);
+            entry.put("utilization", capacity == 0 ? null : (double) booked / capacity);
+            doctors.add(entry);
+        }
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("start", start);
+        map.put("end", end);
+        map.put("doctors", doctors);
+        return map;
+    }
+}
@@ -1,6 +1,7 @@
 package com.project.back_end.services;
 
 import com.project.back_end.DTO.Login;
+import com.project.back_end.DTO.PageCursor;
 import com.project.back_end.models.Admin;
 import com.project.back_end.models.Appointment;
 import com.project.back_end.models.Doctor;
@@ -8,15 +9,14 @@ import com.project.back_end.models.Patient;
 import com.project.back_end.repo.AdminRepository;
 import com.project.back_end.repo.DoctorRepository;
 import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.TokenEpochRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
-import java.time.LocalDate;
-import java.time.LocalTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 @org.springframework.stereotype.Service
 public class Service {
@@ -27,15 +27,41 @@ public class Service {
     private final DoctorService doctorService;
     private final PatientRepository patientRepository;
     private final PatientService patientService;
+    private final TokenEpochRegistry tokenEpochRegistry;
+    private final AvailabilityIndex availabilityIndex;
+    private final DoctorDirectoryCache doctorDirectoryCache;
+    private final SlotHolds slotHolds;
+
+    // Distinguishes this node's version counters from those of an earlier run
+    private final String etagEpoch = Long.toString(System.currentTimeMillis(), 36);
+
+    @Value("${doctor.directory.ttl-seconds:300}")
+    private long directoryTtlSeconds;
+
+    @Value("${availability.index.ttl-seconds:60}")
+    private long availabilityTtlSeconds;
+
+    // Page size of the keyset-paginated lists when the client does not ask for one, and the most it may ask for
+    @Value("${paging.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${paging.max-size:200}")
+    private int maxPageSize;
 
     public Service(TokenService tokenService, AdminRepository adminRepository, DoctorService doctorService,
-            DoctorRepository doctorRepository, PatientRepository patientRepository,PatientService patientService) {
+            DoctorRepository doctorRepository, PatientRepository patientRepository,PatientService patientService,
+            TokenEpochRegistry tokenEpochRegistry, AvailabilityIndex availabilityIndex,
+            DoctorDirectoryCache doctorDirectoryCache, SlotHolds slotHolds) {
         this.tokenService = tokenService;
         this.adminRepository = adminRepository;
         this.doctorService = doctorService;
         this.doctorRepository = doctorRepository;
         this.patientRepository = patientRepository;
         this.patientService=patientService;
+        this.tokenEpochRegistry = tokenEpochRegistry;
+        this.availabilityIndex = availabilityIndex;
+        this.doctorDirectoryCache = doctorDirectoryCache;
+        this.slotHolds = slotHolds;
     }
 
     public ResponseEntity<Map<String, String>> validateToken(String token, String user) {
@@ -46,13 +72,29 @@ public class Service {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
     }
 
+    // success: 1, unknown role: -1
+    public int revokeTokens(String role, Long userId) {
+        if (!role.equals("admin") && !role.equals("doctor") && !role.equals("patient")) {
+            return -1;
+        }
+        tokenEpochRegistry.revoke(role, userId);
+        return 1;
+    }
+
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("tokenCache", tokenService.getCacheStats());
+        map.put("doctorDirectory", doctorDirectoryCache.stats());
+        return map;
+    }
+
     public ResponseEntity<Map<String, String>> validateAdmin(Admin receivedAdmin) {
         Map<String, String> map = new HashMap<>();
         try {
             Admin admin = adminRepository.findByUsername(receivedAdmin.getUsername());
             if (admin != null) {
                 if (admin.getPassword().equals(receivedAdmin.getPassword())) {
-                    map.put("token", tokenService.generateToken(admin.getUsername()));
+                    map.put("token", tokenService.generateToken(admin.getUsername(), "admin", admin.getId(), admin.getUsername()));
                     return ResponseEntity.status(HttpStatus.OK).body(map);
                 } else {
                     map.put("error", "Password does not match");
@@ -69,56 +111,51 @@ public class Service {
         }
     }
 
-    public Map<String, Object> filterDoctor(String name, String specility, String time) {
-        Map<String, Object> map = new HashMap<>();
-        if (!name.equals("null") && !time.equals("null") && !specility.equals("null")) {
-            map = doctorService.filterDoctorsByNameSpecilityandTime(name, specility, time);
-        }
-
-        else if (!name.equals("null") && !time.equals("null")) {
-            map = doctorService.filterDoctorByNameAndTime(name, time);
-        } else if (!name.equals("null") && !specility.equals("null")) {
-            map = doctorService.filterDoctorByNameAndSpecility(name, specility);
-        } else if (!specility.equals("null") && !time.equals("null")) {
-            map = doctorService.filterDoctorByTimeAndSpecility(specility, time);
-        } else if (!name.equals("null")) {
-            map = doctorService.findDoctorByName(name);
-        } else if (!specility.equals("null")) {
-            map = doctorService.filterDoctorBySpecility(specility);
-        } else if (!time.equals("null")) {
-            map = doctorService.filterDoctorsByTime(time);
-        } else {
-            map.put("doctors", doctorService.getDoctors());
-        }
-        return map;
+    // Every doctor as the JSON body {"doctors": [...]}, from the directory cache when possible.
+    public byte[] listDoctors() {
+        return doctorDirectoryCache.all(doctorService::getDoctors);
+    }
 
+    // The requested page size, clamped to 1..paging.max-size.
+    public int pageSize(Integer requested) {
+        return requested == null ? defaultPageSize : Math.max(1, Math.min(requested, maxPageSize));
     }
 
-    public int validateAppointment(Appointment appointment) {
-        Doctor doctor = appointment.getDoctor();
-        Optional<Doctor> result = doctorRepository.findById(doctor.getId());
-        if (result.isEmpty()) {
-            return -1;
-        }
-        LocalDate appointmentDate = appointment.getAppointmentDate();
-        LocalTime appointmentTime = appointment.getAppointmentTimeOnly();
-        List<String> availableTime = doctorService.getDoctorAvailability(doctor.getId(), appointmentDate);
+    // Strong ETag for the doctor listings. It changes with every doctor write on this node,
+    // and at least once per directory TTL so writes made on other nodes are picked up.
+    public String doctorsEtag() {
+        return etag("d", doctorDirectoryCache.version(), directoryTtlSeconds);
+    }
 
-        for (String timeSlot : availableTime) {
-            // Split the available time slot into start and end times (e.g., "9:00-10:00" ->
-            // ["9:00", "10:00"])
-            String[] times = timeSlot.split("-");
+    // Strong ETag for availability, which also changes with every booking, cancellation and hold.
+    // Patients see their own holds as free, so their tags carry their id.
+    public String availabilityEtag(Long patientId) {
+        return etag("a", doctorDirectoryCache.version() + "." + availabilityIndex.version() + "." + slotHolds.version()
+                + (patientId == null ? "" : ".p" + patientId), availabilityTtlSeconds);
+    }
 
-            // Parse the start time and end time as LocalTime
-            LocalTime startTime = LocalTime.parse(times[0]);
+    private String etag(String kind, Object version, long ttlSeconds) {
+        long period = System.currentTimeMillis() / (Math.max(1, ttlSeconds) * 1000);
+        return "\"" + kind + "-" + etagEpoch + "-" + version + "-" + period + "\"";
+    }
 
-            if (appointmentTime.equals(startTime)) {
-                return 1; // The appointment time matches the start time of an available slot
-            }
+    // The path segments use the literal string "null" for a filter that is not set.
+    // Returns the JSON body, from the directory cache when possible.
+    public byte[] filterDoctor(String name, String specility, String time, Integer page, int size) {
+        String n = unset(name);
+        String s = unset(specility);
+        String t = unset(time);
+        return doctorDirectoryCache.filtered(n, s, t, page, size, () -> doctorService.filterDoctors(n, s, t, page, size));
+    }
 
-        }
+    private static String unset(String value) {
+        return value == null || value.equals("null") ? null : value;
+    }
 
-        return 0;
+    // 1: a free slot starts at the appointment time, 0: taken or not offered, -1: unknown doctor
+    public int validateAppointment(Appointment appointment) {
+        Doctor doctor = appointment.getDoctor();
+        return availabilityIndex.checkSlot(doctor.getId(), appointment.getAppointmentTime());
     }
 
     public boolean validatePatient(Patient patient) {
@@ -135,7 +172,7 @@ public class Service {
             Patient result = patientRepository.findByEmail(login.getEmail());
             if (result != null) {
                 if (result.getPassword().equals(login.getPassword())) {
-                    map.put("token", tokenService.generateToken(login.getEmail()));
+                    map.put("token", tokenService.generateToken(result.getEmail(), "patient", result.getId(), result.getName()));
                     return ResponseEntity.status(HttpStatus.OK).body(map);
                 }
 
@@ -156,26 +193,26 @@ public class Service {
         }
     }
 
-    public ResponseEntity<Map<String,Object>> filterPatient(String condition,String name,String token)
+    // Returns the page of matching appointments after the cursor (see PatientService)
+    public ResponseEntity<Map<String,Object>> filterPatient(String condition,String name,AuthPrincipal patient,PageCursor after,Integer size)
     {
-        String extractedEmail = tokenService.extractEmail(token);
-        Long patientId = patientRepository.findByEmail(extractedEmail).getId();
+        Long patientId = patient.getId();
 
         if(name.equals("null") && !condition.equals("null"))
         {
-            return patientService.filterByCondition(condition,patientId);
+            return patientService.filterByCondition(condition,patientId,after,pageSize(size));
         }
         else if(condition.equals("null")&& !name.equals("null"))
         {
-            return patientService.filterByDoctor(name,patientId);
+            return patientService.filterByDoctor(name,patientId,after,pageSize(size));
         }
         else if(!condition.equals("null")&& !name.equals("null"))
         {
-            return patientService.filterByDoctorAndCondition(condition,name,patientId);
+            return patientService.filterByDoctorAndCondition(condition,name,patientId,after,pageSize(size));
         }
         else
         {
-            return patientService.getPatientAppointment(patientId,token);
+            return patientService.getPatientAppointment(patientId, after, pageSize(size));
         }
         
 
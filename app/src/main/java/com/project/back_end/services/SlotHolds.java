@@ -0,0 +1,221 @@
+package com.project.back_end.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-lived reservations of a doctor's slot while a patient fills in the booking form.
+ *
+ * Holds live only in memory. They are indexed by id and by (doctor, day, start minute), and
+ * a {@link DelayQueue} reaper drops each one when it expires. Lookups also ignore expired
+ * holds, so a slow reaper never keeps a slot blocked. Placing and confirming holds goes
+ * through {@link BookingEngine}, which serializes them with bookings of the same slot.
+ */
+@Component
+public class SlotHolds {
+
+    public static final class Hold implements Delayed {
+        private final String id;
+        private final Long doctorId;
+        private final LocalDateTime appointmentTime;
+        private final Long patientId;
+        private final long expiresAt;
+
+        Hold(String id, Long doctorId, LocalDateTime appointmentTime, Long patientId, long expiresAt) {
+            this.id = id;
+            this.doctorId = doctorId;
+            this.appointmentTime = appointmentTime;
+            this.patientId = patientId;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Long getDoctorId() {
+            return doctorId;
+        }
+
+        public LocalDateTime getAppointmentTime() {
+            return appointmentTime;
+        }
+
+        public Long getPatientId() {
+            return patientId;
+        }
+
+        boolean isExpired() {
+            return expiresAt <= System.currentTimeMillis();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiresAt, ((Hold) other).expiresAt);
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("holdId", id);
+            map.put("doctorId", doctorId);
+            map.put("appointmentTime", appointmentTime.toString());
+            map.put("expiresInSeconds", Math.max(0, getDelay(TimeUnit.SECONDS)));
+            return map;
+        }
+    }
+
+    private final Map<String, Hold> byId = new ConcurrentHashMap<>();
+    private final Map<AvailabilityIndex.DayKey, Map<Integer, Hold>> byDay = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> perPatient = new ConcurrentHashMap<>();
+    private final DelayQueue<Hold> expiry = new DelayQueue<>();
+    // Bumped whenever a hold is placed or released, since holds show up as taken slots
+    private final AtomicLong version = new AtomicLong();
+
+    @Value("${booking.hold.seconds:300}")
+    private long holdSeconds;
+
+    @Value("${booking.hold.max-per-patient:3}")
+    private int maxPerPatient;
+
+    private Thread reaper;
+
+    @PostConstruct
+    void start() {
+        reaper = new Thread(this::reap, "slot-hold-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        reaper.interrupt();
+    }
+
+    // The live hold on this slot, or null.
+    public Hold holdOn(Long doctorId, LocalDateTime appointmentTime) {
+        Map<Integer, Hold> day = byDay.get(new AvailabilityIndex.DayKey(doctorId, appointmentTime.toLocalDate()));
+        if (day == null) {
+            return null;
+        }
+        Hold hold = day.get(AvailabilityIndex.minuteOfDay(appointmentTime));
+        return hold == null || hold.isExpired() ? null : hold;
+    }
+
+    public boolean isHeldByOther(Long doctorId, LocalDateTime appointmentTime, Long patientId) {
+        Hold hold = holdOn(doctorId, appointmentTime);
+        return hold != null && !hold.patientId.equals(patientId);
+    }
+
+    // Start minutes of the doctor's slots on the date that are currently held.
+    public Set<Integer> heldMinutes(Long doctorId, LocalDate date) {
+        return heldMinutes(doctorId, date, null);
+    }
+
+    // As above, leaving out the patient's own holds (none if patientId is null).
+    public Set<Integer> heldMinutes(Long doctorId, LocalDate date, Long patientId) {
+        Map<Integer, Hold> day = byDay.get(new AvailabilityIndex.DayKey(doctorId, date));
+        if (day == null || day.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<Integer> held = new HashSet<>();
+        for (Map.Entry<Integer, Hold> e : day.entrySet()) {
+            if (!e.getValue().isExpired() && !e.getValue().patientId.equals(patientId)) {
+                held.add(e.getKey());
+            }
+        }
+        return held;
+    }
+
+    // The patient's live hold with this id, or null.
+    public Hold get(String holdId, Long patientId) {
+        Hold hold = byId.get(holdId);
+        return hold == null || hold.isExpired() || !hold.patientId.equals(patientId) ? null : hold;
+    }
+
+    // Holds the slot for the patient, replacing an expired hold or the patient's own.
+    // Returns null if the patient already holds the maximum number of slots. The caller
+    // must have checked that the slot is free and not held by someone else.
+    Hold place(Long doctorId, LocalDateTime appointmentTime, Long patientId) {
+        Hold existing = holdOn(doctorId, appointmentTime);
+        if (existing != null && existing.patientId.equals(patientId)) {
+            release(existing);
+        }
+        AtomicInteger count = perPatient.computeIfAbsent(patientId, id -> new AtomicInteger());
+        if (count.incrementAndGet() > maxPerPatient) {
+            count.decrementAndGet();
+            return null;
+        }
+        Hold hold = new Hold(UUID.randomUUID().toString(), doctorId, appointmentTime, patientId,
+                System.currentTimeMillis() + holdSeconds * 1000);
+        Hold[] replaced = new Hold[1];
+        byDay.compute(new AvailabilityIndex.DayKey(doctorId, appointmentTime.toLocalDate()), (key, day) -> {
+            Map<Integer, Hold> slots = day == null ? new ConcurrentHashMap<>() : day;
+            replaced[0] = slots.put(AvailabilityIndex.minuteOfDay(appointmentTime), hold);
+            return slots;
+        });
+        if (replaced[0] != null) {
+            forget(replaced[0]);
+        }
+        byId.put(hold.id, hold);
+        expiry.add(hold);
+        version.incrementAndGet();
+        return hold;
+    }
+
+    public void release(Hold hold) {
+        // Drop emptied day maps so the index does not grow with every day ever held.
+        byDay.computeIfPresent(new AvailabilityIndex.DayKey(hold.doctorId, hold.appointmentTime.toLocalDate()),
+                (key, day) -> {
+                    day.remove(AvailabilityIndex.minuteOfDay(hold.appointmentTime), hold);
+                    return day.isEmpty() ? null : day;
+                });
+        forget(hold);
+        version.incrementAndGet();
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    private void forget(Hold hold) {
+        if (byId.remove(hold.id) != null) {
+            AtomicInteger count = perPatient.get(hold.patientId);
+            if (count != null) {
+                count.decrementAndGet();
+            }
+        }
+        expiry.remove(hold);
+    }
+
+    private void reap() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                release(expiry.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
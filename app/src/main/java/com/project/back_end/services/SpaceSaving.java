@@ -0,0 +1,112 @@
+package com.project.back_end.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Space-Saving top-k: the heaviest items of a stream using at most `capacity` counters.
+ *
+ * A new item takes over the smallest counter when all are in use, inheriting its count as the
+ * item's possible overcount (`error`). Every item whose true count exceeds total / capacity is
+ * kept, and each reported count is at most `error` above the truth. Sketches merge by adding
+ * counts, charging an item missing from a full sketch that sketch's smallest count, then keeping
+ * the `capacity` largest, so per-month or per-node sketches combine into one with the same bounds.
+ */
+final class SpaceSaving<T> {
+
+    record Entry<T>(T item, long count, long error) {
+    }
+
+    private static final class Counter {
+        long count;
+        long error;
+
+        Counter(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    private final int capacity;
+    private final Map<T, Counter> counters = new HashMap<>();
+
+    SpaceSaving(int capacity) {
+        this.capacity = capacity;
+    }
+
+    synchronized void offer(T item) {
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            counter.count++;
+        } else if (counters.size() < capacity) {
+            counters.put(item, new Counter(1, 0));
+        } else {
+            // A linear scan is fine at the capacities used here (tens of counters)
+            T smallest = null;
+            Counter min = null;
+            for (Map.Entry<T, Counter> entry : counters.entrySet()) {
+                if (min == null || entry.getValue().count < min.count) {
+                    smallest = entry.getKey();
+                    min = entry.getValue();
+                }
+            }
+            counters.remove(smallest);
+            counters.put(item, new Counter(min.count + 1, min.count));
+        }
+    }
+
+    // Folds `other` into this sketch.
+    void merge(SpaceSaving<T> other) {
+        List<Entry<T>> theirs = other.top(Integer.MAX_VALUE);
+        long theirFloor = other.floor();
+        synchronized (this) {
+            long ourFloor = floor();
+            Set<T> items = new HashSet<>(counters.keySet());
+            Map<T, Entry<T>> byItem = new HashMap<>();
+            for (Entry<T> entry : theirs) {
+                byItem.put(entry.item(), entry);
+                items.add(entry.item());
+            }
+            List<Entry<T>> merged = new ArrayList<>(items.size());
+            for (T item : items) {
+                Counter ours = counters.get(item);
+                Entry<T> their = byItem.get(item);
+                merged.add(new Entry<>(item,
+                        (ours == null ? ourFloor : ours.count) + (their == null ? theirFloor : their.count()),
+                        (ours == null ? ourFloor : ours.error) + (their == null ? theirFloor : their.error())));
+            }
+            merged.sort(Comparator.comparingLong((Entry<T> e) -> e.count()).reversed());
+            counters.clear();
+            for (Entry<T> entry : merged.subList(0, Math.min(capacity, merged.size()))) {
+                counters.put(entry.item(), new Counter(entry.count(), entry.error()));
+            }
+        }
+    }
+
+    // The `limit` heaviest items, largest count first.
+    synchronized List<Entry<T>> top(int limit) {
+        List<Entry<T>> entries = new ArrayList<>(counters.size());
+        for (Map.Entry<T, Counter> entry : counters.entrySet()) {
+            entries.add(new Entry<>(entry.getKey(), entry.getValue().count, entry.getValue().error));
+        }
+        entries.sort(Comparator.comparingLong((Entry<T> e) -> e.count()).reversed());
+        return entries.size() > limit ? new ArrayList<>(entries.subList(0, limit)) : entries;
+    }
+
+    // The most an item without a counter can have been seen: 0 until every counter is in use.
+    private synchronized long floor() {
+        if (counters.size() < capacity) {
+            return 0;
+        }
+        long min = Long.MAX_VALUE;
+        for (Counter counter : counters.values()) {
+            min = Math.min(min, counter.count);
+        }
+        return min;
+    }
+}
@@ -1,90 +1,209 @@
 package com.project.back_end.services;
 
+import com.project.back_end.cache.BoundedCache;
 import com.project.back_end.models.Admin;
 import com.project.back_end.models.Doctor;
 import com.project.back_end.models.Patient;
 import com.project.back_end.repo.AdminRepository;
 import com.project.back_end.repo.DoctorRepository;
 import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.TokenEpochRegistry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.Map;
 
 @Component
 public class TokenService {
 
+    private static final String ROLE_CLAIM = "role";
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String NAME_CLAIM = "name";
+    private static final String EPOCH_CLAIM = "ep";
+
     @Value("${jwt.secret}")
     private String secret;
 
+    // How many verified tokens to remember and for how long. The TTL also bounds how
+    // long a deleted account keeps working with a token it already holds.
+    @Value("${jwt.cache.max-size:10000}")
+    private int cacheMaxSize;
+
+    @Value("${jwt.cache.ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
     private final AdminRepository adminRepository;
     private final DoctorRepository doctorRepository;
     private final PatientRepository patientRepository;
-    public TokenService(AdminRepository adminRepository,DoctorRepository doctorRepository,PatientRepository patientRepository) {
+
+    private final TokenEpochRegistry tokenEpochRegistry;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private BoundedCache<String, VerifiedToken> tokenCache;
+
+    public TokenService(AdminRepository adminRepository,DoctorRepository doctorRepository,PatientRepository patientRepository,
+            TokenEpochRegistry tokenEpochRegistry) {
         this.adminRepository=adminRepository;
         this.doctorRepository = doctorRepository;
         this.patientRepository=patientRepository;
+        this.tokenEpochRegistry = tokenEpochRegistry;
+    }
+
+    // A verified token together with the revocation epoch it was issued under.
+    private static final class VerifiedToken {
+        final AuthPrincipal principal;
+        final int epoch;
+
+        VerifiedToken(AuthPrincipal principal, int epoch) {
+            this.principal = principal;
+            this.epoch = epoch;
+        }
+    }
+
+    // The key and parser are immutable, so build them once instead of per call.
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parser().verifyWith(signingKey).build();
+        tokenCache = new BoundedCache<>("verifiedTokens", cacheMaxSize);
     }
 
-    // Return type changed to SecretKey to fix verifyWith(...) issue
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+        return signingKey;
     }
 
-    public String generateToken(String email) {
+    // The role, account id, display name and current revocation epoch are signed into the
+    // token so validating it needs no database lookup.
+    public String generateToken(String email, String role, Long userId, String name) {
         return Jwts.builder()
                 .subject(email)
+                .claim(ROLE_CLAIM, role)
+                .claim(USER_ID_CLAIM, userId)
+                .claim(NAME_CLAIM, name)
+                .claim(EPOCH_CLAIM, tokenEpochRegistry.currentEpoch(role, userId))
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + 1000L * 60 * 60 * 24 * 7))
                 .signWith(getSigningKey()) // clean & modern
                 .compact();
-    }    
+    }
 
     public String extractEmail(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey()) // No more error now
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+        VerifiedToken cached = tokenCache.get(token);
+        if (cached != null) {
+            return cached.principal.getEmail();
+        }
+        return parseClaims(token).getSubject();
+    }
+
+    private Claims parseClaims(String token) {
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     public boolean validateToken(String token,String user) {
+        return resolvePrincipal(token, user) != null;
+    }
+
+    // Returns the caller behind the token if it is valid for the given role and has not
+    // been revoked, or null. Tokens carrying a role claim are checked from their claims
+    // alone; older subject-only tokens still fall back to an account lookup.
+    public AuthPrincipal resolvePrincipal(String token, String user) {
+        VerifiedToken cached = tokenCache.get(token);
+        if (cached != null && cached.principal.hasRole(user)) {
+            return notRevoked(cached) ? cached.principal : null;
+        }
         try {
-            String extracted = extractEmail(token);
-            if(user.equals("admin"))
-            {
-                Admin admin =adminRepository.findByUsername(extracted);
-                if(admin!=null)
-                {
-                    return true;
+            Claims claims = parseClaims(token);
+            VerifiedToken verified;
+            if (claims.get(ROLE_CLAIM) != null) {
+                verified = fromClaims(claims);
+                if (!verified.principal.hasRole(user)) {
+                    return null;
                 }
-            }
-            else if(user.equals("doctor"))
-            {
-                Doctor doctor=doctorRepository.findByEmail(extracted);
-                if(doctor!=null)
-                {
-                    return true;
-                }
-            }
-            else if(user.equals("patient"))
-            {
-                Patient patient=patientRepository.findByEmail(extracted);
-                if(patient!=null)
-                {
-                    return true;
+            } else {
+                AuthPrincipal principal = lookupAccount(claims.getSubject(), user);
+                if (principal == null) {
+                    return null;
                 }
+                verified = new VerifiedToken(principal, 0);
             }
+            return remember(token, claims, verified);
+        } catch (Exception e) {
+            return null;
+        }
+    }
 
-            return false;
+    // Returns the caller behind a role-bearing token, whatever its role, or null. Used
+    // when the role is not part of the request (Authorization header); subject-only
+    // tokens are not accepted here because their role cannot be known.
+    public AuthPrincipal authenticate(String token) {
+        VerifiedToken cached = tokenCache.get(token);
+        if (cached != null) {
+            return notRevoked(cached) ? cached.principal : null;
+        }
+        try {
+            Claims claims = parseClaims(token);
+            if (claims.get(ROLE_CLAIM) == null) {
+                return null;
+            }
+            return remember(token, claims, fromClaims(claims));
         } catch (Exception e) {
-            return false;
+            return null;
+        }
+    }
+
+    private VerifiedToken fromClaims(Claims claims) {
+        AuthPrincipal principal = new AuthPrincipal(claims.get(USER_ID_CLAIM, Long.class),
+                claims.getSubject(), claims.get(NAME_CLAIM, String.class), claims.get(ROLE_CLAIM, String.class));
+        return new VerifiedToken(principal, claims.get(EPOCH_CLAIM, Integer.class));
+    }
+
+    private AuthPrincipal remember(String token, Claims claims, VerifiedToken verified) {
+        if (!notRevoked(verified)) {
+            return null;
         }
+        // Never keep a token past its own expiry.
+        long expiresAt = Math.min(claims.getExpiration().getTime(),
+                System.currentTimeMillis() + cacheTtlSeconds * 1000);
+        tokenCache.put(token, verified, expiresAt);
+        return verified.principal;
+    }
+
+    private boolean notRevoked(VerifiedToken verified) {
+        AuthPrincipal principal = verified.principal;
+        return verified.epoch >= tokenEpochRegistry.currentEpoch(principal.getRole(), principal.getId());
+    }
+
+    private AuthPrincipal lookupAccount(String extracted, String user) {
+        if ("admin".equals(user)) {
+            Admin admin = adminRepository.findByUsername(extracted);
+            if (admin != null) {
+                return new AuthPrincipal(admin.getId(), admin.getUsername(), admin.getUsername(), user);
+            }
+        } else if ("doctor".equals(user)) {
+            Doctor doctor = doctorRepository.findByEmail(extracted);
+            if (doctor != null) {
+                return new AuthPrincipal(doctor.getId(), doctor.getEmail(), doctor.getName(), user);
+            }
+        } else if ("patient".equals(user)) {
+            Patient patient = patientRepository.findByEmail(extracted);
+            if (patient != null) {
+                return new AuthPrincipal(patient.getId(), patient.getEmail(), patient.getName(), user);
+            }
+        }
+        return null;
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return tokenCache.stats();
     }
 
-   
 }
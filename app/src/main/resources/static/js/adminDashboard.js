@@ -1,6 +1,6 @@
 // adminDashboard.js
 import { openModal } from './components/modals.js';
-import { getDoctors  , filterDoctors , saveDoctor } from './services/doctorServices.js';
+import { getDoctors  , filterDoctors , saveDoctor , attachDoctorSuggestions } from './services/doctorServices.js';
 import { createDoctorCard } from './components/doctorCard.js';
 document.getElementById('addDocBtn').addEventListener('click', () => {
   openModal('addDoctor');
@@ -26,6 +26,7 @@ export function loadDoctorCards() {
     });
 }
 
+attachDoctorSuggestions(document.getElementById("searchBar"));
 document.getElementById("searchBar").addEventListener("input", filterDoctorsOnChange);
 document.getElementById("filterTime").addEventListener("change", filterDoctorsOnChange);
 document.getElementById("filterSpecialty").addEventListener("change", filterDoctorsOnChange);
@@ -1,11 +1,13 @@
 // Import required services
-import { getDoctorAppointments, updateDoctorAvailability } from './services/doctorServices.js';
+import { getDoctorCalendar, updateDoctorAvailability } from './services/doctorServices.js';
 
 // Current view/date
 let currentDate = new Date();
 let currentView = 'month';
 let doctorAppointments = [];
 let doctorAvailability = [];
+// "start/end" of the range doctorAppointments holds, so navigation only fetches when the visible range changes
+let loadedRange = null;
 
 // DOM elements
 const calendarGrid = document.getElementById('calendarGrid');
@@ -162,17 +164,52 @@ function setActiveView(view) {
 
 // Fetch doctor appointments and availability
 async function fetchDoctorData(token) {
-  try {
-    // Get doctor appointments using token (doctor inferred on backend)
-    const response = await getDoctorAppointments({ condition: null, patientName: null, token });
-    doctorAppointments = response.appointments || [];
+  // Generate sample availability for UI
+  doctorAvailability = generateSampleAvailability();
+
+  // Appointments are loaded per visible range by renderCalendar
+  renderCalendar();
+}
 
-    // Generate sample availability for UI
-    doctorAvailability = generateSampleAvailability();
+// Days shown by the current view: [start, end)
+function visibleRange() {
+  const start = new Date(currentDate.getFullYear(), currentDate.getMonth(), currentDate.getDate());
+  let days = 1;
+  if (currentView === 'week') {
+    start.setDate(start.getDate() - start.getDay());
+    days = 7;
+  } else if (currentView === 'month') {
+    // The month grid starts on the Sunday before the 1st and shows 6 weeks
+    start.setDate(1);
+    start.setDate(1 - start.getDay());
+    days = 42;
+  }
+  const end = new Date(start);
+  end.setDate(start.getDate() + days);
+  return { start, end };
+}
 
+// Fetch the visible range in one request if it is not already loaded, then redraw
+async function loadVisibleRange() {
+  const { start, end } = visibleRange();
+  const range = `${formatDate(start)}/${formatDate(end)}`;
+  if (range === loadedRange) return;
+  loadedRange = range;
+  try {
+    const response = await getDoctorCalendar(formatDate(start), formatDate(end), localStorage.getItem('token'));
+    // Ignore the answer if the user has navigated on in the meantime
+    if (range !== loadedRange) return;
+    if (response.failed) {
+      throw new Error('calendar request failed');
+    }
+    doctorAppointments = response.appointments || [];
     renderCalendar();
   } catch (error) {
     console.error('Error fetching doctor data:', error);
+    // Forget the range so the next navigation or refresh fetches it again
+    if (range === loadedRange) {
+      loadedRange = null;
+    }
     alert('Failed to load your appointments. Please try again later.');
   }
 }
@@ -246,6 +283,8 @@ function renderCalendar() {
 
   // Update month/year display
   updateCurrentMonthYearDisplay();
+
+  loadVisibleRange();
 }
 
 // Update the month/year display
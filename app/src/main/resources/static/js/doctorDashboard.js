@@ -1,5 +1,6 @@
 import { getAllAppointments, getAppointmentsByFilter } from "./services/appointmentRecordService.js";
 import { createPatientRow } from "./components/patientRows.js";
+import { attachLoadMore } from "./services/pagedFetch.js";
 
 const tableBody = document.getElementById("patientTableBody");
 let selectedDate = new Date().toISOString().split('T')[0];
@@ -7,6 +8,12 @@ let token = localStorage.getItem("token");
 let patientName = null;
 let currentFilter = "today"; // Track current filter mode
 
+// The "future" and "all" lists come one page at a time; listVersion drops pages of a list
+// the doctor has already moved away from
+let nextCursor = null;
+let listVersion = 0;
+const loadMore = attachLoadMore(document.getElementById("patientTable"), loadNextPage);
+
 document.getElementById("searchBar").addEventListener("input", (e) => {
   const value = e.target.value.trim();
   patientName = value.length > 0 ? value : "null";
@@ -43,20 +50,23 @@ document.getElementById("datePicker").addEventListener("change", (e) => {
 });
 
 async function loadAppointments() {
+  const version = ++listVersion;
+  loadMore.setHasMore(false);
   try {
     let response;
     let appointments = [];
 
     if (currentFilter === "future" || currentFilter === "all") {
-      // Use filter-based API for future and all appointments
-      const filterCondition = currentFilter === "all" ? null : currentFilter;
-      response = await getAppointmentsByFilter(filterCondition, patientName, token);
+      // Use filter-based API for future and all appointments, first page only
+      response = await getAppointmentsByFilter(filterCondition(), patientName, token);
       appointments = response.appointments || [];
     } else {
       // Use date-specific API for today/specific date
       response = await getAllAppointments(selectedDate, patientName, token);
       appointments = response.appointments || [];
     }
+    if (version !== listVersion) return;
+    nextCursor = response.nextCursor ?? null;
 
     tableBody.innerHTML = "";
 
@@ -68,24 +78,43 @@ async function loadAppointments() {
       return;
     }
 
-    console.log(appointments);
-    appointments.forEach(appointment => {
-      const patient = {
-        id: appointment.patientId,
-        name: appointment.patientName,
-        phone: appointment.patientPhone,
-        email: appointment.patientEmail,
-      };
-      console.log(appointment.doctorId);
-      const row = createPatientRow(patient, appointment.id, appointment.doctorId);
-      tableBody.appendChild(row);
-    });
+    appendRows(appointments);
+    loadMore.setHasMore(nextCursor !== null);
   } catch (error) {
+    if (version !== listVersion) return;
     console.error("Error loading appointments:", error);
     tableBody.innerHTML = `<tr><td colspan="5">Error loading appointments. Try again later.</td></tr>`;
   }
 }
 
+async function loadNextPage() {
+  if (nextCursor === null) return;
+  const version = listVersion;
+  const response = await getAppointmentsByFilter(filterCondition(), patientName, token, nextCursor);
+  if (version !== listVersion) return;
+
+  appendRows(response.appointments || []);
+  nextCursor = response.nextCursor;
+  loadMore.setHasMore(nextCursor !== null);
+}
+
+function filterCondition() {
+  return currentFilter === "all" ? null : currentFilter;
+}
+
+function appendRows(appointments) {
+  appointments.forEach(appointment => {
+    const patient = {
+      id: appointment.patientId,
+      name: appointment.patientName,
+      phone: appointment.patientPhone,
+      email: appointment.patientEmail,
+    };
+    const row = createPatientRow(patient, appointment.id, appointment.doctorId);
+    tableBody.appendChild(row);
+  });
+}
+
 window.addEventListener("DOMContentLoaded", () => {
   renderContent();
   loadAppointments();
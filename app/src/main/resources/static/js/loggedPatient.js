@@ -1,7 +1,7 @@
 import { getDoctors } from './services/doctorServices.js';
 import { createDoctorCard } from './components/doctorCard.js';
-import { filterDoctors } from './services/doctorServices.js';
-import { bookAppointment } from './services/appointmentRecordService.js';
+import { filterDoctors, attachDoctorSuggestions } from './services/doctorServices.js';
+import { bookAppointment, holdSlot, confirmHold, releaseHold } from './services/appointmentRecordService.js';
 import { chatbotReceptionist } from './services/chatbotReceptionist.js';
 
 // --- Chat persistence and UX helpers ---
@@ -172,7 +172,22 @@ function loadDoctorCards() {
 }
 
 // Function to close the booking modal
+// Slot held for the open booking form, released if the form is closed without booking
+let currentHoldId = null;
+// Bumped whenever the held slot is dropped, so a hold request still in flight knows it is stale
+let holdRequest = 0;
+let pendingHold = null;
+
+function dropCurrentHold() {
+  holdRequest++;
+  if (currentHoldId) {
+    releaseHold(currentHoldId, localStorage.getItem("token"));
+    currentHoldId = null;
+  }
+}
+
 function closeBookingModal() {
+  dropCurrentHold();
   const ripple = document.querySelector(".ripple-overlay");
   const modalApp = document.querySelector(".modalApp");
   const backdrop = document.querySelector(".modal-backdrop");
@@ -268,26 +283,72 @@ export function showBookingOverlay(e, doctor, patient) {
 
   setTimeout(() => modalApp.classList.add("active"), 600);
 
-  modalApp.querySelector(".confirm-booking").addEventListener("click", async () => {
+  const buildAppointment = () => {
     const date = modalApp.querySelector("#appointment-date").value;
     const time = modalApp.querySelector("#appointment-time").value;
-
-    // Validate inputs
     if (!date || !time) {
-      alert("Please select both date and time for your appointment.");
-      return;
+      return null;
     }
-
-    const token = localStorage.getItem("token");
     const startTime = time.split('-')[0];
-    const appointment = {
+    return {
       doctor: { id: doctor.id },
       patient: { id: patient.id },
       appointmentTime: `${date}T${startTime}:00`,
       status: 0
     };
-  
-    const { success, message } = await bookAppointment(appointment, token);
+  };
+
+  // Hold the slot as soon as both date and time are picked, so it cannot be taken while the form is open
+  const holdSelectedSlot = () => {
+    dropCurrentHold();
+    const appointment = buildAppointment();
+    if (!appointment) {
+      return;
+    }
+    const request = holdRequest;
+    const token = localStorage.getItem("token");
+    pendingHold = holdSlot(appointment, token).then(({ success, holdId, message }) => {
+      if (request !== holdRequest) {
+        // The date or time changed, or the modal closed, while this hold was in flight
+        if (success) {
+          releaseHold(holdId, token);
+        }
+        return;
+      }
+      if (success) {
+        currentHoldId = holdId;
+      } else {
+        alert("❌ This slot is not available :: " + message);
+      }
+    });
+  };
+  modalApp.querySelector("#appointment-date").addEventListener("change", holdSelectedSlot);
+  modalApp.querySelector("#appointment-time").addEventListener("change", holdSelectedSlot);
+
+  modalApp.querySelector(".confirm-booking").addEventListener("click", async () => {
+    const appointment = buildAppointment();
+
+    // Validate inputs
+    if (!appointment) {
+      alert("Please select both date and time for your appointment.");
+      return;
+    }
+
+    // Let a hold still in flight for this slot land, so it is confirmed rather than left behind
+    await pendingHold;
+    const token = localStorage.getItem("token");
+    let result;
+    if (currentHoldId) {
+      result = await confirmHold(currentHoldId, token);
+      currentHoldId = null;
+      if (result.expired) {
+        // The hold ran out; try a normal booking instead
+        result = await bookAppointment(appointment, token);
+      }
+    } else {
+      result = await bookAppointment(appointment, token);
+    }
+    const { success, message } = result;
 
     if (success) {
       alert("Appointment Booked successfully");
@@ -298,8 +359,8 @@ export function showBookingOverlay(e, doctor, patient) {
   });
 }
 
-
 // Filter Input
+attachDoctorSuggestions(document.getElementById("searchBar"));
 document.getElementById("searchBar").addEventListener("input", filterDoctorsOnChange);
 document.getElementById("filterTime").addEventListener("change", filterDoctorsOnChange);
 document.getElementById("filterSpecialty").addEventListener("change", filterDoctorsOnChange);
@@ -1,12 +1,19 @@
 import { getPatientAppointments, getPatientData, filterAppointments, cancelAppointment } from "./services/patientServices.js";
+import { attachLoadMore } from "./services/pagedFetch.js";
 
 const tableBody = document.getElementById("patientTableBody");
 const token = localStorage.getItem("token");
 
 let allAppointments = [];
-let filteredAppointments = [];
 let patientId = null; 
 
+// The list shows one page at a time; fetchCurrent fetches a page of whatever list is showing
+// (all appointments or the current filter) and listVersion drops pages of a list the user left.
+let fetchCurrent = null;
+let nextCursor = null;
+let listVersion = 0;
+const loadMore = attachLoadMore(document.getElementById("patientTable"), loadNextPage);
+
 document.addEventListener("DOMContentLoaded", initializePage);
 
 async function initializePage() {
@@ -18,16 +25,43 @@ async function initializePage() {
 
     patientId = Number(patient.id);
 
-    const appointmentData = await getPatientAppointments(patientId, token ,"patient") || [];
-    allAppointments = appointmentData.filter(app => app.patientId === patientId);
-
-    renderAppointments(allAppointments);
+    await showFirstPage(cursor => getPatientAppointments(patientId, token, "patient", cursor));
   } catch (error) {
     console.error("Error loading appointments:", error);
     alert("❌ Failed to load your appointments.");
   }
 }
 
+async function showFirstPage(fetcher) {
+  const version = ++listVersion;
+  fetchCurrent = fetcher;
+  const page = await fetcher(null) || { appointments: [], nextCursor: null };
+  if (version !== listVersion) return;
+
+  allAppointments = page.appointments.filter(app => app.patientId === patientId);
+  nextCursor = page.nextCursor;
+  renderAppointments(allAppointments);
+  loadMore.setHasMore(nextCursor !== null);
+}
+
+async function loadNextPage() {
+  if (nextCursor === null) return;
+  const version = listVersion;
+  const page = await fetchCurrent(nextCursor) || { appointments: [], nextCursor: null };
+  if (version !== listVersion) return;
+
+  const more = page.appointments.filter(app => app.patientId === patientId);
+  const wasEmpty = !allAppointments.length;
+  allAppointments.push(...more);
+  nextCursor = page.nextCursor;
+  if (wasEmpty) {
+    renderAppointments(allAppointments); // replaces the "No Appointments Found" row
+  } else {
+    appendAppointments(more);
+  }
+  loadMore.setHasMore(nextCursor !== null);
+}
+
 function renderAppointments(appointments) {
   tableBody.innerHTML = "";
 
@@ -41,6 +75,10 @@ function renderAppointments(appointments) {
     return;
   }
 
+  appendAppointments(appointments);
+}
+
+function appendAppointments(appointments) {
   appointments.forEach(appointment => {
     const tr = document.createElement("tr");
 
@@ -108,10 +146,8 @@ async function handleCancelAppointment(appointmentId) {
     if (result.success) {
       alert("✅ " + result.message);
 
-      // Refresh the appointments list
-      const appointmentData = await getPatientAppointments(patientId, token, "patient") || [];
-      allAppointments = appointmentData.filter(app => app.patientId === patientId);
-      renderAppointments(allAppointments);
+      // Refresh the appointments list from its first page
+      await showFirstPage(fetchCurrent);
 
     } else {
       alert("❌ " + result.message);
@@ -166,11 +202,7 @@ async function handleFilterChange() {
   const condition = filterValue === "allAppointments"? null : filterValue || null;
 
   try {
-    const response = await filterAppointments(condition, name, token);
-    const appointments = response?.appointments || [];
-    filteredAppointments = appointments.filter(app => app.patientId === patientId);
-
-    renderAppointments(filteredAppointments);
+    await showFirstPage(cursor => filterAppointments(condition, name, token, cursor));
   } catch (error) {
     console.error("Failed to filter appointments:", error);
     alert("❌ An error occurred while filtering appointments.");
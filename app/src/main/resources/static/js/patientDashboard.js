@@ -1,7 +1,7 @@
 import { getDoctors } from './services/doctorServices.js';
 import { openModal } from './components/modals.js';
 import { createDoctorCard } from './components/doctorCard.js';
-import { filterDoctors } from './services/doctorServices.js';//call the same function to avoid duplication coz the functionality was same
+import { filterDoctors, attachDoctorSuggestions } from './services/doctorServices.js';//call the same function to avoid duplication coz the functionality was same
 import { patientSignup , patientLogin} from './services/patientServices.js';
 import { symptomAnalyzer } from './services/aiSymptomAnalyzer.js';
 import { chatbotReceptionist } from './services/chatbotReceptionist.js';
@@ -102,6 +102,7 @@ function loadDoctorCards() {
     });
 }
 // Filter Input
+attachDoctorSuggestions(document.getElementById("searchBar"));
 document.getElementById("searchBar").addEventListener("input", filterDoctorsOnChange);
 document.getElementById("filterTime").addEventListener("change", filterDoctorsOnChange);
 document.getElementById("filterSpecialty").addEventListener("change", filterDoctorsOnChange);
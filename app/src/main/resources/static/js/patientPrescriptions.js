@@ -1,5 +1,6 @@
 import { getPatientPrescriptions, deletePrescription } from "./services/prescriptionServices.js";
 import { getPatientData } from "./services/patientServices.js";
+import { attachLoadMore } from "./services/pagedFetch.js";
 
 const prescriptionsContainer = document.getElementById("prescriptionsContainer");
 const noPrescriptionsDiv = document.getElementById("noPrescriptions");
@@ -9,6 +10,11 @@ const token = localStorage.getItem("token");
 let allPrescriptions = [];
 let filteredPrescriptions = [];
 
+// Prescriptions arrive one page at a time; search covers the pages loaded so far
+let patientName = null;
+let nextCursor = null;
+const loadMore = attachLoadMore(prescriptionsContainer, loadNextPage);
+
 document.addEventListener("DOMContentLoaded", initializePage);
 
 async function initializePage() {
@@ -23,18 +29,39 @@ async function initializePage() {
       throw new Error("Failed to fetch patient details");
     }
 
-    // Fetch patient's prescriptions
-    const prescriptionData = await getPatientPrescriptions(patient.name, token);
-    allPrescriptions = prescriptionData.prescriptions || [];
-    filteredPrescriptions = [...allPrescriptions];
+    // Fetch the first page of the patient's prescriptions
+    patientName = patient.name;
+    const prescriptionData = await getPatientPrescriptions(patientName, token);
+    allPrescriptions = prescriptionData.prescriptions;
+    filteredPrescriptions = allPrescriptions.filter(matchesSearch);
+    nextCursor = prescriptionData.nextCursor;
 
     renderPrescriptions(filteredPrescriptions);
+    loadMore.setHasMore(nextCursor !== null);
   } catch (error) {
     console.error("Error loading prescriptions:", error);
     showError("❌ Failed to load your prescriptions. Please try again later.");
   }
 }
 
+async function loadNextPage() {
+  if (nextCursor === null) return;
+  const prescriptionData = await getPatientPrescriptions(patientName, token, nextCursor);
+
+  const more = prescriptionData.prescriptions;
+  const matching = more.filter(matchesSearch);
+  const wasEmpty = !filteredPrescriptions.length;
+  allPrescriptions.push(...more);
+  filteredPrescriptions.push(...matching);
+  nextCursor = prescriptionData.nextCursor;
+  if (wasEmpty) {
+    renderPrescriptions(filteredPrescriptions); // hides the "no prescriptions" message
+  } else {
+    matching.forEach(prescription => prescriptionsContainer.appendChild(createPrescriptionCard(prescription)));
+  }
+  loadMore.setHasMore(nextCursor !== null);
+}
+
 function renderPrescriptions(prescriptions) {
   prescriptionsContainer.innerHTML = "";
   noPrescriptionsDiv.style.display = "none";
@@ -115,19 +142,17 @@ function createPrescriptionCard(prescription) {
 }
 
 // Search functionality
-searchBar.addEventListener("input", (e) => {
-  const searchTerm = e.target.value.toLowerCase().trim();
+function matchesSearch(prescription) {
+  const searchTerm = searchBar.value.toLowerCase().trim();
 
-  if (searchTerm === "") {
-    filteredPrescriptions = [...allPrescriptions];
-  } else {
-    filteredPrescriptions = allPrescriptions.filter(prescription =>
-      prescription.medication.toLowerCase().includes(searchTerm) ||
-      prescription.dosage.toLowerCase().includes(searchTerm) ||
-      (prescription.doctorNotes && prescription.doctorNotes.toLowerCase().includes(searchTerm))
-    );
-  }
+  return searchTerm === "" ||
+    prescription.medication.toLowerCase().includes(searchTerm) ||
+    prescription.dosage.toLowerCase().includes(searchTerm) ||
+    (prescription.doctorNotes && prescription.doctorNotes.toLowerCase().includes(searchTerm));
+}
 
+searchBar.addEventListener("input", () => {
+  filteredPrescriptions = allPrescriptions.filter(matchesSearch);
   renderPrescriptions(filteredPrescriptions);
 });
 
@@ -1,5 +1,6 @@
 import { getPatientAppointments } from "./services/patientServices.js";
 import { createPatientRecordRow } from './components/patientRecordRow.js';
+import { attachLoadMore } from "./services/pagedFetch.js";
 
 const tableBody = document.getElementById("patientTableBody");
 const token = localStorage.getItem("token");
@@ -8,25 +9,47 @@ const urlParams = new URLSearchParams(window.location.search);
 const patientId = urlParams.get("id");
 const doctorId = urlParams.get("doctorId");
 
+// The record shows one page at a time; later pages are appended on demand
+let records = [];
+let nextCursor = null;
+const loadMore = attachLoadMore(document.getElementById("patientTable"), loadNextPage);
+
 document.addEventListener("DOMContentLoaded", initializePage);
 
 async function initializePage() {
   try {
     if (!token) throw new Error("No token found");
 
-    const appointmentData = await getPatientAppointments(patientId, token, "doctor") || [];
+    const page = await getPatientAppointments(patientId, token, "doctor") || { appointments: [], nextCursor: null };
 
     // Filter by both patientId and doctorId
-    const filteredAppointments = appointmentData.filter(app => 
+    records = page.appointments.filter(app => 
       app.doctorId == doctorId);
-    console.log(filteredAppointments)
-    renderAppointments(filteredAppointments);
+    nextCursor = page.nextCursor;
+    renderAppointments(records);
+    loadMore.setHasMore(nextCursor !== null);
   } catch (error) {
     console.error("Error loading appointments:", error);
     alert("❌ Failed to load your appointments.");
   }
 }
 
+async function loadNextPage() {
+  if (nextCursor === null) return;
+  const page = await getPatientAppointments(patientId, token, "doctor", nextCursor) || { appointments: [], nextCursor: null };
+
+  const more = page.appointments.filter(app => app.doctorId == doctorId);
+  const wasEmpty = !records.length;
+  records.push(...more);
+  nextCursor = page.nextCursor;
+  if (wasEmpty) {
+    renderAppointments(records); // replaces the "No Appointments Found" row
+  } else {
+    more.forEach(appointment => tableBody.appendChild(createPatientRecordRow(appointment)));
+  }
+  loadMore.setHasMore(nextCursor !== null);
+}
+
 function renderAppointments(appointments) {
   tableBody.innerHTML = "";
 
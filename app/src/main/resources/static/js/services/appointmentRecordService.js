@@ -1,4 +1,5 @@
 import { API_BASE_URL } from "../config/config.js";
+import { fetchPage } from "./pagedFetch.js";
 const APPOINTMENT_API = `${API_BASE_URL}/appointments`;
 
 
@@ -13,9 +14,10 @@ export async function getAllAppointments(date, patientName, token) {
 }
 
 //This is for the doctor to get appointments by filter condition (future, all, etc.)
-export async function getAppointmentsByFilter(condition, patientName, token) {
+// One page after `cursor` (the first if null); pass the returned nextCursor for the next one.
+export async function getAppointmentsByFilter(condition, patientName, token, cursor = null) {
   try {
-    const response = await fetch(`${APPOINTMENT_API}/filter/${condition}/${patientName}/${token}`, {
+    const { response, items, nextCursor } = await fetchPage(`${APPOINTMENT_API}/filter/${condition}/${patientName}/${token}`, "appointments", cursor, {
       method: "GET",
       headers: {
         "Content-Type": "application/json",
@@ -23,15 +25,14 @@ export async function getAppointmentsByFilter(condition, patientName, token) {
     });
 
     if (response.ok) {
-      const data = await response.json();
-      return data;
+      return { appointments: items, nextCursor };
     } else {
       console.error("Failed to fetch appointments:", response.statusText);
-      return { appointments: [] };
+      return { appointments: [], nextCursor: null };
     }
   } catch (error) {
     console.error("Error:", error);
-    return { appointments: [] };
+    return { appointments: [], nextCursor: null };
   }
 }
 
@@ -81,4 +82,60 @@ export async function updateAppointment(appointment, token) {
       message: "Network error. Please try again later."
     };
   }
-}
\ No newline at end of file
+}
+// Reserves the appointment's doctor and time for a few minutes while the patient confirms
+export async function holdSlot(appointment, token) {
+  try {
+    const response = await fetch(`${APPOINTMENT_API}/holds/${token}`, {
+      method: "POST",
+      headers: {
+        "Content-Type": "application/json"
+      },
+      body: JSON.stringify(appointment)
+    });
+
+    const data = await response.json();
+    return {
+      success: response.ok,
+      holdId: data.holdId,
+      message: data.message || "Something went wrong"
+    };
+  } catch (error) {
+    console.error("Error while holding slot:", error);
+    return {
+      success: false,
+      message: "Network error. Please try again later."
+    };
+  }
+}
+
+export async function confirmHold(holdId, token) {
+  try {
+    const response = await fetch(`${APPOINTMENT_API}/holds/${holdId}/confirm/${token}`, {
+      method: "POST"
+    });
+
+    const data = await response.json();
+    return {
+      success: response.ok,
+      expired: response.status === 404,
+      message: data.message || "Something went wrong"
+    };
+  } catch (error) {
+    console.error("Error while confirming hold:", error);
+    return {
+      success: false,
+      message: "Network error. Please try again later."
+    };
+  }
+}
+
+export async function releaseHold(holdId, token) {
+  try {
+    await fetch(`${APPOINTMENT_API}/holds/${holdId}/${token}`, {
+      method: "DELETE"
+    });
+  } catch (error) {
+    console.error("Error while releasing hold:", error);
+  }
+}
@@ -1,4 +1,5 @@
 // doctorServices.js
+import { fetchPage } from "./pagedFetch.js";
 import { API_BASE_URL } from "../config/config.js";
 const DOCTOR_API = API_BASE_URL + '/doctor'
 const APPOINTMENT_API = API_BASE_URL + '/appointments'
@@ -70,24 +71,91 @@ export async function getDoctors() {
     }
   }
 
+  // Lightweight autocomplete: [{ id, name, specialty }] for doctors with a name word starting with the prefix
+  export async function suggestDoctors(prefix, limit = 5) {
+    try {
+      const response = await fetch(`${DOCTOR_API}/suggest?q=${encodeURIComponent(prefix)}&limit=${limit}`);
+      if (!response.ok) {
+        return [];
+      }
+      const data = await response.json();
+      return data.suggestions || [];
+    } catch (error) {
+      console.error("Error fetching doctor suggestions:", error);
+      return [];
+    }
+  }
+
+  // Fills a <datalist> under the input with doctor-name suggestions as the user types
+  export function attachDoctorSuggestions(input) {
+    const list = document.createElement("datalist");
+    list.id = `${input.id}-suggestions`;
+    input.setAttribute("list", list.id);
+    input.after(list);
+    let pending = null;
+    input.addEventListener("input", () => {
+      clearTimeout(pending);
+      const prefix = input.value.trim();
+      if (prefix.length === 0) {
+        list.replaceChildren();
+        return;
+      }
+      pending = setTimeout(async () => {
+        const suggestions = await suggestDoctors(prefix);
+        // Names come from user-editable profiles, so they are set as text, never as markup
+        list.replaceChildren(...suggestions.map(s => {
+          const option = document.createElement("option");
+          option.value = s.name;
+          option.textContent = s.specialty ?? "";
+          return option;
+        }));
+      }, 150);
+    });
+  }
+
   // New: fetch doctor appointments for calendar
-export async function getDoctorAppointments({ condition = null, patientName = null, token }) {
+// One page after `cursor` (the first if null) as { appointments, nextCursor }.
+export async function getDoctorAppointments({ condition = null, patientName = null, token, cursor = null }) {
   try {
     const c = condition ?? null;
     const p = patientName ?? null;
     const condSeg = c === null ? 'null' : c;
     const nameSeg = p === null ? 'null' : encodeURIComponent(p);
     const url = `${APPOINTMENT_API}/filter/${condSeg}/${nameSeg}/${token}`;
-    const response = await fetch(url, { headers: { 'Content-Type': 'application/json' } });
-    const data = await response.json();
+    const { response, data, items, nextCursor } = await fetchPage(url, "appointments", cursor, { headers: { 'Content-Type': 'application/json' } });
     if (!response.ok) {
       console.error('getDoctorAppointments failed:', data);
-      return { appointments: [] };
+      return { appointments: [], nextCursor: null };
     }
-    return { appointments: data.appointments || [] };
+    return { appointments: items, nextCursor };
   } catch (e) {
     console.error('Error fetching doctor appointments:', e);
-    return { appointments: [] };
+    return { appointments: [], nextCursor: null };
+  }
+}
+
+// Calendar range: appointments from `start` up to (not including) `end` (YYYY-MM-DD).
+// The endpoint sends parallel arrays; they are expanded here into the appointment shape the calendar renders.
+export async function getDoctorCalendar(start, end, token) {
+  try {
+    const response = await fetch(`${APPOINTMENT_API}/calendar/${start}/${end}/${token}`);
+    const data = await response.json();
+    if (!response.ok) {
+      console.error('getDoctorCalendar failed:', data);
+      return { appointments: [], failed: true };
+    }
+    const appointments = data.ids.map((id, i) => ({
+      id,
+      // Minutes are wall-clock time, so read them back in UTC to get the same date and time
+      appointmentTime: new Date(data.minutes[i] * 60000).toISOString().substring(0, 16),
+      status: data.statuses[i],
+      patientId: data.patientIds[i],
+      patientName: data.patients[data.patientIds[i]],
+    }));
+    return { appointments };
+  } catch (e) {
+    console.error('Error fetching doctor calendar:', e);
+    return { appointments: [], failed: true };
   }
 }
 
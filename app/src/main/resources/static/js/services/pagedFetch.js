@@ -0,0 +1,64 @@
+// pagedFetch.js
+// List endpoints return one page at a time with a `nextCursor`. Views render the first page
+// right away and fetch the next one only when the user asks for it or scrolls to the end.
+
+// Fetches the page after `cursor` (the first page if null). Resolves to { response, data,
+// items, nextCursor }: items is the page's `key` array, nextCursor is null on the last page
+// and on errors.
+export async function fetchPage(url, key, cursor = null, options = {}) {
+  const pageUrl = cursor === null ? url : `${url}${url.includes("?") ? "&" : "?"}after=${encodeURIComponent(cursor)}`;
+  const response = await fetch(pageUrl, options);
+  const data = await response.json();
+  if (!response.ok) {
+    return { response, data, items: [], nextCursor: null };
+  }
+  return { response, data, items: data[key] || [], nextCursor: data.nextCursor ?? null };
+}
+
+// Puts a "Load more" button after `anchor` that awaits `loadMore` when clicked or scrolled
+// into view, one call at a time. Returns { setHasMore(boolean) } to show or hide the button
+// after each page.
+export function attachLoadMore(anchor, loadMore) {
+  const button = document.createElement("button");
+  button.type = "button";
+  button.className = "load-more-btn";
+  button.textContent = "Load more";
+  button.style.display = "none";
+  anchor.after(button);
+
+  let loading = false;
+  let inView = false;
+
+  async function load() {
+    if (loading || button.style.display === "none") return;
+    loading = true;
+    button.disabled = true;
+    button.textContent = "Loading...";
+    try {
+      await loadMore();
+    } catch (error) {
+      console.error("Error loading more:", error);
+      inView = false; // do not retry in a loop; a click tries again
+    } finally {
+      loading = false;
+      button.disabled = false;
+      button.textContent = "Load more";
+    }
+    // A short page can leave the button on screen, which the observer does not report again
+    if (inView) load();
+  }
+
+  button.addEventListener("click", load);
+  if ("IntersectionObserver" in window) {
+    new IntersectionObserver(entries => {
+      inView = entries.some(entry => entry.isIntersecting);
+      if (inView) load();
+    }).observe(button);
+  }
+
+  return {
+    setHasMore(hasMore) {
+      button.style.display = hasMore ? "" : "none";
+    }
+  };
+}
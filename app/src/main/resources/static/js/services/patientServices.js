@@ -1,4 +1,5 @@
 import { API_BASE_URL } from "../config/config.js";
+import { fetchPage } from "./pagedFetch.js";
 const PATIENT_API = API_BASE_URL + '/patient'
 
 
@@ -54,13 +55,12 @@ export async function getPatientData(token){
 }
 
 // the Backend API for fetching the patient record(visible in Doctor Dashboard) and Appointments (visible in Patient Dashboard) are same based on user(patient/doctor).
-export async function getPatientAppointments(id, token ,user) {
+// One page after `cursor` (the first if null) as { appointments, nextCursor }; null on failure.
+export async function getPatientAppointments(id, token ,user, cursor = null) {
   try {
-    const response = await fetch(`${PATIENT_API}/${id}/${user}/${token}`);
-    const data = await response.json();
-    console.log(data.appointments)  
+    const { response, items, nextCursor } = await fetchPage(`${PATIENT_API}/${id}/${user}/${token}`, "appointments", cursor);
     if(response.ok){
-         return data.appointments;
+         return { appointments: items, nextCursor };
     }
     return null;
   }
@@ -70,9 +70,10 @@ export async function getPatientAppointments(id, token ,user) {
   }
 }
 
-  export async function filterAppointments(condition ,name ,token) {
+  // One page after `cursor` (the first if null) as { appointments, nextCursor }.
+  export async function filterAppointments(condition ,name ,token, cursor = null) {
     try {
-      const response = await fetch(`${PATIENT_API}/filter/${condition}/${name}/${token}`, {
+      const { response, items, nextCursor } = await fetchPage(`${PATIENT_API}/filter/${condition}/${name}/${token}`, "appointments", cursor, {
         method: "GET",
         headers: {
           "Content-Type": "application/json",
@@ -80,18 +81,17 @@ export async function getPatientAppointments(id, token ,user) {
       });
   
       if (response.ok) {
-        const data = await response.json();
-        return data; 
+        return { appointments: items, nextCursor };
         
       } else {
         console.error("Failed to fetch doctors:", response.statusText);
-        return { appointments: [] };
+        return { appointments: [], nextCursor: null };
         
       }
     } catch (error) {
       console.error("Error:", error);
       alert("Something went wrong!");
-      return { appointments : [] }; 
+      return { appointments : [], nextCursor: null }; 
     }
   }
 
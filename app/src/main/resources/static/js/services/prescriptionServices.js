@@ -1,4 +1,5 @@
 import { API_BASE_URL} from '../config/config.js'
+import { fetchPage } from "./pagedFetch.js";
 
 const PRESCRITION_API = API_BASE_URL + "/prescription"
 export async function savePrescription(prescription ,token){
@@ -45,9 +46,10 @@ export async function getPrescription(appointmentId, token) {
 }
 
 // New function for patients to get their prescriptions
-export async function getPatientPrescriptions(patientName, token) {
+// One page after `cursor` (the first if null); pass the returned nextCursor for the next one.
+export async function getPatientPrescriptions(patientName, token, cursor = null) {
   try {
-    const response = await fetch(`${PRESCRITION_API}/patient/${patientName}/${token}`, {
+    const { response, data, items, nextCursor } = await fetchPage(`${PRESCRITION_API}/patient/${patientName}/${token}`, "prescriptions", cursor, {
       method: "GET",
       headers: {
         "Content-Type": "application/json"
@@ -55,13 +57,11 @@ export async function getPatientPrescriptions(patientName, token) {
     });
 
     if (!response.ok) {
-      const errorData = await response.json();
-      console.error("Failed to fetch patient prescriptions:", errorData);
-      throw new Error(errorData.message || "Unable to fetch prescriptions");
+      console.error("Failed to fetch patient prescriptions:", data);
+      throw new Error(data.message || "Unable to fetch prescriptions");
     }
 
-    const result = await response.json();
-    return result;
+    return { ...data, prescriptions: items, nextCursor, count: items.length };
   } catch (error) {
     console.error("Error :: getPatientPrescriptions ::", error);
     throw error;
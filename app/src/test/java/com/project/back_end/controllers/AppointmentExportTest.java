@@ -0,0 +1,104 @@
+package com.project.back_end.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.PrincipalArgumentResolver;
+import com.project.back_end.services.AppointmentService;
+import com.project.back_end.services.TokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Streams a long history through the export endpoint, plain and gzipped, and checks every row
+// arrives and the request runs under the export's own async timeout.
+class AppointmentExportTest {
+
+    private static final int ROWS = 20_000;
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 9, 0);
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.streamByDoctorId(7L)).thenAnswer(invocation -> IntStream.range(0, ROWS)
+                .mapToObj(i -> new AppointmentDTO((long) i, 7L, "Dr. Seven", 100L + i % 50, "Patient " + i % 50,
+                        "patient@example.com", "1234567890", "1 Main Street", START.plusHours(i), 1)));
+        AppointmentService appointmentService = new AppointmentService(appointmentRepository, null, null, null, null,
+                new ObjectMapper().registerModule(new JavaTimeModule()), null, null);
+        TokenService tokenService = mock(TokenService.class);
+        when(tokenService.resolvePrincipal(any(), any())).thenReturn(new AuthPrincipal(7L, "doc@example.com", "Dr. Seven", "doctor"));
+
+        AppointmentController controller = new AppointmentController(appointmentService, null);
+        ReflectionTestUtils.setField(controller, "exportTimeoutSeconds", 1800L);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setCustomArgumentResolvers(new PrincipalArgumentResolver(tokenService))
+                .build();
+    }
+
+    @Test
+    void streamsTheWholeHistoryUnderTheExportTimeout() throws Exception {
+        MvcResult started = mockMvc.perform(get("/appointments/export/t"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(1_800_000L, started.getRequest().getAsyncContext().getTimeout());
+
+        MockHttpServletResponse response = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        assertEquals(MediaType.APPLICATION_NDJSON_VALUE, response.getContentType());
+        assertLines(response.getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void streamsTheWholeHistoryGzipped() throws Exception {
+        MvcResult started = mockMvc.perform(get("/appointments/export/t").param("gzip", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MockHttpServletResponse response = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertLines(gunzip(response.getContentAsByteArray()));
+    }
+
+    private static void assertLines(String body) {
+        String[] lines = body.split("\n");
+        assertEquals(ROWS, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":0,"), lines[0]);
+        assertTrue(lines[ROWS - 1].startsWith("{\"id\":" + (ROWS - 1) + ","), lines[ROWS - 1]);
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
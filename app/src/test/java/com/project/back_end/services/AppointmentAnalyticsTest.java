@@ -0,0 +1,89 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Drives a sketch rebuild against mocked repositories, with bookings committing before and
+// after the replay's snapshot, and checks every booking ends up counted exactly once.
+class AppointmentAnalyticsTest {
+
+    private static final Long DOCTOR = 7L;
+    private static final YearMonth MONTH = YearMonth.now();
+    private static final LocalDateTime TIME = MONTH.atDay(1).atTime(9, 0);
+
+    private AppointmentRepository appointmentRepository;
+    private AppointmentAnalytics analytics;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        analytics = new AppointmentAnalytics(appointmentRepository, mock(DoctorRepository.class), transactionManager);
+        ReflectionTestUtils.setField(analytics, "retentionMonths", 24);
+    }
+
+    @Test
+    void bookingsDuringARebuildAreCountedOnce() {
+        when(appointmentRepository.streamSketchRows(any())).thenAnswer(invocation -> {
+            // Commits before the replay's snapshot, so the replay sees it too
+            analytics.booked(2L, DOCTOR, 20L, TIME.plusHours(1));
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(new Object[] {DOCTOR, 10L, TIME, 1L});
+            rows.add(new Object[] {DOCTOR, 20L, TIME.plusHours(1), 2L});
+            return rows.stream().peek(row -> {
+                if (row[3].equals(2L)) {
+                    // Commits after the snapshot, so the replay does not see it
+                    analytics.booked(3L, DOCTOR, 30L, TIME.plusHours(2));
+                }
+            });
+        });
+
+        analytics.rebuild();
+        assertEquals(3L, appointments(DOCTOR));
+
+        // Bookings after the swap feed the rebuilt sketches
+        analytics.booked(4L, DOCTOR, 40L, TIME.plusHours(3));
+        assertEquals(4L, appointments(DOCTOR));
+    }
+
+    @Test
+    void aRebuildDropsWhatTheDatabaseNoLongerHas() {
+        analytics.booked(1L, DOCTOR, 10L, TIME);
+        analytics.booked(2L, DOCTOR, 20L, TIME.plusHours(1));
+        // The second appointment was cancelled
+        when(appointmentRepository.streamSketchRows(any()))
+                .thenAnswer(invocation -> Stream.<Object[]>of(new Object[] {DOCTOR, 10L, TIME, 1L}));
+
+        analytics.rebuild();
+
+        assertEquals(1L, appointments(DOCTOR));
+    }
+
+    @SuppressWarnings("unchecked")
+    private long appointments(Long doctorId) {
+        Map<String, Object> summary = analytics.getSummary(MONTH.getYear(), MONTH.getMonthValue(), 10);
+        for (Map<String, Object> entry : (List<Map<String, Object>>) summary.get("topDoctors")) {
+            if (entry.get("doctorId").equals(doctorId)) {
+                return (Long) entry.get("appointments");
+            }
+        }
+        return 0;
+    }
+}
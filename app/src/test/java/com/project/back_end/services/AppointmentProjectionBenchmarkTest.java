@@ -0,0 +1,150 @@
+package com.project.back_end.services;
+
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.testsupport.JpaSliceConfiguration;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compares a doctor's day view loaded as entities and mapped to AppointmentDTO (the old path:
+// appointment, doctor with its slots and patient hydrated into the persistence context) with the
+// constructor-projection query the services use now. Reports bytes allocated per call on the
+// calling thread, which includes the H2 driver work shared by both paths. Allocation varies with
+// the JIT and GC, so the comparison only runs with -Dbenchmark.projection=true; the check that the
+// projection loads no entities always runs.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ContextConfiguration(classes = JpaSliceConfiguration.class)
+class AppointmentProjectionBenchmarkTest {
+
+    private static final String ENTITY_QUERY = "SELECT a FROM Appointment a LEFT JOIN FETCH a.doctor d "
+            + "LEFT JOIN FETCH a.doctor.availableTimes LEFT JOIN FETCH a.patient "
+            + "WHERE a.doctor.id = ?1 AND a.appointmentTime BETWEEN ?2 AND ?3";
+    private static final int APPOINTMENTS = 200;
+    private static final int ITERATIONS = 200;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long doctorId;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Doctor doctor = new Doctor();
+        doctor.setName("Dr. Bench");
+        doctor.setSpecialty("Cardiology");
+        doctor.setEmail("bench@example.com");
+        doctor.setPassword("secret1");
+        doctor.setPhone("1234567890");
+        doctor.setAvailableTimes(List.of("09:00-10:00", "10:00-11:00", "14:00-15:00", "15:00-16:00"));
+        doctorRepository.save(doctor);
+        doctorId = doctor.getId();
+
+        start = LocalDateTime.now().plusDays(1).withNano(0);
+        end = start.plusHours(APPOINTMENTS);
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            Patient patient = new Patient();
+            patient.setName("Patient " + i);
+            patient.setEmail("patient" + i + "@example.com");
+            patient.setPassword("secret1");
+            patient.setPhone("1234567890");
+            patient.setAddress(i + " Main Street");
+            entityManager.persist(patient);
+            appointmentRepository.save(new Appointment(doctor, patient, start.plusHours(i), 0));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void projectionLoadsNoEntities() {
+        assertEquals(viaEntities().size(), viaProjection().size());
+        statistics.clear();
+        assertEquals(APPOINTMENTS, viaProjection().size());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.projection", matches = "true")
+    void projectionAllocatesLessThanEntityMapping() {
+        // Warm up both paths before measuring
+        allocatedPerCall(this::viaEntities);
+        allocatedPerCall(this::viaProjection);
+
+        long entityBytes = allocatedPerCall(this::viaEntities);
+        long projectionBytes = allocatedPerCall(this::viaProjection);
+        System.out.printf("%d appointments: entities + mapping %d KB/call, projection %d KB/call (%.1fx)%n",
+                APPOINTMENTS, entityBytes / 1024, projectionBytes / 1024, (double) entityBytes / projectionBytes);
+        assertTrue(projectionBytes < entityBytes);
+    }
+
+    private List<AppointmentDTO> viaEntities() {
+        List<AppointmentDTO> dtos = entityManager.createQuery(ENTITY_QUERY, Appointment.class)
+                .setParameter(1, doctorId)
+                .setParameter(2, start)
+                .setParameter(3, end)
+                .getResultList()
+                .stream()
+                .map(app -> new AppointmentDTO(
+                        app.getId(),
+                        app.getDoctor().getId(),
+                        app.getDoctor().getName(),
+                        app.getPatient().getId(),
+                        app.getPatient().getName(),
+                        app.getPatient().getEmail(),
+                        app.getPatient().getPhone(),
+                        app.getPatient().getAddress(),
+                        app.getAppointmentTime(),
+                        app.getStatus()))
+                .collect(Collectors.toList());
+        entityManager.clear();
+        return dtos;
+    }
+
+    private List<AppointmentDTO> viaProjection() {
+        List<AppointmentDTO> dtos = appointmentRepository.findByDoctorIdAndAppointmentTimeBetween(doctorId, start, end);
+        entityManager.clear();
+        return dtos;
+    }
+
+    private static long allocatedPerCall(Supplier<List<AppointmentDTO>> read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(APPOINTMENTS, read.get().size());
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - before) / ITERATIONS;
+    }
+}
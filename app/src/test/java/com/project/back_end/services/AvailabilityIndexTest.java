@@ -0,0 +1,57 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// A booking that commits while a batch availability load is running must not be lost when
+// the batch installs its bitmaps.
+class AvailabilityIndexTest {
+
+    private static final LocalDate DAY = LocalDate.now().plusDays(1);
+    private static final LocalDateTime NINE = DAY.atTime(9, 0);
+
+    @Test
+    void aBookingDuringABatchLoadIsNotOverwritten() {
+        Doctor doctor = new Doctor();
+        doctor.setId(1L);
+        doctor.setAvailableTimes(List.of("09:00-10:00", "10:00-11:00"));
+        DoctorRepository doctorRepository = mock(DoctorRepository.class);
+        when(doctorRepository.findWithAvailableTimesByIdIn(any())).thenReturn(List.of(doctor));
+        when(doctorRepository.findWithAvailableTimesById(1L)).thenReturn(Optional.of(doctor));
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        AvailabilityIndex index = new AvailabilityIndex(doctorRepository, appointmentRepository);
+        ReflectionTestUtils.setField(index, "ttlSeconds", 60L);
+
+        // The batch query runs before the 09:00 booking commits, so it does not see it
+        List<LocalDateTime> committed = new ArrayList<>();
+        when(appointmentRepository.findDoctorSlotsByDoctorIdInAndAppointmentTimeBetween(any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    committed.add(NINE);
+                    index.markBooked(1L, NINE);
+                    return new ArrayList<>();
+                });
+        when(appointmentRepository.findAppointmentTimesByDoctorIdAndAppointmentTimeBetween(eq(1L), any(), any()))
+                .thenAnswer(invocation -> new ArrayList<>(committed));
+
+        Map<Long, Map<String, List<String>>> free = index.freeSlots(List.of(1L), DAY, DAY,
+                (doctorId, date) -> Collections.emptySet());
+
+        assertEquals(List.of("10:00-11:00"), free.get(1L).get(DAY.toString()));
+        assertEquals(0, index.checkSlot(1L, NINE));
+    }
+}
@@ -0,0 +1,275 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+// Hammers the booking engine from many threads against an in-memory stand-in for the
+// appointment table. Each insert is stubbed with a fixed delay standing in for a MySQL
+// round trip. The table can optionally enforce the (doctor_id, appointment_time) unique
+// constraint, so in-node locking and the cross-node constraint can be tested separately.
+// The striped-versus-single-lock throughput comparison depends on the core count, so it only
+// runs with -Dbenchmark.booking=true.
+class BookingEngineStressTest {
+
+    private static final long SIMULATED_DB_ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    private static final int THREADS = 64;
+    private static final List<String> SLOTS = List.of("08:00-09:00", "09:00-10:00", "10:00-11:00", "11:00-12:00",
+            "13:00-14:00", "14:00-15:00", "15:00-16:00", "16:00-17:00");
+    private static final LocalDate FIRST_DAY = LocalDate.now().plusDays(1);
+
+    // Every row ever inserted, and the rows keyed by doctor and start time
+    private final Queue<String> inserted = new ConcurrentLinkedQueue<>();
+    private final Map<String, Boolean> table = new ConcurrentHashMap<>();
+    private volatile boolean enforceUniqueConstraint;
+    private volatile boolean failForeignKey;
+    // When set, every insert waits here until another insert arrives
+    private volatile CyclicBarrier rendezvous;
+
+    private AppointmentRepository appointmentRepository;
+    private DoctorRepository doctorRepository;
+
+    @BeforeEach
+    void setUp() {
+        inserted.clear();
+        table.clear();
+        enforceUniqueConstraint = false;
+        failForeignKey = false;
+        rendezvous = null;
+
+        // A plain proxy rather than a Mockito mock: Mockito records a stack trace per call,
+        // which on a small machine costs more CPU than the simulated round trip itself.
+        appointmentRepository = (AppointmentRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{AppointmentRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "saveAndFlush":
+                            return insert((Appointment) args[0]);
+                        case "findAppointmentTimesByDoctorIdAndAppointmentTimeBetween":
+                            return bookedTimes((Long) args[0], (LocalDateTime) args[1]);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        doctorRepository = mock(DoctorRepository.class);
+        when(doctorRepository.findWithAvailableTimesById(anyLong())).thenAnswer(invocation -> {
+            Doctor doctor = new Doctor();
+            doctor.setId(invocation.getArgument(0));
+            doctor.setAvailableTimes(SLOTS);
+            return Optional.of(doctor);
+        });
+    }
+
+    private Appointment insert(Appointment appointment) throws Exception {
+        LockSupport.parkNanos(SIMULATED_DB_ROUND_TRIP_NANOS);
+        if (rendezvous != null) {
+            rendezvous.await(5, TimeUnit.SECONDS);
+        }
+        if (failForeignKey) {
+            throw new DataIntegrityViolationException("Cannot add or update a child row: "
+                    + "a foreign key constraint fails (`appointment`, CONSTRAINT `fk_appointment_patient`)");
+        }
+        String key = key(appointment.getDoctorId(), appointment.getAppointmentTime());
+        if (table.putIfAbsent(key, Boolean.TRUE) != null && enforceUniqueConstraint) {
+            throw new DataIntegrityViolationException("Duplicate entry for key 'uk_appointment_doctor_time'");
+        }
+        inserted.add(key);
+        return appointment;
+    }
+
+    private List<LocalDateTime> bookedTimes(Long doctorId, LocalDateTime dayStart) {
+        List<LocalDateTime> times = new ArrayList<>();
+        for (String slot : SLOTS) {
+            LocalDateTime time = dayStart.toLocalDate().atTime(Integer.parseInt(slot.substring(0, 2)), 0);
+            if (table.containsKey(key(doctorId, time))) {
+                times.add(time);
+            }
+        }
+        return times;
+    }
+
+    @Test
+    void racingForOneSlotBooksItExactlyOnce() throws Exception {
+        BookingEngine engine = newNode(1024);
+        LocalDateTime time = FIRST_DAY.atTime(10, 0);
+
+        List<Integer> results = runConcurrently(THREADS, 1, (thread, i) -> engine.book(appointment(1L, time)));
+
+        assertEquals(1, results.stream().filter(r -> r == BookingEngine.BOOKED).count());
+        assertEquals(THREADS - 1, results.stream().filter(r -> r == BookingEngine.SLOT_TAKEN).count());
+        assertEquals(1, inserted.size());
+    }
+
+    @Test
+    void contendedBookingsNeverDoubleBook() throws Exception {
+        BookingEngine engine = newNode(1024);
+        int doctors = 10;
+        int days = 5;
+        int perThread = 100;
+
+        List<Integer> results = runConcurrently(THREADS, perThread, (thread, i) -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String slot = SLOTS.get(random.nextInt(SLOTS.size()));
+            LocalDateTime time = FIRST_DAY.plusDays(random.nextInt(days)).atTime(Integer.parseInt(slot.substring(0, 2)), 0);
+            return engine.book(appointment((long) random.nextInt(doctors) + 1, time));
+        });
+
+        long booked = results.stream().filter(r -> r == BookingEngine.BOOKED).count();
+        assertEquals(inserted.size(), inserted.stream().distinct().count(), "a slot was inserted twice");
+        assertEquals(booked, inserted.size());
+        assertTrue(booked <= (long) doctors * days * SLOTS.size());
+        assertFalse(results.contains(BookingEngine.FAILED));
+    }
+
+    @Test
+    void uniqueConstraintStopsDoubleBookingAcrossNodes() throws Exception {
+        enforceUniqueConstraint = true;
+        // Two nodes share the table but not their locks or availability index.
+        BookingEngine nodeA = newNode(1024);
+        BookingEngine nodeB = newNode(1024);
+        LocalDateTime time = FIRST_DAY.atTime(14, 0);
+
+        List<Integer> results = runConcurrently(THREADS, 1,
+                (thread, i) -> (thread % 2 == 0 ? nodeA : nodeB).book(appointment(7L, time)));
+
+        assertEquals(1, results.stream().filter(r -> r == BookingEngine.BOOKED).count());
+        assertEquals(THREADS - 1, results.stream().filter(r -> r == BookingEngine.SLOT_TAKEN).count());
+        assertEquals(1, inserted.size());
+    }
+
+    @Test
+    void otherIntegrityViolationsFailWithoutTakingTheSlot() {
+        failForeignKey = true;
+        AvailabilityIndex index = new AvailabilityIndex(doctorRepository, appointmentRepository);
+        ReflectionTestUtils.setField(index, "ttlSeconds", 60L);
+        BookingEngine engine = new BookingEngine(appointmentRepository, index, new SlotHolds(), 1024);
+        LocalDateTime time = FIRST_DAY.atTime(9, 0);
+
+        assertEquals(BookingEngine.FAILED, engine.book(appointment(3L, time)));
+        assertEquals(1, index.checkSlot(3L, time), "the slot must stay free");
+    }
+
+    @Test
+    void bookingsOnDifferentStripesHoldTheirLocksAtOnce() throws Exception {
+        // Each insert waits for the other, so both must be inside their locks together
+        rendezvous = new CyclicBarrier(2);
+        BookingEngine engine = newNode(1024);
+
+        List<Integer> results = runConcurrently(2, 1,
+                (thread, i) -> engine.book(appointment((long) thread + 1, FIRST_DAY.atTime(9, 0))));
+
+        assertEquals(List.of(BookingEngine.BOOKED, BookingEngine.BOOKED), results);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.booking", matches = "true")
+    void nonConflictingBookingsRunInParallel() throws Exception {
+        int perThread = 50;
+        // Warm up the JIT so the first measured run is not penalised.
+        distinctSlotThroughput(newNode(1024), perThread);
+        setUp();
+
+        double striped = distinctSlotThroughput(newNode(1024), perThread);
+        setUp();
+        double singleLock = distinctSlotThroughput(newNode(1), perThread);
+
+        System.out.printf("distinct slots: striped %.0f bookings/s, single lock %.0f bookings/s (%.1fx)%n",
+                striped, singleLock, striped / singleLock);
+        assertTrue(striped > singleLock * 2, "striped locking should not serialize unrelated bookings");
+    }
+
+    // Each thread books its own doctor's slots, so no two bookings conflict.
+    private double distinctSlotThroughput(BookingEngine engine, int perThread) throws Exception {
+        long start = System.nanoTime();
+        List<Integer> results = runConcurrently(THREADS, perThread, (thread, i) -> {
+            String slot = SLOTS.get(i % SLOTS.size());
+            LocalDateTime time = FIRST_DAY.plusDays(i / SLOTS.size()).atTime(Integer.parseInt(slot.substring(0, 2)), 0);
+            return engine.book(appointment((long) thread + 1, time));
+        });
+        long elapsed = System.nanoTime() - start;
+        assertTrue(results.stream().allMatch(r -> r == BookingEngine.BOOKED));
+        return results.size() / (elapsed / 1e9);
+    }
+
+    private BookingEngine newNode(int stripes) {
+        AvailabilityIndex index = new AvailabilityIndex(doctorRepository, appointmentRepository);
+        ReflectionTestUtils.setField(index, "ttlSeconds", 60L);
+        return new BookingEngine(appointmentRepository, index, new SlotHolds(), stripes);
+    }
+
+    private interface Attempt {
+        int run(int thread, int iteration);
+    }
+
+    private static List<Integer> runConcurrently(int threads, int perThread, Attempt attempt) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch startGate = new CountDownLatch(1);
+        AtomicInteger ready = new AtomicInteger();
+        try {
+            List<Future<List<Integer>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    ready.incrementAndGet();
+                    startGate.await();
+                    List<Integer> results = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        results.add(attempt.run(thread, i));
+                    }
+                    return results;
+                }));
+            }
+            while (ready.get() < threads) {
+                Thread.onSpinWait();
+            }
+            startGate.countDown();
+            List<Integer> all = new ArrayList<>();
+            for (Future<List<Integer>> future : futures) {
+                all.addAll(future.get(2, TimeUnit.MINUTES));
+            }
+            return all;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Appointment appointment(Long doctorId, LocalDateTime time) {
+        Doctor doctor = new Doctor();
+        doctor.setId(doctorId);
+        return new Appointment(doctor, null, time, 0);
+    }
+
+    private static String key(Long doctorId, LocalDateTime time) {
+        return doctorId + "@" + time;
+    }
+}
@@ -0,0 +1,122 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Queued booking against mocked collaborators: a failed batch insert is settled booking by
+// booking, a full partition refuses new bookings, and shutdown fails what is still queued.
+class BookingQueueTest {
+
+    private static final LocalDateTime SLOT = LocalDateTime.of(2026, 11, 2, 9, 0);
+
+    private AppointmentRepository appointmentRepository;
+    private AvailabilityIndex availabilityIndex;
+    private BookingEngine bookingEngine;
+    private SlotHolds slotHolds;
+    private BookingQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        availabilityIndex = mock(AvailabilityIndex.class);
+        bookingEngine = mock(BookingEngine.class);
+        slotHolds = mock(SlotHolds.class);
+        queue = new BookingQueue(appointmentRepository, availabilityIndex, bookingEngine, slotHolds,
+                mock(DoctorRollups.class), mock(AppointmentAnalytics.class));
+        ReflectionTestUtils.setField(queue, "partitionCount", 1);
+        ReflectionTestUtils.setField(queue, "capacity", 1);
+        ReflectionTestUtils.setField(queue, "batchSize", 32);
+        ReflectionTestUtils.setField(queue, "ticketTtlSeconds", 600L);
+        when(availabilityIndex.checkSlot(anyLong(), any())).thenReturn(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.stop();
+    }
+
+    @Test
+    void aFailedBatchIsSettledOneBookingAtATime() {
+        Appointment first = appointment(1L, SLOT);
+        Appointment second = appointment(2L, SLOT.plusHours(1));
+        first.setId(10L); // as left behind by the rolled-back insert
+        // Not a slot clash: say the second patient row is gone
+        when(appointmentRepository.saveAllAndFlush(anyList()))
+                .thenThrow(new DataIntegrityViolationException("foreign key fk_appointment_patient"));
+        when(bookingEngine.book(first)).thenReturn(BookingEngine.BOOKED);
+        when(bookingEngine.book(second)).thenReturn(BookingEngine.FAILED);
+        BookingQueue.Ticket a = new BookingQueue.Ticket("a", 1L, first);
+        BookingQueue.Ticket b = new BookingQueue.Ticket("b", 2L, second);
+
+        queue.commit(List.of(a, b));
+
+        assertNull(first.getId());
+        assertEquals(BookingEngine.BOOKED, a.getResult().getNow(null));
+        assertEquals(BookingEngine.FAILED, b.getResult().getNow(null));
+        verify(bookingEngine).book(first);
+        verify(bookingEngine).book(second);
+    }
+
+    @Test
+    void clashesInsideABatchAreSettledInArrivalOrder() {
+        BookingQueue.Ticket a = new BookingQueue.Ticket("a", 1L, appointment(1L, SLOT));
+        BookingQueue.Ticket b = new BookingQueue.Ticket("b", 2L, appointment(2L, SLOT));
+
+        queue.commit(List.of(a, b));
+
+        assertEquals(BookingEngine.BOOKED, a.getResult().getNow(null));
+        assertEquals(BookingEngine.SLOT_TAKEN, b.getResult().getNow(null));
+        verify(availabilityIndex).markBooked(1L, SLOT);
+        verifyNoInteractions(bookingEngine);
+    }
+
+    @Test
+    void aFullPartitionRefusesAndShutdownFailsWhatIsQueued() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        Semaphore proceed = new Semaphore(0);
+        when(availabilityIndex.checkSlot(anyLong(), eq(SLOT))).thenAnswer(invocation -> {
+            writing.countDown();
+            proceed.acquireUninterruptibly();
+            return 1;
+        });
+        ReflectionTestUtils.setField(queue, "enabled", true);
+        queue.start();
+
+        BookingQueue.Ticket inFlight = queue.submit(appointment(1L, SLOT), 1L);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        BookingQueue.Ticket queued = queue.submit(appointment(2L, SLOT.plusHours(1)), 2L);
+        assertNotNull(queued);
+        assertNull(queue.submit(appointment(3L, SLOT.plusHours(2)), 3L), "partition is full");
+
+        queue.stop();
+        assertNull(queue.submit(appointment(4L, SLOT.plusHours(3)), 4L), "stopped");
+        proceed.release();
+        assertEquals(BookingEngine.BOOKED, inFlight.getResult().get(5, TimeUnit.SECONDS));
+        assertEquals(BookingEngine.FAILED, queued.getResult().get(5, TimeUnit.SECONDS));
+    }
+
+    private static Appointment appointment(Long patientId, LocalDateTime time) {
+        Doctor doctor = new Doctor();
+        doctor.setId(1L);
+        Patient patient = new Patient();
+        patient.setId(patientId);
+        return new Appointment(doctor, patient, time, 0);
+    }
+}
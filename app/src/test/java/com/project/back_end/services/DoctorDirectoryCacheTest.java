@@ -0,0 +1,97 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.security.TokenEpochRegistry;
+import com.project.testsupport.JpaSliceConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+
+// Doctor writes with a cached AM listing. The writes run without a surrounding transaction, as
+// they do behind the controllers (open-in-view is off), so the cache only sees detached doctors
+// and must not need their lazy slot lists.
+@DataJpaTest
+@ContextConfiguration(classes = JpaSliceConfiguration.class)
+@Import({DoctorService.class, DoctorDirectoryCache.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@MockitoBean(types = {TokenService.class, TokenEpochRegistry.class, AvailabilityIndex.class, SlotHolds.class,
+        DoctorSearchIndex.class, DoctorRollups.class, AppointmentAnalytics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DoctorDirectoryCacheTest {
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private DoctorDirectoryCache cache;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private DoctorRollups doctorRollups;
+
+    @Autowired
+    private AppointmentAnalytics appointmentAnalytics;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    // The doctor is not in the cached AM listing, so deciding whether the update affects it
+    // means checking the stored doctor's slots.
+    @Test
+    void movingADoctorIntoTheMorningDropsTheCachedAmListing() {
+        Doctor doctor = doctorRepository.save(doctor("Dr Update", "update@example.com", "14:00-15:00"));
+        amListing("update");
+        amListing("update");
+        assertEquals(1, loads.get());
+
+        Doctor changed = doctor("Dr Update", "update@example.com", "09:00-10:00");
+        changed.setId(doctor.getId());
+        assertEquals(1, doctorService.updateDoctor(changed));
+        amListing("update");
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void deletingAnAfternoonDoctorCompletesWithAnAmListingCached() {
+        Doctor doctor = doctorRepository.save(doctor("Dr Delete", "delete@example.com", "14:00-15:00"));
+        amListing("delete");
+
+        assertEquals(1, doctorService.deleteDoctor(doctor.getId()));
+        assertFalse(doctorRepository.existsById(doctor.getId()));
+        verify(doctorRollups).doctorDeleted(doctor.getId());
+        verify(appointmentAnalytics).doctorDeleted(doctor.getId());
+    }
+
+    private void amListing(String name) {
+        cache.filtered(name, null, "am", null, 10, () -> {
+            loads.incrementAndGet();
+            return doctorService.filterDoctors(name, null, "am", null, 10);
+        });
+    }
+
+    private static Doctor doctor(String name, String email, String slot) {
+        Doctor doctor = new Doctor();
+        doctor.setName(name);
+        doctor.setSpecialty("Cardiology");
+        doctor.setEmail(email);
+        doctor.setPassword("secret1");
+        doctor.setPhone("1234567890");
+        doctor.setAvailableTimes(List.of(slot));
+        return doctor;
+    }
+}
@@ -0,0 +1,107 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.security.TokenEpochRegistry;
+import com.project.testsupport.JpaSliceConfiguration;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Guards against the N+1 on Doctor.availableTimes: listing and filtering doctors must run
+// the same number of statements for 3 doctors as for 40, including touching every slot list.
+// Only the repositories are used by the read paths under test, so DoctorService's other
+// collaborators are mocks; the mocked search index never reports ready.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ContextConfiguration(classes = JpaSliceConfiguration.class)
+@Import(DoctorService.class)
+@MockitoBean(types = {TokenService.class, TokenEpochRegistry.class, AvailabilityIndex.class, SlotHolds.class,
+        DoctorSearchIndex.class, DoctorDirectoryCache.class, DoctorRollups.class, AppointmentAnalytics.class})
+class DoctorQueryCountTest {
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void listingAllDoctorsDoesNotScaleQueriesWithDoctorCount() {
+        assertEquals(statementsFor(3, () -> doctorService.getDoctors()),
+                statementsFor(40, () -> doctorService.getDoctors()));
+    }
+
+    @Test
+    void filteringDoctorsDoesNotScaleQueriesWithDoctorCount() {
+        assertEquals(statementsFor(3, () -> doctors(doctorService.filterDoctors(null, null, null, null, 100))),
+                statementsFor(40, () -> doctors(doctorService.filterDoctors(null, null, null, null, 100))));
+        assertEquals(statementsFor(3, () -> doctors(doctorService.filterDoctors(null, "cardiology", "am", 0, 100))),
+                statementsFor(40, () -> doctors(doctorService.filterDoctors(null, "cardiology", "am", 0, 100))));
+    }
+
+    @Test
+    void searchingDoctorsDoesNotScaleQueriesWithDoctorCount() {
+        // The search index is not ready, so the LIKE finders are used
+        assertEquals(statementsFor(3, () -> doctors(doctorService.filterDoctors("doc", null, null, null, 100))),
+                statementsFor(40, () -> doctors(doctorService.filterDoctors("doc", null, null, null, 100))));
+        assertEquals(statementsFor(3, () -> doctors(doctorService.filterDoctors("doc", "cardiology", null, null, 100))),
+                statementsFor(40, () -> doctors(doctorService.filterDoctors("doc", "cardiology", null, null, 100))));
+    }
+
+    // Statements run by `read` (and by touching every returned slot list) with `count` doctors stored.
+    private long statementsFor(int count, Supplier<List<Doctor>> read) {
+        doctorRepository.deleteAll();
+        for (int i = 0; i < count; i++) {
+            Doctor doctor = new Doctor();
+            doctor.setName("Doctor " + i);
+            doctor.setSpecialty("Cardiology");
+            doctor.setEmail("doctor" + i + "@example.com");
+            doctor.setPassword("secret1");
+            doctor.setPhone("1234567890");
+            doctor.setAvailableTimes(List.of("09:00-10:00", "14:00-15:00"));
+            doctorRepository.save(doctor);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics.clear();
+        List<Doctor> doctors = read.get();
+        assertEquals(count, doctors.size());
+        for (Doctor doctor : doctors) {
+            assertEquals(2, doctor.getAvailableTimes().size());
+        }
+        return statistics.getPrepareStatementCount();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Doctor> doctors(Map<String, Object> result) {
+        return (List<Doctor>) result.get("doctors");
+    }
+}
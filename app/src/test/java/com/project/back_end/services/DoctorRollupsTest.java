@@ -0,0 +1,132 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.DoctorDailyCount;
+import com.project.back_end.models.RollupRebuild;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorDailyCountRepository;
+import com.project.back_end.repo.RollupRebuildRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Drives a rebuild against mocked repositories, with bookings committing at each stage of it
+// on this node and on another one, and checks every booking ends up counted exactly once.
+class DoctorRollupsTest {
+
+    private static final Long DOCTOR = 7L;
+    private static final LocalDateTime MARCH = LocalDateTime.of(2026, 3, 10, 9, 0);
+    private static final LocalDateTime APRIL = LocalDateTime.of(2026, 4, 2, 9, 0);
+
+    private DoctorDailyCountRepository dailyCounts;
+    private AppointmentRepository appointmentRepository;
+    private RollupRebuildRepository rollupRebuilds;
+    private PlatformTransactionManager transactionManager;
+    private final Map<LocalDate, RollupRebuild> markers = new HashMap<>();
+    private DoctorRollups rollups;
+
+    @BeforeEach
+    void setUp() {
+        dailyCounts = mock(DoctorDailyCountRepository.class);
+        appointmentRepository = mock(AppointmentRepository.class);
+        rollupRebuilds = mock(RollupRebuildRepository.class);
+        when(rollupRebuilds.save(any())).thenAnswer(invocation -> {
+            RollupRebuild marker = invocation.getArgument(0);
+            markers.put(marker.getMonth(), marker);
+            return marker;
+        });
+        when(rollupRebuilds.findAll()).thenAnswer(invocation -> new ArrayList<>(markers.values()));
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(dailyCounts.addCounts(any(), any(), anyLong(), anyLong())).thenReturn(1);
+        rollups = new DoctorRollups(dailyCounts, appointmentRepository, rollupRebuilds, transactionManager);
+    }
+
+    @Test
+    void bookingsDuringARebuildAreCountedOnce() {
+        when(appointmentRepository.findEarliestAppointmentTime()).thenAnswer(invocation -> {
+            // Commits after the rebuild's first flush but before the month is scanned
+            rollups.booked(DOCTOR, MARCH, 0);
+            tick();
+            return MARCH;
+        });
+        when(appointmentRepository.findLatestAppointmentTime()).thenReturn(MARCH);
+        when(appointmentRepository.countByDoctorAndDay(any(), any())).thenAnswer(invocation -> {
+            // Commits after the scan's snapshot, so the scan does not see it
+            tick();
+            rollups.booked(DOCTOR, MARCH.plusHours(1), 0);
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(new Object[] {DOCTOR, MARCH.toLocalDate(), 2L, 0L});
+            return rows;
+        });
+
+        rollups.rebuild();
+        rollups.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<DoctorDailyCount>> saved = ArgumentCaptor.forClass(List.class);
+        verify(dailyCounts).saveAllAndFlush(saved.capture());
+        assertEquals(1, saved.getValue().size());
+        // The scanned row plus the one booking the scan missed
+        verify(dailyCounts, times(1)).addCounts(DOCTOR, MARCH.toLocalDate(), 1L, 0L);
+        verify(dailyCounts, never()).addCounts(eq(DOCTOR), eq(MARCH.toLocalDate()), eq(2L), anyLong());
+    }
+
+    @Test
+    void anotherNodesDeltasCountedByTheRebuildAreDropped() throws Exception {
+        DoctorRollups otherNode = new DoctorRollups(dailyCounts, appointmentRepository, rollupRebuilds, transactionManager);
+        // Committed on the other node before the rebuild, not yet flushed there
+        otherNode.booked(DOCTOR, MARCH, 0);
+        tick();
+        when(appointmentRepository.findEarliestAppointmentTime()).thenReturn(MARCH);
+        when(appointmentRepository.findLatestAppointmentTime()).thenReturn(MARCH);
+        when(appointmentRepository.countByDoctorAndDay(any(), any())).thenAnswer(invocation -> {
+            // Commits on the other node after the scan's snapshot
+            tick();
+            otherNode.booked(DOCTOR, MARCH.plusHours(1), 0);
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(new Object[] {DOCTOR, MARCH.toLocalDate(), 1L, 0L});
+            return rows;
+        });
+
+        rollups.rebuild();
+        otherNode.flush();
+
+        verify(dailyCounts, times(1)).addCounts(DOCTOR, MARCH.toLocalDate(), 1L, 0L);
+        verify(dailyCounts, never()).addCounts(eq(DOCTOR), eq(MARCH.toLocalDate()), eq(2L), anyLong());
+    }
+
+    @Test
+    void aMonthRebuiltByAnotherNodeIsSkipped() {
+        when(appointmentRepository.findEarliestAppointmentTime()).thenReturn(MARCH);
+        when(appointmentRepository.findLatestAppointmentTime()).thenReturn(APRIL);
+        when(appointmentRepository.countByDoctorAndDay(any(), any())).thenReturn(new ArrayList<>());
+        when(dailyCounts.saveAllAndFlush(anyList()))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"))
+                .thenReturn(new ArrayList<>());
+
+        rollups.rebuild();
+
+        verify(dailyCounts).deleteDays(LocalDate.of(2026, 3, 1), LocalDate.of(2026, 4, 1));
+        verify(dailyCounts).deleteDays(LocalDate.of(2026, 4, 1), LocalDate.of(2026, 5, 1));
+        verify(dailyCounts, times(2)).saveAllAndFlush(anyList());
+    }
+
+    // Keeps a booking's recorded time apart from the rebuild marker's
+    private static void tick() throws InterruptedException {
+        Thread.sleep(2);
+    }
+}
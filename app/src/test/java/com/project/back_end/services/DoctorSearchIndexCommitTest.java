@@ -0,0 +1,101 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Doctor saves inside a transaction reach the search index only once they commit, and a save
+// that commits while a rebuild is reading the table survives the rebuild's swap.
+class DoctorSearchIndexCommitTest {
+
+    private DoctorRepository doctorRepository;
+    private DoctorSearchIndex doctorSearchIndex;
+    private DoctorService doctorService;
+
+    @BeforeEach
+    void setUp() {
+        doctorRepository = mock(DoctorRepository.class);
+        when(doctorRepository.save(any(Doctor.class))).thenAnswer(invocation -> {
+            Doctor doctor = invocation.getArgument(0);
+            doctor.setId(42L);
+            return doctor;
+        });
+        doctorSearchIndex = new DoctorSearchIndex(doctorRepository);
+        AvailabilityIndex availabilityIndex = new AvailabilityIndex(doctorRepository, mock(AppointmentRepository.class));
+        doctorService = new DoctorService(doctorRepository, null, null, null, availabilityIndex, null,
+                doctorSearchIndex, mock(DoctorDirectoryCache.class), null, null);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void aSaveIsIndexedOnlyOnceItCommits() {
+        assertEquals(1, doctorService.saveDoctor(doctor()));
+        assertEquals(Set.of(), doctorSearchIndex.idsByName("adams"));
+
+        commit();
+        assertEquals(Set.of(42L), doctorSearchIndex.idsByName("adams"));
+    }
+
+    @Test
+    void aRolledBackSaveNeverReachesTheIndex() {
+        assertEquals(1, doctorService.saveDoctor(doctor()));
+
+        rollBack();
+        assertEquals(Set.of(), doctorSearchIndex.idsByName("adams"));
+    }
+
+    @Test
+    void aSaveCommittingDuringARebuildSurvivesTheSwap() {
+        // The rebuild's read misses the doctor, whose save commits before the swap
+        when(doctorRepository.findNamesAndSpecialties()).thenAnswer(invocation -> {
+            commit();
+            return List.<Object[]>of(new Object[] {7L, "Dr. Ellen Ward", "Cardiology"});
+        });
+        doctorService.saveDoctor(doctor());
+
+        doctorSearchIndex.rebuild();
+
+        assertEquals(Set.of(42L), doctorSearchIndex.idsByName("adams"));
+        assertEquals(Set.of(7L, 42L), doctorSearchIndex.idsBySpecialty("cardiology"));
+    }
+
+    private static Doctor doctor() {
+        Doctor doctor = new Doctor();
+        doctor.setName("Dr. Emily Adams");
+        doctor.setSpecialty("Cardiology");
+        doctor.setEmail("adams@example.com");
+        return doctor;
+    }
+
+    private static void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+
+    private static void rollBack() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+    }
+}
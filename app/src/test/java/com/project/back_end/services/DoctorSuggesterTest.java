@@ -0,0 +1,82 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.AppointmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// The suggestion trie over a fixed set of doctors: any word of a name matches its prefix,
+// the busiest doctors come first, and no more than the limit are returned.
+class DoctorSuggesterTest {
+
+    private final Map<Long, String[]> doctors = new HashMap<>();
+    private final List<Object[]> bookings = new ArrayList<>();
+    private DoctorSuggester suggester;
+
+    @BeforeEach
+    void setUp() {
+        doctors.put(1L, new String[] {"Dr. Emily Adams", "Cardiology"});
+        doctors.put(2L, new String[] {"Dr. Adam Brown", "Neurology"});
+        doctors.put(3L, new String[] {"Dr. Sara Adair", "Dermatology"});
+        doctors.put(4L, new String[] {"Dr. Mark Ellis", "Cardiology"});
+        bookings.add(new Object[] {3L, 40L});
+        bookings.add(new Object[] {1L, 25L});
+        bookings.add(new Object[] {2L, 5L});
+
+        DoctorSearchIndex index = mock(DoctorSearchIndex.class);
+        when(index.version()).thenReturn(1L);
+        when(index.snapshot()).thenReturn(doctors);
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.countByDoctorSince(any())).thenReturn(bookings);
+        suggester = new DoctorSuggester(index, appointmentRepository);
+        suggester.refreshBookingCounts();
+    }
+
+    @Test
+    void matchesThePrefixOfAnyWordIgnoringCase() {
+        assertEquals(List.of(3L, 1L, 2L), ids(suggester.suggest("AD", 10)));
+        assertEquals(List.of(1L), ids(suggester.suggest("emi", 10)));
+        assertEquals(List.of(3L, 1L, 2L, 4L), ids(suggester.suggest("dr", 10)));
+        // Only word starts match, not the middle of a word
+        assertTrue(suggester.suggest("dams", 10).isEmpty());
+        assertTrue(suggester.suggest("zz", 10).isEmpty());
+    }
+
+    @Test
+    void ranksByRecentBookingsThenName() {
+        List<Map<String, Object>> suggestions = suggester.suggest("ada", 10);
+        assertEquals(List.of(3L, 1L, 2L), ids(suggestions));
+        assertEquals("Dr. Sara Adair", suggestions.get(0).get("name"));
+        assertEquals("Dermatology", suggestions.get(0).get("specialty"));
+        // Doctors without bookings fall back to name order
+        doctors.put(5L, new String[] {"Dr. Ellen Ward", "Pediatrics"});
+        suggester.refreshBookingCounts();
+        assertEquals(List.of(5L, 4L), ids(suggester.suggest("ell", 10)));
+    }
+
+    @Test
+    void returnsAtMostTheLimit() {
+        assertEquals(List.of(3L, 1L), ids(suggester.suggest("dr", 2)));
+        for (long id = 10; id < 30; id++) {
+            doctors.put(id, new String[] {"Dr. Test " + id, "Cardiology"});
+        }
+        suggester.refreshBookingCounts();
+        assertEquals(DoctorSuggester.MAX_SUGGESTIONS, suggester.suggest("dr", 100).size());
+    }
+
+    private static List<Long> ids(List<Map<String, Object>> suggestions) {
+        List<Long> ids = new ArrayList<>();
+        for (Map<String, Object> suggestion : suggestions) {
+            ids.add((Long) suggestion.get("id"));
+        }
+        return ids;
+    }
+}
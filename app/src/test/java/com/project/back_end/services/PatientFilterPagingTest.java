@@ -0,0 +1,133 @@
+package com.project.back_end.services;
+
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.DTO.PageCursor;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.testsupport.JpaSliceConfiguration;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The filtered patient lists page by (appointment time, id) like the unfiltered one: following
+// nextCursor returns every match once, in order, including appointments that share a time.
+@DataJpaTest
+@ContextConfiguration(classes = JpaSliceConfiguration.class)
+class PatientFilterPagingTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 11, 2, 9, 0);
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private PatientService patientService;
+    private Long patientId;
+    private final List<Long> adams = new ArrayList<>();
+    private final List<Long> adamsPast = new ArrayList<>();
+    private final List<Long> past = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        patientService = new PatientService(null, appointmentRepository);
+        Doctor adamsDoctor = doctor("Dr. Emily Adams", "adams@example.com");
+        Doctor brownDoctor = doctor("Dr. Adam Brown", "brown@example.com");
+        Doctor wardDoctor = doctor("Dr. Ellen Ward", "ward@example.com");
+        Patient patient = new Patient();
+        patient.setName("Paging Patient");
+        patient.setEmail("paging@example.com");
+        patient.setPassword("secret1");
+        patient.setPhone("1234567890");
+        patient.setAddress("1 Main Street");
+        entityManager.persist(patient);
+        patientId = patient.getId();
+
+        // Each hour has one appointment with Adams and one with Ward, so pages split ties
+        for (int i = 0; i < 5; i++) {
+            int status = i % 2 == 0 ? 1 : 0;
+            Appointment withAdams = book(adamsDoctor, patient, START.plusHours(i), status);
+            Appointment withWard = book(wardDoctor, patient, START.plusHours(i), status);
+            adams.add(withAdams.getId());
+            if (status == 1) {
+                adamsPast.add(withAdams.getId());
+                past.add(Math.min(withAdams.getId(), withWard.getId()));
+                past.add(Math.max(withAdams.getId(), withWard.getId()));
+            }
+        }
+        // "adam" also matches Brown
+        Appointment withBrown = book(brownDoctor, patient, START.plusHours(2), 0);
+        entityManager.flush();
+        entityManager.clear();
+        adams.add(3, withBrown.getId());
+    }
+
+    @Test
+    void filteredListsReturnEveryMatchOnceAcrossPages() {
+        assertEquals(past, walk((after, size) -> patientService.filterByCondition("past", patientId, after, size)));
+        assertEquals(adams, walk((after, size) -> patientService.filterByDoctor("adam", patientId, after, size)));
+        assertEquals(adamsPast, walk((after, size) ->
+                patientService.filterByDoctorAndCondition("past", "adams", patientId, after, size)));
+    }
+
+    @Test
+    void theLastPageHasNoCursor() {
+        Map<String, Object> body = patientService.filterByDoctor("brown", patientId, null, 2).getBody();
+        assertEquals(1, ((List<?>) body.get("appointments")).size());
+        assertTrue(body.containsKey("nextCursor"));
+        assertNull(body.get("nextCursor"));
+        assertEquals(HttpStatus.BAD_REQUEST,
+                patientService.filterByCondition("someday", patientId, null, 2).getStatusCode());
+    }
+
+    // Follows nextCursor two rows at a time and returns the ids in the order they came back
+    @SuppressWarnings("unchecked")
+    private List<Long> walk(BiFunction<PageCursor, Integer, ResponseEntity<Map<String, Object>>> page) {
+        List<Long> ids = new ArrayList<>();
+        PageCursor after = null;
+        do {
+            ResponseEntity<Map<String, Object>> response = page.apply(after, 2);
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            List<AppointmentDTO> appointments = (List<AppointmentDTO>) response.getBody().get("appointments");
+            assertTrue(appointments.size() <= 2);
+            appointments.forEach(appointment -> ids.add(appointment.getId()));
+            after = PageCursor.decode((String) response.getBody().get("nextCursor"));
+        } while (after != null);
+        return ids;
+    }
+
+    private Doctor doctor(String name, String email) {
+        Doctor doctor = new Doctor();
+        doctor.setName(name);
+        doctor.setSpecialty("Cardiology");
+        doctor.setEmail(email);
+        doctor.setPassword("secret1");
+        doctor.setPhone("1234567890");
+        doctor.setAvailableTimes(List.of("09:00-10:00"));
+        return doctorRepository.save(doctor);
+    }
+
+    private Appointment book(Doctor doctor, Patient patient, LocalDateTime time, int status) {
+        return appointmentRepository.save(new Appointment(doctor, patient, time, status));
+    }
+}
@@ -0,0 +1,195 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.controllers.AdminController;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// Background report jobs against a mocked ReportService: identical submissions share a job,
+// finished ones only for past ranges, a full queue is refused, failed jobs can be resubmitted,
+// expired or missing output is not served, and only the jobs' own files are cleared on start.
+// Also checks the CSV the jobs write.
+class ReportJobsTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 10);
+
+    @TempDir
+    Path dir;
+
+    private ReportService reportService;
+    private ReportJobs jobs;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        reportService = mock(ReportService.class);
+        jobs = new ReportJobs(reportService, new ObjectMapper());
+        ReflectionTestUtils.setField(jobs, "threads", 1);
+        ReflectionTestUtils.setField(jobs, "queueCapacity", 1);
+        ReflectionTestUtils.setField(jobs, "ttlSeconds", 3600L);
+        ReflectionTestUtils.setField(jobs, "dir", dir.toString());
+        jobs.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        jobs.stop();
+    }
+
+    @Test
+    void identicalSubmissionsShareOneJob() throws Exception {
+        when(reportService.writeDailyReport(eq(DAY), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return write(invocation.getArgument(1), "{}\n");
+        });
+
+        ReportJobs.Job first = jobs.submitDailyReport(DAY, ReportJobs.Format.NDJSON);
+        assertSame(first, jobs.submitDailyReport(DAY, ReportJobs.Format.NDJSON), "while running");
+        assertNotSame(first, jobs.submitDailyReport(DAY, ReportJobs.Format.CSV), "other format");
+        release.countDown();
+        first.getResult().get(5, TimeUnit.SECONDS);
+        assertSame(first, jobs.submitDailyReport(DAY, ReportJobs.Format.NDJSON), "cached");
+        verify(reportService, times(1)).writeDailyReport(eq(DAY), any());
+    }
+
+    @Test
+    void aFinishedReportIsRerunWhileItsRangeIsNotPast() throws Exception {
+        LocalDate today = LocalDate.now();
+        when(reportService.writeDailyReport(eq(today), any()))
+                .thenAnswer(invocation -> write(invocation.getArgument(1), "{}\n"));
+
+        ReportJobs.Job first = jobs.submitDailyReport(today, ReportJobs.Format.NDJSON);
+        first.getResult().get(5, TimeUnit.SECONDS);
+        ReportJobs.Job second = jobs.submitDailyReport(today, ReportJobs.Format.NDJSON);
+
+        assertNotSame(first, second);
+        second.getResult().get(5, TimeUnit.SECONDS);
+        verify(reportService, times(2)).writeDailyReport(eq(today), any());
+    }
+
+    @Test
+    void startOnlyClearsItsOwnFiles() throws Exception {
+        Path stale = Files.writeString(dir.resolve("report-old.ndjson.gz"), "x");
+        Path other = Files.writeString(dir.resolve("backup.sql.gz"), "x");
+        jobs.stop();
+
+        jobs.start();
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(other));
+    }
+
+    @Test
+    void aFullQueueIsRefusedWith503() throws Exception {
+        when(reportService.writeDailyReport(any(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 0L;
+        });
+        ReportJobs.Job running = jobs.submitDailyReport(DAY, ReportJobs.Format.NDJSON);
+        waitFor(() -> running.getState() == ReportJobs.State.RUNNING);
+        assertNotNull(jobs.submitDailyReport(DAY.plusDays(1), ReportJobs.Format.NDJSON), "queued");
+
+        assertNull(jobs.submitDailyReport(DAY.plusDays(2), ReportJobs.Format.NDJSON));
+        AdminController controller = new AdminController(null, reportService, null, jobs);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, controller.submitReportJob("daily", DAY.plusDays(3),
+                null, null, 10, null, null, "ndjson", null).getStatusCode());
+    }
+
+    @Test
+    void aFailedJobCanBeResubmitted() throws Exception {
+        when(reportService.writeDailyReport(eq(DAY), any()))
+                .thenThrow(new IOException("connection reset"))
+                .thenAnswer(invocation -> write(invocation.getArgument(1), "{}\n"));
+
+        ReportJobs.Job failed = jobs.submitDailyReport(DAY, ReportJobs.Format.NDJSON);
+        assertThrows(Exception.class, () -> failed.getResult().get(5, TimeUnit.SECONDS));
+        assertEquals(ReportJobs.State.FAILED, failed.getState());
+
+        ReportJobs.Job retried = jobs.submitDailyReport(DAY, ReportJobs.Format.NDJSON);
+        assertNotSame(failed, retried);
+        assertTrue(Files.exists(retried.getResult().get(5, TimeUnit.SECONDS)));
+        assertEquals(ReportJobs.State.DONE, retried.getState());
+    }
+
+    @Test
+    void expiredJobsAreSweptWithTheirFiles() throws Exception {
+        ReflectionTestUtils.setField(jobs, "ttlSeconds", 0L);
+        when(reportService.writeDailyReport(eq(DAY), any()))
+                .thenAnswer(invocation -> write(invocation.getArgument(1), "{}\n"));
+        ReportJobs.Job job = jobs.submitDailyReport(DAY, ReportJobs.Format.NDJSON);
+        Path file = job.getResult().get(5, TimeUnit.SECONDS);
+        Thread.sleep(5);
+
+        jobs.sweep();
+
+        assertFalse(Files.exists(file));
+        assertNull(jobs.get(job.getId()));
+        // The next submission runs the report again
+        assertNotSame(job, jobs.submitDailyReport(DAY, ReportJobs.Format.NDJSON));
+    }
+
+    @Test
+    void aFileSweptUnderADownloadIsNotFound() throws Exception {
+        when(reportService.writeDailyReport(eq(DAY), any()))
+                .thenAnswer(invocation -> write(invocation.getArgument(1), "{}\n"));
+        ReportJobs.Job job = jobs.submitDailyReport(DAY, ReportJobs.Format.NDJSON);
+        // As if the sweep ran between looking the job up and opening its file
+        Files.delete(job.getResult().get(5, TimeUnit.SECONDS));
+
+        AdminController controller = new AdminController(null, reportService, null, jobs);
+        assertEquals(HttpStatus.NOT_FOUND, controller.downloadReportJob(job.getId(), false, null).getStatusCode());
+    }
+
+    @Test
+    void csvQuotesSpecialCharactersAndDefusesFormulas() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<Object[]> rows = Arrays.asList(
+                new Object[] {"Smith, Jo", "says \"hi\"", null},
+                new Object[] {"two\nlines", "=HYPERLINK(\"x\")", -3},
+                new Object[] {"+1 555", "@SUM(A1)", "-dash"});
+
+        long count = CsvWriter.write(new String[] {"a", "b", "c"}, rows.stream(), row -> row, out);
+
+        assertEquals(3, count);
+        assertEquals("a,b,c\r\n"
+                + "\"Smith, Jo\",\"says \"\"hi\"\"\",\r\n"
+                + "\"two\nlines\",\"'=HYPERLINK(\"\"x\"\")\",-3\r\n"
+                + "'+1 555,'@SUM(A1),'-dash\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    private static long write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        return 1;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
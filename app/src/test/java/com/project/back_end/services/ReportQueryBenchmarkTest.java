@@ -0,0 +1,186 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorDailyCountRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.RollupRebuildRepository;
+import com.project.testsupport.JpaSliceConfiguration;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compares the stored procedures' DATE(), MONTH() and YEAR() predicates with half-open range
+// predicates, then the range scans with the month and year reports, which read the daily rollups,
+// on a synthetic appointment table (one appointment a minute, spread over 200 doctors).
+// Seeding takes a while, so it only runs with -Dbenchmark.reports=true; -Dbenchmark.reports.rows
+// sets the table size (default 2,000,000, about 3.8 years from 2020).
+@DataJpaTest
+@ContextConfiguration(classes = JpaSliceConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark.reports", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReportQueryBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.reports.rows", 2_000_000);
+    private static final int DOCTORS = 200;
+    private static final int PATIENTS = 1_000;
+    private static final int CHUNK = 100_000;
+    private static final int RUNS = 5;
+    private static final LocalDateTime FIRST = LocalDateTime.of(2020, 1, 1, 0, 0);
+    // A day in the middle of the data; the month and year reports use its month and year
+    private static final LocalDate DAY = FIRST.plusMinutes(ROWS / 2).toLocalDate();
+
+    private static final String LEGACY_DAILY = "SELECT d.name, a.appointment_time, a.status, p.name, p.phone "
+            + "FROM appointment a JOIN doctor d ON a.doctor_id = d.id JOIN patient p ON a.patient_id = p.id "
+            + "WHERE CAST(a.appointment_time AS DATE) = ? ORDER BY d.name, a.appointment_time";
+    private static final String LEGACY_MONTH = "SELECT doctor_id, COUNT(patient_id) AS patients_seen FROM appointment "
+            + "WHERE MONTH(appointment_time) = ? AND YEAR(appointment_time) = ? "
+            + "GROUP BY doctor_id ORDER BY patients_seen DESC LIMIT 1";
+    private static final String LEGACY_YEAR = "SELECT doctor_id, COUNT(patient_id) AS patients_seen FROM appointment "
+            + "WHERE YEAR(appointment_time) = ? GROUP BY doctor_id ORDER BY patients_seen DESC LIMIT 1";
+    private static final String RANGE_TOP_DOCTOR = "SELECT doctor_id, COUNT(patient_id) AS patients_seen "
+            + "FROM appointment WHERE appointment_time >= ? AND appointment_time < ? "
+            + "GROUP BY doctor_id ORDER BY patients_seen DESC LIMIT 1";
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private DoctorDailyCountRepository dailyCounts;
+
+    @Autowired
+    private RollupRebuildRepository rollupRebuilds;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ReportService reportService;
+
+    // Seeds once for both tests; the table is not rolled back between them
+    @BeforeAll
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        DoctorRollups rollups = new DoctorRollups(dailyCounts, appointmentRepository, rollupRebuilds, transactionManager);
+        reportService = new ReportService(appointmentRepository, doctorRepository, dailyCounts, rollups, objectMapper);
+
+        jdbcTemplate.update("INSERT INTO doctor (name, specialty, email, password, phone) "
+                + "SELECT 'Doctor ' || X, 'Cardiology', 'doctor' || X || '@example.com', 'secret1', '1234567890' "
+                + "FROM SYSTEM_RANGE(1, ?)", DOCTORS);
+        jdbcTemplate.update("INSERT INTO patient (name, email, password, phone, address) "
+                + "SELECT 'Patient ' || X, 'patient' || X || '@example.com', 'secret1', '1234567890', X || ' Main Street' "
+                + "FROM SYSTEM_RANGE(1, ?)", PATIENTS);
+        long firstDoctor = jdbcTemplate.queryForObject("SELECT MIN(id) FROM doctor", Long.class);
+        long firstPatient = jdbcTemplate.queryForObject("SELECT MIN(id) FROM patient", Long.class);
+        long started = System.nanoTime();
+        // Auto-committed chunks: one huge uncommitted insert is very slow in H2
+        for (int from = 0; from < ROWS; from += CHUNK) {
+            jdbcTemplate.update("INSERT INTO appointment (doctor_id, patient_id, appointment_time, status) "
+                    + "SELECT ? + MOD(X * 7, ?), ? + MOD(X * 13, ?), DATEADD(MINUTE, X, CAST(? AS TIMESTAMP)), MOD(X, 2) "
+                    + "FROM SYSTEM_RANGE(?, ?)", firstDoctor, DOCTORS, firstPatient, PATIENTS, FIRST,
+                    from, Math.min(from + CHUNK, ROWS) - 1);
+        }
+        System.out.printf("seeded %d appointments in %d ms%n", ROWS, (System.nanoTime() - started) / 1_000_000);
+        rollups.rebuild();
+    }
+
+    @Test
+    void rangePredicatesBeatFunctionsOnTheColumn() {
+        assertEquals(24 * 60, dailyReportRows());
+        compare("daily report", "function on column", "half-open range",
+                () -> jdbcTemplate.queryForList(LEGACY_DAILY, DAY).size(), this::dailyReportRows);
+
+        compare("top doctor by month", "function on column", "half-open range",
+                () -> patientsSeen(LEGACY_MONTH, DAY.getMonthValue(), DAY.getYear()),
+                () -> patientsSeen(RANGE_TOP_DOCTOR, monthStart(), monthStart().plusMonths(1)));
+        compare("top doctor by year", "function on column", "half-open range",
+                () -> patientsSeen(LEGACY_YEAR, DAY.getYear()),
+                () -> patientsSeen(RANGE_TOP_DOCTOR, yearStart(), yearStart().plusYears(1)));
+    }
+
+    @Test
+    void rollupsBeatScanningTheAppointments() {
+        compare("top doctor by month", "half-open range", "daily rollups",
+                () -> patientsSeen(RANGE_TOP_DOCTOR, monthStart(), monthStart().plusMonths(1)),
+                () -> topPatientsSeen(DAY.getMonthValue()));
+        compare("top doctor by year", "half-open range", "daily rollups",
+                () -> patientsSeen(RANGE_TOP_DOCTOR, yearStart(), yearStart().plusYears(1)),
+                () -> topPatientsSeen(null));
+    }
+
+    // Runs both versions RUNS times, checks they agree, and asserts the faster one's best time is lower.
+    private static void compare(String report, String slowName, String fastName,
+            Supplier<Integer> slow, Supplier<Integer> fast) {
+        assertEquals(slow.get(), fast.get());
+        long slowNanos = best(slow);
+        long fastNanos = best(fast);
+        System.out.printf("%s over %d rows: %s %.1f ms, %s %.1f ms (%.1fx)%n",
+                report, ROWS, slowName, slowNanos / 1e6, fastName, fastNanos / 1e6, (double) slowNanos / fastNanos);
+        assertTrue(fastNanos < slowNanos, report);
+    }
+
+    private int patientsSeen(String sql, Object... args) {
+        return ((Number) jdbcTemplate.queryForMap(sql, args).get("patients_seen")).intValue();
+    }
+
+    private int topPatientsSeen(Integer month) {
+        return ((Number) reportService.getDoctorWithMostPatients(DAY.getYear(), month).get("patientsSeen")).intValue();
+    }
+
+    private static LocalDateTime monthStart() {
+        return DAY.withDayOfMonth(1).atStartOfDay();
+    }
+
+    private static LocalDateTime yearStart() {
+        return DAY.withDayOfYear(1).atStartOfDay();
+    }
+
+    private static long best(Supplier<Integer> query) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long started = System.nanoTime();
+            query.get();
+            best = Math.min(best, System.nanoTime() - started);
+        }
+        return best;
+    }
+
+    // Rows in the streamed daily report, written to nowhere (serialization included). The
+    // service is not proxied here, so the transaction its stream needs is opened explicitly.
+    private int dailyReportRows() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            try {
+                return (int) reportService.writeDailyReport(DAY, OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
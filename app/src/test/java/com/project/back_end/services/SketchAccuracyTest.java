@@ -0,0 +1,83 @@
+package com.project.back_end.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Checks the analytics sketches against exact answers: HyperLogLog distinct counts stay within
+// a few standard errors, merged sketches match a sketch of the combined stream, and Space-Saving
+// keeps the true heavy hitters of a skewed stream with counts inside their reported bounds.
+class SketchAccuracyTest {
+
+    // 1.04 / sqrt(2^11) is about 2.3%; allow three standard errors
+    private static final double TOLERANCE = 0.07;
+
+    @Test
+    void hyperLogLogEstimatesDistinctCounts() {
+        for (int distinct : new int[] {10, 1_000, 100_000, 1_000_000}) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (long id = 1; id <= distinct; id++) {
+                sketch.add(id);
+                sketch.add(id); // repeats must not count
+            }
+            long estimate = sketch.estimate();
+            assertEquals(distinct, estimate, distinct * TOLERANCE, "distinct=" + distinct);
+        }
+    }
+
+    @Test
+    void mergedHyperLogLogEstimatesTheUnion() {
+        HyperLogLog january = new HyperLogLog();
+        HyperLogLog february = new HyperLogLog();
+        HyperLogLog both = new HyperLogLog();
+        // 30,000 patients in each month, 10,000 of them in both
+        for (long id = 0; id < 30_000; id++) {
+            january.add(id);
+            february.add(id + 20_000);
+            both.add(id);
+            both.add(id + 20_000);
+        }
+        HyperLogLog merged = HyperLogLog.fromBytes(january.toBytes());
+        merged.merge(february);
+        assertArrayEquals(both.toBytes(), merged.toBytes());
+        assertEquals(50_000, merged.estimate(), 50_000 * TOLERANCE);
+    }
+
+    @Test
+    void spaceSavingKeepsHeavyHittersWithinBounds() {
+        Random random = new Random(42);
+        SpaceSaving<Integer> first = new SpaceSaving<>(AppointmentAnalytics.TOP_K);
+        SpaceSaving<Integer> second = new SpaceSaving<>(AppointmentAnalytics.TOP_K);
+        Map<Integer, Long> exact = new HashMap<>();
+        // Zipf-like: item k is drawn with probability proportional to 1/k, over 2,000 items
+        double[] cumulative = new double[2_000];
+        double total = 0;
+        for (int k = 0; k < cumulative.length; k++) {
+            total += 1.0 / (k + 1);
+            cumulative[k] = total;
+        }
+        for (int i = 0; i < 200_000; i++) {
+            double u = random.nextDouble() * total;
+            int item = 0;
+            while (cumulative[item] < u) {
+                item++;
+            }
+            (i % 2 == 0 ? first : second).offer(item);
+            exact.merge(item, 1L, Long::sum);
+        }
+        first.merge(second);
+
+        List<SpaceSaving.Entry<Integer>> top = first.top(10);
+        for (int rank = 0; rank < 10; rank++) {
+            SpaceSaving.Entry<Integer> entry = top.get(rank);
+            assertEquals(rank, entry.item(), "rank " + rank);
+            long truth = exact.get(entry.item());
+            assertTrue(entry.count() >= truth && entry.count() - entry.error() <= truth, "bounds for " + entry);
+        }
+    }
+}
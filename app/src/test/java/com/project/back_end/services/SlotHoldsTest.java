@@ -0,0 +1,87 @@
+package com.project.back_end.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Holds on their own: the per-patient cap, expiry and the reaper that frees expired holds,
+// and which holds a patient's own availability listing leaves out.
+class SlotHoldsTest {
+
+    private static final LocalDate DAY = LocalDate.now().plusDays(1);
+
+    private SlotHolds holds;
+
+    @BeforeEach
+    void setUp() {
+        holds = new SlotHolds();
+        ReflectionTestUtils.setField(holds, "holdSeconds", 300L);
+        ReflectionTestUtils.setField(holds, "maxPerPatient", 2);
+        holds.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        holds.stop();
+    }
+
+    @Test
+    void capsTheHoldsPerPatient() {
+        SlotHolds.Hold first = holds.place(1L, DAY.atTime(9, 0), 7L);
+        assertNotNull(first);
+        assertNotNull(holds.place(1L, DAY.atTime(10, 0), 7L));
+        assertNull(holds.place(1L, DAY.atTime(11, 0), 7L), "third hold");
+        // Holding the same slot again replaces the hold rather than adding one
+        assertNotNull(holds.place(1L, DAY.atTime(9, 0), 7L));
+        // Other patients have their own allowance
+        assertNotNull(holds.place(1L, DAY.atTime(11, 0), 8L));
+
+        holds.release(holds.holdOn(1L, DAY.atTime(10, 0)));
+        assertNotNull(holds.place(2L, DAY.atTime(9, 0), 7L));
+    }
+
+    @Test
+    void expiredHoldsFreeTheSlotAndTheAllowance() throws Exception {
+        ReflectionTestUtils.setField(holds, "holdSeconds", 0L);
+        LocalDateTime nine = DAY.atTime(9, 0);
+        SlotHolds.Hold hold = holds.place(1L, nine, 7L);
+        assertNotNull(hold);
+        assertNotNull(holds.place(1L, DAY.atTime(10, 0), 7L));
+
+        // Lookups ignore an expired hold even before the reaper drops it
+        assertNull(holds.holdOn(1L, nine));
+        assertNull(holds.get(hold.getId(), 7L));
+        assertFalse(holds.isHeldByOther(1L, nine, 8L));
+        assertTrue(holds.heldMinutes(1L, DAY).isEmpty());
+
+        // Once reaped, the patient can hold again
+        ReflectionTestUtils.setField(holds, "holdSeconds", 300L);
+        long deadline = System.currentTimeMillis() + 5_000;
+        SlotHolds.Hold again = null;
+        while (again == null && System.currentTimeMillis() < deadline) {
+            again = holds.place(1L, DAY.atTime(11, 0), 7L);
+            if (again == null) {
+                Thread.sleep(10);
+            }
+        }
+        assertNotNull(again, "expired holds were not reaped");
+    }
+
+    @Test
+    void aPatientsOwnHoldsAreNotHiddenFromThem() {
+        holds.place(1L, DAY.atTime(9, 0), 7L);
+        holds.place(1L, DAY.atTime(10, 0), 8L);
+
+        assertEquals(Set.of(9 * 60, 10 * 60), holds.heldMinutes(1L, DAY));
+        assertEquals(Set.of(10 * 60), holds.heldMinutes(1L, DAY, 7L));
+        assertTrue(holds.isHeldByOther(1L, DAY.atTime(9, 0), 8L));
+        assertFalse(holds.isHeldByOther(1L, DAY.atTime(9, 0), 7L));
+    }
+}
@@ -0,0 +1,141 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.repo.AdminRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.repo.TokenEpochRepository;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.TokenEpochRegistry;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+// Compares validating stateless role-bearing tokens with the old subject-only tokens that
+// need an account lookup. The lookup is stubbed with a fixed delay standing in for a
+// MySQL round trip; the verified-token cache is kept at one entry so every call misses.
+// The throughput comparison depends on the machine, so it only runs with
+// -Dbenchmark.token=true; the check that stateless tokens skip the lookup always runs.
+class TokenServiceBenchmarkTest {
+
+    private static final String SECRET = "$!@#$^%$$$%####$DDCPN0234FCFDPD8670M";
+    private static final long SIMULATED_DB_ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    private static final int TOKENS = 256;
+    private static final int ITERATIONS = 5_000;
+
+    private DoctorRepository doctorRepository;
+    private TokenEpochRepository tokenEpochRepository;
+    private TokenEpochRegistry tokenEpochRegistry;
+    private TokenService tokenService;
+
+    @BeforeEach
+    void setUp() {
+        doctorRepository = mock(DoctorRepository.class);
+        when(doctorRepository.findByEmail(anyString())).thenAnswer(invocation -> {
+            LockSupport.parkNanos(SIMULATED_DB_ROUND_TRIP_NANOS);
+            Doctor doctor = new Doctor();
+            doctor.setId(1L);
+            doctor.setEmail(invocation.getArgument(0));
+            doctor.setName("Dr. Test");
+            return doctor;
+        });
+        tokenEpochRepository = mock(TokenEpochRepository.class);
+        when(tokenEpochRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(tokenEpochRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        tokenEpochRegistry = new TokenEpochRegistry(tokenEpochRepository);
+
+        tokenService = new TokenService(mock(AdminRepository.class), doctorRepository,
+                mock(PatientRepository.class), tokenEpochRegistry);
+        ReflectionTestUtils.setField(tokenService, "secret", SECRET);
+        ReflectionTestUtils.setField(tokenService, "cacheMaxSize", 1);
+        ReflectionTestUtils.setField(tokenService, "cacheTtlSeconds", 300L);
+        tokenService.init();
+    }
+
+    @Test
+    void statelessValidationSkipsTheAccountLookup() {
+        List<String> stateless = tokens(true);
+        List<String> legacy = tokens(false);
+
+        run(stateless, TOKENS);
+        verify(doctorRepository, never()).findByEmail(anyString());
+        run(legacy, TOKENS);
+        verify(doctorRepository, times(TOKENS)).findByEmail(anyString());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.token", matches = "true")
+    void statelessValidationOutperformsDatabaseBackedCheck() {
+        List<String> stateless = tokens(true);
+        List<String> legacy = tokens(false);
+
+        // Warm up both paths before measuring
+        run(stateless, ITERATIONS);
+        run(legacy, ITERATIONS / 10);
+
+        double statelessOps = run(stateless, ITERATIONS);
+        double legacyOps = run(legacy, ITERATIONS / 10);
+
+        System.out.printf("validateToken: stateless %.0f ops/s, database-backed %.0f ops/s (%.1fx)%n",
+                statelessOps, legacyOps, statelessOps / legacyOps);
+        assertTrue(statelessOps > legacyOps);
+    }
+
+    @Test
+    void revokedTokensAreRejectedWithoutDatabaseLookup() {
+        String token = tokenService.generateToken("doc@example.com", "doctor", 7L, "Dr. Seven");
+        AuthPrincipal principal = tokenService.resolvePrincipal(token, "doctor");
+        assertNotNull(principal);
+        assertEquals(7L, principal.getId());
+        assertNull(tokenService.resolvePrincipal(token, "patient"));
+
+        tokenEpochRegistry.revoke("doctor", 7L);
+        assertNull(tokenService.resolvePrincipal(token, "doctor"));
+
+        String reissued = tokenService.generateToken("doc@example.com", "doctor", 7L, "Dr. Seven");
+        assertNotNull(tokenService.resolvePrincipal(reissued, "doctor"));
+        verify(doctorRepository, never()).findByEmail(anyString());
+    }
+
+    private List<String> tokens(boolean stateless) {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < TOKENS; i++) {
+            String email = "doctor" + i + "@example.com";
+            tokens.add(stateless ? tokenService.generateToken(email, "doctor", (long) i, "Dr. " + i) : legacyToken(email));
+        }
+        return tokens;
+    }
+
+    private double run(List<String> tokens, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            assertTrue(tokenService.validateToken(tokens.get(i % tokens.size()), "doctor"));
+        }
+        return iterations / ((System.nanoTime() - start) / 1e9);
+    }
+
+    // Token as issued before role claims were added: subject only
+    private static String legacyToken(String email) {
+        return Jwts.builder()
+                .subject(email)
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .compact();
+    }
+}
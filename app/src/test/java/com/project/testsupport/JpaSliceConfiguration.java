@@ -0,0 +1,16 @@
+package com.project.testsupport;
+
+import com.project.back_end.repo.DoctorRepository;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+// Configuration for @DataJpaTest slices: just the JPA entities and repositories. The application
+// class scans every package under com.project.back_end (Mongo and web beans included), so slices
+// name this class with @ContextConfiguration instead; it lives outside that package so the full
+// application context in BackEndApplicationTests does not pick it up as well.
+@Configuration
+@EntityScan("com.project.back_end.models")
+@EnableJpaRepositories(basePackageClasses = DoctorRepository.class)
+public class JpaSliceConfiguration {
+}
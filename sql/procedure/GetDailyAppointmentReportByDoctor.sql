@@ -16,7 +16,8 @@ FROM
     doctor d ON a.doctor_id = d.id
         JOIN
     patient p ON a.patient_id = p.id
-WHERE DATE(a.appointment_time) = report_date
+WHERE a.appointment_time >= report_date
+  AND a.appointment_time < report_date + INTERVAL 1 DAY
 ORDER BY
     d.name, a.appointment_time;
 end $$
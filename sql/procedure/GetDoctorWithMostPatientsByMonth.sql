@@ -10,8 +10,8 @@ SELECT
 FROM
     appointment
 WHERE
-    MONTH(appointment_time) = input_month
-  AND YEAR(appointment_time) = input_year
+    appointment_time >= MAKEDATE(input_year, 1) + INTERVAL (input_month - 1) MONTH
+  AND appointment_time < MAKEDATE(input_year, 1) + INTERVAL input_month MONTH
 GROUP BY
     doctor_id
 ORDER BY patient_seen DESC
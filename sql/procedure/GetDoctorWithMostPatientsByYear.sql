@@ -9,7 +9,8 @@ SELECT
 FROM
     appointment
 WHERE
-    YEAR(appointment_time) = input_year
+    appointment_time >= MAKEDATE(input_year, 1)
+  AND appointment_time < MAKEDATE(input_year + 1, 1)
 GROUP BY
     doctor_id
 ORDER BY